@@ -4,6 +4,7 @@ import edu.university.ecs.lab.common.error.Error;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -34,6 +35,59 @@ public class Config {
      */
     private final String branch;
 
+    /**
+     * Optional, true if commits that only reorder the imports of a Java file
+     * are not treated as changes to its code. False if not configured.
+     */
+    private boolean ignoreImportOrder;
+
+    /**
+     * Optional, globs of the files to extract, e.g. "**&#47;src/main/**". A file
+     * must match one of them if any are configured, except for the pom.xml and
+     * build.gradle files marking microservices. Null if not configured.
+     * Globs use the syntax of {@link java.nio.file.FileSystem#getPathMatcher(String)}
+     * and are matched against paths relative to the repository root.
+     */
+    private List<String> includes;
+
+    /**
+     * Optional, globs of the files and directories to leave out, e.g. "**&#47;src/test"
+     * or "**&#47;target". A directory matching one of them is pruned with everything
+     * in it. Null if not configured.
+     */
+    private List<String> excludes;
+
+    /**
+     * Optional, true if committed files matched by the repository's .gitignore
+     * files are left out. False if not configured.
+     */
+    private boolean respectGitignore;
+
+    /**
+     * Optional, size in bytes above which a Java file is skipped instead of
+     * parsed. 0 if not configured, meaning no limit.
+     */
+    private long maxFileBytes;
+
+    /**
+     * Optional, time in milliseconds a Java file may take to parse and resolve
+     * before its endpoints and method calls are dropped and only its declarations
+     * are kept. The limit is checked before each method, annotation and method call
+     * of the file is extracted, nothing is interrupted: parsing the file's syntax and
+     * a single type solver call always run to completion and may overrun it, so it
+     * does not bound the time of a file that hangs in either. What is extracted depends
+     * on the load of the machine, so results with files past the limit are not cached.
+     * 0 if not configured, meaning no limit.
+     */
+    private long maxParseMillis;
+
+    /**
+     * Name of the directory under the clone path whose files are read, this is
+     * the repository clone itself unless the config is a view of a work tree.
+     * Not part of the configuration file.
+     */
+    private final transient String workTreeName;
+
 
     public Config(String systemName, String repositoryURL, String branch) throws Exception {
         validateConfig(systemName, repositoryURL, branch);
@@ -41,6 +95,23 @@ public class Config {
         this.systemName = systemName;
         this.repositoryURL = repositoryURL;
         this.branch = branch;
+        this.workTreeName = null;
+    }
+
+    /**
+     * Copy an already validated config as a view of another work tree
+     */
+    private Config(Config config, String workTreeName) {
+        this.systemName = config.systemName;
+        this.repositoryURL = config.repositoryURL;
+        this.branch = config.branch;
+        this.ignoreImportOrder = config.ignoreImportOrder;
+        this.includes = config.includes;
+        this.excludes = config.excludes;
+        this.respectGitignore = config.respectGitignore;
+        this.maxFileBytes = config.maxFileBytes;
+        this.maxParseMillis = config.maxParseMillis;
+        this.workTreeName = workTreeName;
     }
 
     /**
@@ -85,4 +156,25 @@ public class Config {
         return repositoryURL.substring(lastSlashIndex + 1, lastDotIndex);
     }
 
+    /**
+     * This method gets the name of the directory under the clone path that
+     * files are read from, see {@link edu.university.ecs.lab.common.utils.FileUtils#getRepositoryPath(String)}
+     *
+     * @return the work tree directory name, the repository name by default
+     */
+    public String getWorkTreeName() {
+        return workTreeName == null ? getRepoName() : workTreeName;
+    }
+
+    /**
+     * This method returns a copy of this config that reads files from another
+     * work tree of the same repository
+     *
+     * @param workTreeName the name of the work tree directory under the clone path
+     * @return the config view of the work tree
+     */
+    public Config forWorkTree(String workTreeName) {
+        return new Config(this, workTreeName);
+    }
+
 }
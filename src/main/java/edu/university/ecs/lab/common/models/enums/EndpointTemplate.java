@@ -2,12 +2,15 @@ package edu.university.ecs.lab.common.models.enums;
 
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.*;
+import edu.university.ecs.lab.common.models.ir.UrlTemplate;
+import edu.university.ecs.lab.common.utils.TypeIndex;
 import edu.university.ecs.lab.intermediate.utils.StringParserUtils;
 import lombok.Getter;
 
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -18,11 +21,11 @@ public class EndpointTemplate {
     public static final List<String> ENDPOINT_ANNOTATIONS = Arrays.asList("RequestMapping", "GetMapping", "PutMapping", "PostMapping", "DeleteMapping", "PatchMapping");
     private final HttpMethod httpMethod;
     private final String name;
-    private final String url;
+    private final UrlTemplate url;
 
 
 
-    public EndpointTemplate(AnnotationExpr requestMapping, AnnotationExpr endpointMapping) {
+    public EndpointTemplate(AnnotationExpr requestMapping, AnnotationExpr endpointMapping, TypeIndex typeIndex) {
         HttpMethod finalHttpMethod = HttpMethod.ALL;
 
         String preUrl = "";
@@ -31,11 +34,11 @@ public class EndpointTemplate {
                 NormalAnnotationExpr nae = (NormalAnnotationExpr) requestMapping;
                 for (MemberValuePair pair : nae.getPairs()) {
                     if (pair.getNameAsString().equals("value")) {
-                        preUrl = pair.getValue().toString().replaceAll("\"", "");
+                        preUrl = parseURL(pair.getValue(), typeIndex);
                     }
                 }
             } else if (requestMapping instanceof SingleMemberAnnotationExpr) {
-                preUrl = requestMapping.asSingleMemberAnnotationExpr().getMemberValue().toString().replaceAll("\"", "");
+                preUrl = parseURL(requestMapping.asSingleMemberAnnotationExpr().getMemberValue(), typeIndex);
             }
         }
 
@@ -47,11 +50,11 @@ public class EndpointTemplate {
                     String methodValue = pair.getValue().toString();
                     finalHttpMethod = httpFromMapping(methodValue);
                 } else if(pair.getNameAsString().equals("path") || pair.getNameAsString().equals("value")) {
-                    url = pair.getValue().toString().replaceAll("\"", "");
+                    url = parseURL(pair.getValue(), typeIndex);
                 }
             }
         } else if (endpointMapping instanceof SingleMemberAnnotationExpr) {
-            url = endpointMapping.asSingleMemberAnnotationExpr().getMemberValue().toString().replaceAll("\"", "");
+            url = parseURL(endpointMapping.asSingleMemberAnnotationExpr().getMemberValue(), typeIndex);
         } else if(endpointMapping instanceof MarkerAnnotationExpr) {
             if(preUrl.isEmpty()) {
                 url = "/";
@@ -79,7 +82,7 @@ public class EndpointTemplate {
         }
 
         // Replace any double slashes
-        finalURL = finalURL.replaceAll("//", "/");
+        finalURL = finalURL.replace("//", "/");
         // If it ends with a slash remove it
         finalURL = finalURL.endsWith("/") && !finalURL.equals("/") ? finalURL.substring(0, finalURL.length() - 1) : finalURL;
 
@@ -88,10 +91,22 @@ public class EndpointTemplate {
 
         this.httpMethod = finalHttpMethod;
         this.name = endpointMapping.getNameAsString();
-        this.url = simplifyEndpointURL(finalURL);
+        this.url = UrlTemplate.of(finalURL);
     }
 
 
+    /**
+     * Method to get the url of a mapping annotation value, looking up constants in the index
+     *
+     * @param value the value of the annotation
+     * @param typeIndex index holding the constants of the microservice, may be null
+     * @return the url, the value without quotes if it isn't a constant expression
+     */
+    private static String parseURL(Expression value, TypeIndex typeIndex) {
+        String constant = Objects.isNull(typeIndex) ? null : typeIndex.getConstantValue(value);
+        return Objects.nonNull(constant) ? constant : value.toString().replace("\"", "");
+    }
+
     /**
      * Method to get http method from mapping
      * 
@@ -156,7 +171,7 @@ public class EndpointTemplate {
      * @return the simplified endpoint URL
      */
     public static String simplifyEndpointURL(String url) {
-        return url.replaceAll("\\{[^{}]*\\}", "{?}");
+        return UrlTemplate.simplify(url);
     }
 
 
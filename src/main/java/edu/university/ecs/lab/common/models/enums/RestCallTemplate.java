@@ -6,10 +6,14 @@ import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.*;
 import edu.university.ecs.lab.common.models.ir.MethodCall;
+import edu.university.ecs.lab.common.models.ir.UrlTemplate;
+import edu.university.ecs.lab.common.utils.TypeIndex;
 import edu.university.ecs.lab.intermediate.utils.StringParserUtils;
 import javassist.expr.Expr;
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,16 +28,26 @@ public class RestCallTemplate {
     public static final Set<String> REST_OBJECTS = Set.of("RestTemplate", "OAuth2RestOperations", "OAuth2RestTemplate", "WebClient");
     public static final Set<String> REST_METHODS = Set.of("getForObject", "postForObject", "patchForObject", "put", "delete", "exchange", "get", "post", "options", "patch");
     private static final String UNKNOWN_VALUE = "{?}";
+    // Matches the first instance of "/.*"
+    private static final Pattern URL_PATTERN = Pattern.compile("\".*(/.+?)\"");
+    private static final Pattern FORMAT_SPECIFIER_PATTERN = Pattern.compile("%[sdif]");
 
-    private final String url;
+    private final UrlTemplate url;
     private final HttpMethod httpMethod;
     private final CompilationUnit cu;
     private final MethodCallExpr mce;
 
-    public RestCallTemplate(MethodCallExpr mce, MethodCall mc, CompilationUnit cu) {
+    /**
+     * Index holding the constants of the microservice, null if there is none
+     */
+    @Getter(AccessLevel.NONE)
+    private final TypeIndex typeIndex;
+
+    public RestCallTemplate(MethodCallExpr mce, MethodCall mc, CompilationUnit cu, TypeIndex typeIndex) {
         this.cu = cu;
         this.mce = mce;
-        this.url = simplifyEndpointURL(preParseURL(mce, mc));
+        this.typeIndex = typeIndex;
+        this.url = UrlTemplate.of(preParseURL(mce, mc));
         this.httpMethod = getHttpFromName(mce);
     }
 
@@ -93,6 +107,12 @@ public class RestCallTemplate {
      * @return the URL found
      */
     private String parseURL(Expression exp) {
+        // Literals and constants, possibly concatenated or formatted, are looked up in the index
+        String constant = Objects.isNull(typeIndex) ? null : typeIndex.getConstantValue(exp);
+        if (constant != null) {
+            return constant;
+        }
+
         if (exp.isStringLiteralExpr()) {
             return exp.asStringLiteralExpr().asString();
         } else if (exp.isFieldAccessExpr()) {
@@ -106,7 +126,8 @@ public class RestCallTemplate {
         // Base case, if we are a method call or a u
         } else if(exp.isMethodCallExpr()) {
             // Here we may try to find a modified url in a method call expr
-            return backupParseURL(exp).isEmpty() ? UNKNOWN_VALUE : backupParseURL(exp);
+            String url = backupParseURL(exp);
+            return url.isEmpty() ? UNKNOWN_VALUE : url;
         } else if(exp.isNameExpr()) {
             // Special case
             if(exp.asNameExpr().getNameAsString().contains("uri") || exp.asNameExpr().getNameAsString().contains("url")) {
@@ -126,14 +147,8 @@ public class RestCallTemplate {
      * @return the URL found
      */
     private String backupParseURL(Expression exp) {
-        // Regular expression to match the first instance of "/.*"
-        String regex = "\".*(/.+?)\"";
-
-        // Compile the pattern
-        Pattern pattern = Pattern.compile(regex);
-
         // Create a matcher for the input string
-        Matcher matcher = pattern.matcher(exp.toString());
+        Matcher matcher = URL_PATTERN.matcher(exp.toString());
 
         // Find the first match
         if (matcher.find()) {
@@ -141,7 +156,7 @@ public class RestCallTemplate {
             String extracted = matcher.group(0).replace("\"", "");  // Group 1 corresponds to the part in parentheses (captured group)
 
             // Replace string formatters if they are present
-            extracted = extracted.replaceAll("%[sdif]", UNKNOWN_VALUE);
+            extracted = FORMAT_SPECIFIER_PATTERN.matcher(extracted).replaceAll(UNKNOWN_VALUE);
 
             return cleanURL(extracted);
         }
@@ -179,12 +194,17 @@ public class RestCallTemplate {
         return str;
     }
 
+    /**
+     * Find the initializer of a field that isn't a constant, see {@link TypeIndex#getConstantValue(Expression)}
+     *
+     * @param fieldName the name of the field
+     * @return the initializer without its outer quotes, empty if not found
+     */
     private String parseFieldValue(String fieldName) {
         for (FieldDeclaration fd : cu.findAll(FieldDeclaration.class)) {
-            if (fd.getVariables().toString().contains(fieldName)) {
-                Expression init = fd.getVariable(0).getInitializer().orElse(null);
-                if (init != null) {
-                    return StringParserUtils.removeOuterQuotations(init.toString());
+            for (VariableDeclarator variable : fd.getVariables()) {
+                if (variable.getNameAsString().equals(fieldName) && variable.getInitializer().isPresent()) {
+                    return StringParserUtils.removeOuterQuotations(variable.getInitializer().get().toString());
                 }
             }
         }
@@ -216,6 +236,6 @@ public class RestCallTemplate {
      * @return the simplified endpoint URL
      */
     public static String simplifyEndpointURL(String url) {
-        return url.replaceAll("\\{[^{}]*\\}", "{?}");
+        return UrlTemplate.simplify(url);
     }
 }
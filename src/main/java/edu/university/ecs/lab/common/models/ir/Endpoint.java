@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.List;
 
@@ -23,7 +24,7 @@ public class Endpoint extends Method {
      * The URL of the endpoint e.g. /api/v1/users/login, May have parameters like {param}
      * which are converted to {?}
      */
-    private String url;
+    private UrlTemplate urlTemplate;
 
     /**
      * The HTTP method of the endpoint, e.g. GET, POST, etc.
@@ -38,11 +39,23 @@ public class Endpoint extends Method {
     }
 
     public Endpoint(Method method, String url, HttpMethod httpMethod) {
+        this(method, UrlTemplate.of(url), httpMethod);
+    }
+
+    public Endpoint(Method method, UrlTemplate urlTemplate, HttpMethod httpMethod) {
         super(method.name, method.packageAndClassName, method.parameters, method.returnType, method.annotations, method.microserviceName, method.className);
-        this.url = url;
+        this.urlTemplate = urlTemplate;
         this.httpMethod = httpMethod;
     }
 
+    public String getUrl() {
+        return Objects.isNull(urlTemplate) ? null : urlTemplate.getUrl();
+    }
+
+    public void setUrl(String url) {
+        this.urlTemplate = UrlTemplate.of(url);
+    }
+
     /**
      * see {@link JsonSerializable#toJsonObject()}
      */
@@ -50,7 +63,7 @@ public class Endpoint extends Method {
     public JsonObject toJsonObject() {
         JsonObject jsonObject = super.toJsonObject();
 
-        jsonObject.addProperty("url", url);
+        jsonObject.addProperty("url", getUrl());
         jsonObject.addProperty("httpMethod", httpMethod.name());
 
         return jsonObject;
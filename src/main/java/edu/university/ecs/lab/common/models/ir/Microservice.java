@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
 import edu.university.ecs.lab.common.utils.FileUtils;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -66,6 +67,16 @@ public class Microservice implements JsonSerializable {
      */
     private final Set<ConfigFile> files;
 
+    /**
+     * The id of the git tree of the microservice folder at the commit it was
+     * extracted at, null if unknown or if the microservice changed since. It is
+     * followed by a digest of the files outside of the folder that decide its
+     * extraction if there are any, e.g. the .gitignore files above it and the
+     * Java files outside of every microservice the type solver may resolve.
+     */
+    @EqualsAndHashCode.Exclude
+    private String treeId;
+
     public Microservice(String name, String path) {
         this.name = name;
         this.path = path;
@@ -93,11 +104,22 @@ public class Microservice implements JsonSerializable {
         jsonObject.add("services", JsonSerializable.toJsonArray(services));
         jsonObject.add("repositories", JsonSerializable.toJsonArray(repositories));
         jsonObject.add("files", JsonSerializable.toJsonArray(files));
+        jsonObject.addProperty("treeId", treeId);
 
         return jsonObject;
     }
 
 
+    /**
+     * This method creates a deep copy of the microservice by round-tripping it
+     * through its JSON representation, so the copy can be modified freely
+     *
+     * @return a new, independent Microservice instance
+     */
+    public Microservice copy() {
+        return JsonReadWriteUtils.registerDeserializers().fromJson(toJsonObject(), Microservice.class);
+    }
+
     /**
      * see {@link JsonSerializable#toJsonArray(Iterable)}
      */
@@ -3,6 +3,7 @@ package edu.university.ecs.lab.common.models.ir;
 import com.google.gson.JsonObject;
 import edu.university.ecs.lab.common.models.enums.FileType;
 import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -52,6 +53,16 @@ public class MicroserviceSystem implements JsonSerializable {
         return jsonObject;
     }
 
+    /**
+     * This method creates a deep copy of the system by round-tripping it
+     * through its JSON representation, so the copy can be modified freely
+     *
+     * @return a new, independent MicroserviceSystem instance
+     */
+    public MicroserviceSystem copy() {
+        return JsonReadWriteUtils.registerDeserializers().fromJson(toJsonObject(), MicroserviceSystem.class);
+    }
+
     /**
      * Returns the microservice whose path is the start of the passed path
      *
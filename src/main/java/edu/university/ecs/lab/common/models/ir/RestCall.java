@@ -8,6 +8,7 @@ import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+import java.util.Objects;
 import java.util.Set;
 
 
@@ -23,7 +24,7 @@ public class RestCall extends MethodCall {
      * The URL of the rest call e.g. /api/v1/users/login, May have dynamic parameters
      * which are converted to {?}
      */
-    private String url;
+    private UrlTemplate urlTemplate;
 
     /**
      * The httpMethod of the api endpoint e.g. GET, POST, PUT see semantics.models.enums.httpMethod
@@ -40,19 +41,31 @@ public class RestCall extends MethodCall {
     }
 
     public RestCall(MethodCall methodCall, String url, HttpMethod httpMethod) {
+        this(methodCall, UrlTemplate.of(url), httpMethod);
+    }
+
+    public RestCall(MethodCall methodCall, UrlTemplate urlTemplate, HttpMethod httpMethod) {
         super(methodCall.name, methodCall.packageAndClassName, methodCall.objectType, methodCall.objectName, methodCall.calledFrom, methodCall.parameterContents,
                 methodCall.microserviceName, methodCall.className);
-        this.url = url;
+        this.urlTemplate = urlTemplate;
         this.httpMethod = httpMethod;
     }
 
+    public String getUrl() {
+        return Objects.isNull(urlTemplate) ? null : urlTemplate.getUrl();
+    }
+
+    public void setUrl(String url) {
+        this.urlTemplate = UrlTemplate.of(url);
+    }
+
     /**
      * see {@link JsonSerializable#toJsonObject()}
      */
     public JsonObject toJsonObject() {
         JsonObject jsonObject = super.toJsonObject();
 
-        jsonObject.addProperty("url", url);
+        jsonObject.addProperty("url", getUrl());
         jsonObject.addProperty("httpMethod", httpMethod.name());
 
         return jsonObject;
@@ -70,9 +83,7 @@ public class RestCall extends MethodCall {
             return false;
         }
 
-        int queryParamIndex = restcall.getUrl().replace("{?}", "temp").indexOf("?");
-        String baseURL = queryParamIndex == -1 ? restcall.getUrl() : restcall.getUrl().substring(0, queryParamIndex);
-        return baseURL.equals(endpoint.getUrl()) && (restcall.getHttpMethod().equals(endpoint.getHttpMethod()) || endpoint.getHttpMethod().equals(HttpMethod.ALL)) && matchQueryParams(restcall, endpoint, queryParamIndex);
+        return restcall.getUrlTemplate().matchesPath(endpoint.getUrlTemplate()) && (restcall.getHttpMethod().equals(endpoint.getHttpMethod()) || endpoint.getHttpMethod().equals(HttpMethod.ALL)) && matchQueryParams(restcall, endpoint);
     }
 
     /**
@@ -80,10 +91,9 @@ public class RestCall extends MethodCall {
      * 
      * @param restCall rest call to match
      * @param endpoint endpoint to match
-     * @param queryParamIndex string index at which query parameters start
      * @return true if parameters match, false otherwise
      */
-    private static boolean matchQueryParams(RestCall restCall, Endpoint endpoint, int queryParamIndex) {
+    private static boolean matchQueryParams(RestCall restCall, Endpoint endpoint) {
         for(Parameter parameter : endpoint.getParameters()) {
             for(Annotation annotation : parameter.getAnnotations()) {
                 if(annotation.getName().equals("RequestParam")) {
@@ -100,7 +110,7 @@ public class RestCall extends MethodCall {
                         queryParameterName = parameter.getName();
                     }
 
-                    if(!restCall.getUrl().substring(queryParamIndex + 1, restCall.getUrl().length()).contains(queryParameterName + "=")) {
+                    if(!restCall.getUrlTemplate().hasQueryParameter(queryParameterName)) {
                         return false;
                     }
                 }
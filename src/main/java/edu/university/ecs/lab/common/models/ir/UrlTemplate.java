@@ -0,0 +1,243 @@
+package edu.university.ecs.lab.common.models.ir;
+
+import lombok.Getter;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Represents the URL of an endpoint or rest call e.g. /api/v1/users/{?}?name={?}, parsed
+ * once into path segments and query parameter names. Path variables are converted to
+ * {?} when parsing. Templates are immutable and interned, so equal URLs share a single
+ * template for as long as it is in use and templates can be compared by reference.
+ */
+@Getter
+public final class UrlTemplate {
+    /**
+     * Placeholder of a path variable or dynamic value
+     */
+    public static final String WILDCARD = "{?}";
+
+    private static final String SEGMENT_SEPARATOR = "/";
+    private static final String PARAMETER_SEPARATOR = "&";
+    private static final char QUERY_SEPARATOR = '?';
+    private static final char VALUE_SEPARATOR = '=';
+    private static final char VARIABLE_START = '{';
+    private static final char VARIABLE_END = '}';
+
+    /**
+     * Templates in use keyed by their URL
+     */
+    private static final Map<String, WeakReference<UrlTemplate>> INTERNED = new WeakHashMap<>();
+
+    /**
+     * The whole URL with path variables converted to {?}
+     */
+    private final String url;
+
+    /**
+     * The URL without its query
+     */
+    private final String path;
+
+    /**
+     * The segments of the path in order, without empty segments
+     */
+    private final List<Segment> segments;
+
+    /**
+     * The names of the query parameters in order, e.g. name for ?name={?}
+     */
+    private final List<String> queryParameters;
+
+    /**
+     * The template of the path without the query, this template if there is no query
+     */
+    private final UrlTemplate pathTemplate;
+
+    private UrlTemplate(String url) {
+        this.url = url;
+
+        int queryIndex = indexOfQuery(url);
+        this.path = queryIndex < 0 ? url : url.substring(0, queryIndex);
+        this.pathTemplate = queryIndex < 0 ? this : of(path);
+
+        List<Segment> segments = new ArrayList<>();
+        for (String segment : path.split(SEGMENT_SEPARATOR)) {
+            if (!segment.isEmpty()) {
+                segments.add(new Segment(segment));
+            }
+        }
+        this.segments = Collections.unmodifiableList(segments);
+
+        List<String> queryParameters = new ArrayList<>();
+        if (queryIndex >= 0) {
+            for (String parameter : url.substring(queryIndex + 1).split(PARAMETER_SEPARATOR)) {
+                int valueIndex = parameter.indexOf(VALUE_SEPARATOR);
+                if (valueIndex > 0) {
+                    queryParameters.add(parameter.substring(0, valueIndex));
+                }
+            }
+        }
+        this.queryParameters = Collections.unmodifiableList(queryParameters);
+    }
+
+    /**
+     * This method returns the template of a URL, converting its path variables to {?}
+     *
+     * @param url the URL, may be null
+     * @return the interned template, null if the URL is null
+     */
+    public static UrlTemplate of(String url) {
+        if (Objects.isNull(url)) {
+            return null;
+        }
+
+        String simplified = simplify(url);
+        synchronized (INTERNED) {
+            WeakReference<UrlTemplate> reference = INTERNED.get(simplified);
+            UrlTemplate template = Objects.isNull(reference) ? null : reference.get();
+
+            if (Objects.isNull(template)) {
+                template = new UrlTemplate(simplified);
+                // Keyed by the template's own URL so the entry lives as long as the template
+                INTERNED.put(template.url, new WeakReference<>(template));
+            }
+
+            return template;
+        }
+    }
+
+    /**
+     * This method converts every path variable of a URL to {?}, a path variable
+     * being any text between braces that contains no braces
+     *
+     * @param url the URL
+     * @return the URL with its path variables converted
+     */
+    public static String simplify(String url) {
+        int start = url.indexOf(VARIABLE_START);
+        if (start < 0) {
+            return url;
+        }
+
+        StringBuilder simplified = new StringBuilder(url.length());
+        int copied = 0;
+        while (start >= 0) {
+            int end = start + 1;
+            while (end < url.length() && url.charAt(end) != VARIABLE_START && url.charAt(end) != VARIABLE_END) {
+                end++;
+            }
+
+            if (end < url.length() && url.charAt(end) == VARIABLE_END) {
+                simplified.append(url, copied, start).append(WILDCARD);
+                copied = end + 1;
+                start = url.indexOf(VARIABLE_START, copied);
+            } else {
+                start = end < url.length() ? end : -1;
+            }
+        }
+
+        return simplified.append(url, copied, url.length()).toString();
+    }
+
+    /**
+     * Get the index of the ? starting the query, a {?} is not a query
+     */
+    private static int indexOfQuery(String url) {
+        for (int i = url.indexOf(QUERY_SEPARATOR); i >= 0; i = url.indexOf(QUERY_SEPARATOR, i + 1)) {
+            if (!url.startsWith(WILDCARD, i - 1)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * This method checks whether the path of this template is the path of another,
+     * ignoring the query of either
+     *
+     * @param other the other template
+     * @return true if the paths are the same
+     */
+    public boolean matchesPath(UrlTemplate other) {
+        return Objects.nonNull(other) && pathTemplate == other.pathTemplate;
+    }
+
+    /**
+     * This method checks whether the query of this template sets a parameter
+     *
+     * @param name the name of the parameter
+     * @return true if the query has the parameter
+     */
+    public boolean hasQueryParameter(String name) {
+        return queryParameters.contains(name);
+    }
+
+    public boolean isEmpty() {
+        return url.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof UrlTemplate && url.equals(((UrlTemplate) o).url));
+    }
+
+    @Override
+    public int hashCode() {
+        return url.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    /**
+     * A single segment of the path of a URL
+     */
+    @Getter
+    public static final class Segment {
+        /**
+         * The text of the segment, e.g. users or {?}
+         */
+        private final String value;
+
+        /**
+         * Whether the segment is only a path variable
+         */
+        private final boolean wildcard;
+
+        /**
+         * Whether the segment has no path variable
+         */
+        private final boolean literal;
+
+        private Segment(String value) {
+            this.value = value;
+            this.wildcard = value.equals(WILDCARD);
+            this.literal = !value.contains(WILDCARD);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Segment && value.equals(((Segment) o).value));
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.config.ConfigUtil;
+import edu.university.ecs.lab.common.utils.FileUtils;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.common.utils.ParseContext;
+import edu.university.ecs.lab.common.utils.TypeIndex;
+import lombok.Getter;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds everything that can be shared between repeated IR, delta and merge
+ * calls on the same repository within one process: the configuration, an open
+ * repository, the parser and type solver state and extraction results. A session
+ * should be closed once it is no longer needed to release the repository.
+ */
+public class ExtractionSession implements AutoCloseable {
+    private static final int MAX_CLASS_FINGERPRINTS = 8192;
+    private static final int MAX_TYPE_SUMMARIES = 16384;
+    private static final String PARSE_LIMIT_REPORT_SUFFIX = "_parse_limits.json";
+
+    /**
+     * Configuration object
+     */
+    @Getter
+    private final Config config;
+
+    /**
+     * Service holding the open repository handle
+     */
+    @Getter
+    private final GitService gitService;
+
+    /**
+     * Parser and type solver state for the local working tree
+     */
+    @Getter
+    private final ParseContext parseContext;
+
+    /**
+     * Extracted systems keyed by their resolved commit ID
+     */
+    @Getter
+    private final IRCache irCache;
+
+    /**
+     * Extracted microservices keyed by their path and tree id
+     */
+    @Getter
+    private final MicroserviceCache microserviceCache = new MicroserviceCache();
+
+    /**
+     * Fingerprints of the classes parsed from Java blobs keyed by blob id, in
+     * least recently used order. See
+     * {@link edu.university.ecs.lab.delta.models.ClassPatch#fingerprint}
+     */
+    @Getter
+    private final Map<ObjectId, String> classFingerprints = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, String> eldest) {
+            return size() > MAX_CLASS_FINGERPRINTS;
+        }
+    });
+
+    /**
+     * Summaries of the types declared in Java blobs keyed by blob id, in least
+     * recently used order. See {@link TypeIndex}
+     */
+    @Getter
+    private final Map<String, List<TypeIndex.TypeSummary>> typeSummaries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<TypeIndex.TypeSummary>> eldest) {
+            return size() > MAX_TYPE_SUMMARIES;
+        }
+    });
+
+    /**
+     * Files that hit a parse limit in this session, see {@link Config#getMaxFileBytes()}
+     */
+    @Getter
+    private final ParseLimitReport parseLimitReport = new ParseLimitReport();
+
+    /**
+     * Commit the working tree was last reset to by this session
+     */
+    @Getter
+    private String currentCommit;
+
+    /**
+     * Create a session from a project configuration file
+     *
+     * @param configPath path to project configuration file
+     */
+    public ExtractionSession(String configPath) {
+        this(ConfigUtil.readConfig(configPath));
+    }
+
+    /**
+     * Create a session from an already loaded project configuration,
+     * cloning the repository if it is not present locally
+     *
+     * @param config project configuration
+     */
+    public ExtractionSession(Config config) {
+        this(config, new IRCache(config));
+    }
+
+    /**
+     * Create a session from an already loaded project configuration with
+     * a custom bounded IR cache
+     *
+     * @param config project configuration
+     * @param irCache cache of extracted systems for the repository
+     */
+    public ExtractionSession(Config config, IRCache irCache) {
+        GitService.configureWindowCache();
+        this.config = config;
+        this.gitService = new GitService(config);
+        this.parseContext = new ParseContext(config);
+        this.parseContext.setParseLimitReport(parseLimitReport);
+        this.irCache = irCache;
+    }
+
+    /**
+     * This method resets the working tree to the given commit and drops the
+     * parser state that referred to the previous tree. The reset is skipped
+     * if the session already moved the tree to that commit.
+     *
+     * @param commitID commit id to reset to
+     */
+    public void checkout(String commitID) {
+        if (Objects.isNull(commitID) || commitID.isEmpty() || commitID.equals(currentCommit)) {
+            return;
+        }
+
+        gitService.resetLocal(commitID);
+        parseContext.invalidate();
+        parseContext.setCommitID(commitID);
+        currentCommit = commitID;
+    }
+
+    /**
+     * This method leases a working tree checked out at the given commit from
+     * {@link RepositoryLeaseManager}, files hitting a parse limit in it are
+     * recorded in the report of this session
+     *
+     * @param commitID the commit to check out
+     * @return the lease, which must be closed
+     */
+    public WorkTreeLease acquire(String commitID) {
+        WorkTreeLease lease = RepositoryLeaseManager.getInstance().acquire(config, commitID);
+        lease.getParseContext().setParseLimitReport(parseLimitReport);
+        return lease;
+    }
+
+    /**
+     * Release the repository held by this session, writing the report of the
+     * files that hit a parse limit if there are any
+     */
+    @Override
+    public void close() {
+        if (!parseLimitReport.isEmpty()) {
+            String reportPath = FileUtils.getOutputPath() + FileUtils.SYS_SEPARATOR + config.getRepoName() + PARSE_LIMIT_REPORT_SUFFIX;
+            JsonReadWriteUtils.writeToJSON(reportPath, parseLimitReport.toJsonObject());
+            LoggerManager.warn(() -> parseLimitReport.getEntries().size() + " files hit a parse limit, see " + reportPath);
+        }
+
+        gitService.close();
+    }
+}
@@ -1,48 +1,131 @@
 package edu.university.ecs.lab.common.services;
 
+import com.google.gson.JsonObject;
 import edu.university.ecs.lab.common.config.Config;
 import edu.university.ecs.lab.common.config.ConfigUtil;
 import edu.university.ecs.lab.common.error.Error;
 import edu.university.ecs.lab.common.utils.FileUtils;
+import edu.university.ecs.lab.common.utils.JavaTokenUtils;
+import edu.university.ecs.lab.common.utils.NonJsonReadWriteUtils;
+import lombok.Getter;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.ignore.IgnoreNode;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * Service to perform Git opperations
  */
-public class GitService {
+public class GitService implements AutoCloseable {
     private static final int EXIT_SUCCESS = 0;
     private static final String HEAD_COMMIT = "HEAD";
+    private static final int PACKED_GIT_LIMIT = 256 * WindowCacheConfig.MB;
+    private static final int PACKED_GIT_WINDOW_SIZE = 64 * WindowCacheConfig.KB;
+    private static final int DELTA_BASE_CACHE_LIMIT = 64 * WindowCacheConfig.MB;
+    private static final int PACKED_GIT_OPEN_FILES = 256;
+    private static final int MAX_TOKEN_HASHES = 8192;
+    private static final String GLOB_SYNTAX = "glob:";
+    private static final String ANY_DIRECTORY = "**/";
+    private static final String GLOB_SUFFIX = "/**";
+    private static final String GITIGNORE_FILE = ".gitignore";
+    private static final String POM_FILE = "pom.xml";
+    private static final String GRADLE_FILE = "build.gradle";
+    private static final AtomicBoolean windowCacheConfigured = new AtomicBoolean(false);
 
     private final Config config;
+
+    /**
+     * Matchers of the configured include and exclude globs, see {@link Config#getIncludes()}.
+     * A directory is also excluded by a glob matching everything below it.
+     */
+    private final List<PathMatcher> includeMatchers;
+    private final List<PathMatcher> excludeMatchers;
+    private final List<PathMatcher> excludeDirectoryMatchers;
+
+    @Getter
     private final Repository repository;
 
+    /**
+     * Token hashes of Java blobs in least recently used order, blobs are immutable
+     * so a hash never changes. See {@link JavaTokenUtils#hash(String, boolean)}
+     */
+    private final Map<ObjectId, String> tokenHashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, String> eldest) {
+            return size() > MAX_TOKEN_HASHES;
+        }
+    });
+
     /**
      * Create a Git service object from a project configuration file
      * 
      * @param configPath path to project configuration file
      */
     public GitService(String configPath) {
-        this.config = ConfigUtil.readConfig(configPath);
+        this(ConfigUtil.readConfig(configPath));
+    }
+
+    /**
+     * Create a Git service object from an already loaded project configuration
+     *
+     * @param config project configuration
+     */
+    public GitService(Config config) {
+        this.config = config;
+        this.includeMatchers = compileGlobs(config.getIncludes());
+        this.excludeMatchers = compileGlobs(config.getExcludes());
+        this.excludeDirectoryMatchers = compileGlobs(Objects.isNull(config.getExcludes()) ? null : config.getExcludes().stream()
+                .filter(glob -> glob.endsWith(GLOB_SUFFIX))
+                .map(glob -> glob.substring(0, glob.length() - GLOB_SUFFIX.length()))
+                .collect(Collectors.toList()));
         FileUtils.makeDirs();
         cloneRemote();
         this.repository = initRepository();
     }
 
+    /**
+     * Method to enlarge JGit's process wide pack window cache. The defaults are sized
+     * for short lived commands, extraction reads the same packs over and over so a
+     * larger cache avoids re-inflating objects. Only the first call has an effect.
+     */
+    public static void configureWindowCache() {
+        if (!windowCacheConfigured.compareAndSet(false, true)) {
+            return;
+        }
+
+        WindowCacheConfig windowCacheConfig = new WindowCacheConfig();
+        windowCacheConfig.setPackedGitLimit(PACKED_GIT_LIMIT);
+        windowCacheConfig.setPackedGitWindowSize(PACKED_GIT_WINDOW_SIZE);
+        windowCacheConfig.setDeltaBaseCacheLimit(DELTA_BASE_CACHE_LIMIT);
+        windowCacheConfig.setPackedGitOpenFiles(PACKED_GIT_OPEN_FILES);
+        windowCacheConfig.install();
+    }
+
     /**
      * Method to clone a repository
      */
@@ -136,9 +219,8 @@ public class GitService {
     public List<DiffEntry> getDifferences(String commitOld, String commitNew) {
         List<DiffEntry> returnList = null;
         RevCommit oldCommit = null, newCommit = null;
-        RevWalk revWalk = new RevWalk(repository);
 
-        try {
+        try (RevWalk revWalk = new RevWalk(repository)) {
             // Parse the old and new commits
             oldCommit = revWalk.parseCommit(repository.resolve(commitOld));
             newCommit = revWalk.parseCommit(repository.resolve(commitNew));
@@ -155,18 +237,56 @@ public class GitService {
             oldTreeParser.reset(reader, oldCommit.getTree().getId());
             newTreeParser.reset(reader, newCommit.getTree().getId());
 
-            // Compute differences between the trees of the two commits
+            // Compute differences between the trees of the two commits, restricted to files we extract
             try (Git git = new Git(repository)) {
-                List<DiffEntry> rawDiffs = git.diff()
-                        .setOldTree(oldTreeParser)
-                        .setNewTree(newTreeParser)
-                        .call();
-
-                // Filter out diffs that only contain whitespace or comment changes
-                RevCommit finalOldCommit = oldCommit;
-                RevCommit finalNewCommit = newCommit;
-                returnList = rawDiffs.stream()
-                        .filter(diff -> isCodeChange(diff, repository, finalOldCommit, finalNewCommit))
+                List<DiffEntry> rawDiffs;
+                if (config.isRespectGitignore() && hasIgnoreFileChanges(oldCommit.getTree(), newCommit.getTree())) {
+                    // A file may be extracted at one commit and ignored at the other without changing,
+                    // so the files extracted from each tree are compared instead of diffing the trees
+                    rawDiffs = compareFiles(listValidFiles(oldCommit.getTree()), listValidFiles(newCommit.getTree()));
+                } else {
+                    rawDiffs = git.diff()
+                            .setOldTree(oldTreeParser)
+                            .setNewTree(newTreeParser)
+                            .setPathFilter(newFileFilter(newCommit.getTree()))
+                            .call();
+                }
+
+                // Pair up deleted and added files that were moved
+                RenameDetector renameDetector = new RenameDetector(repository);
+                renameDetector.addAll(rawDiffs);
+                List<DiffEntry> diffs = renameDetector.compute(reader, NullProgressMonitor.INSTANCE);
+
+                // Read the changed Java files without a cached hash through the shared reader,
+                // which is not thread safe
+                Map<ObjectId, String> contents = new HashMap<>();
+                Map<ObjectId, String> hashes = new ConcurrentHashMap<>();
+                Map<DiffEntry, String[]> configurationContents = new HashMap<>();
+                for (DiffEntry diff : diffs) {
+                    if (needsComparison(diff)) {
+                        readUncached(reader, diff.getOldId(), contents, hashes);
+                        readUncached(reader, diff.getNewId(), contents, hashes);
+                    } else if (isConfigurationModify(diff)) {
+                        configurationContents.put(diff, new String[]{readBlob(reader, toObjectId(diff.getOldId())), readBlob(reader, toObjectId(diff.getNewId()))});
+                    }
+                }
+
+                // Hash the contents in parallel
+                contents.entrySet().parallelStream()
+                        .forEach(entry -> hashes.put(entry.getKey(), JavaTokenUtils.hash(entry.getValue(), config.isIgnoreImportOrder())));
+                tokenHashes.putAll(hashes);
+
+                // Parse and compare the configuration files in parallel
+                Set<DiffEntry> unchangedConfigurations = configurationContents.entrySet().parallelStream()
+                        .filter(entry -> !isConfigurationChange(entry.getKey().getNewPath(), entry.getValue()[0], entry.getValue()[1]))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+
+                // Filter out diffs that only contain whitespace or comment changes, or that leave the
+                // structure of a configuration file as is
+                returnList = diffs.stream()
+                        .filter(diff -> needsComparison(diff) ? isCodeChange(hashes.get(toObjectId(diff.getOldId())), hashes.get(toObjectId(diff.getNewId())))
+                                : !unchangedConfigurations.contains(diff))
                         .collect(Collectors.toList());
             }
         } catch (Exception e) {
@@ -179,78 +299,111 @@ public class GitService {
     }
 
     /**
-     * Method to check if a commit difference was a change to the code
-     * 
+     * Method to check if the contents of a commit difference must be compared to
+     * know if it was a change to the code
+     *
      * @param diff DiffEntry object
-     * @param repository repository to check
-     * @param oldCommit old commit id
-     * @param newCommit new commit id
-     * 
-     * @return true if difference was a change to the code, false otherwise
+     * @return true if the difference is a change to a Java file, false otherwise
      */
-    private boolean isCodeChange(DiffEntry diff, Repository repository, RevCommit oldCommit, RevCommit newCommit) {
-        if((!diff.getOldPath().endsWith(".java") && !diff.getNewPath().endsWith(".java"))) {
-            return true;
+    private static boolean needsComparison(DiffEntry diff) {
+        // A moved file changes its path even if the code is the same
+        if(diff.getChangeType().equals(DiffEntry.ChangeType.RENAME) || diff.getChangeType().equals(DiffEntry.ChangeType.COPY)) {
+            return false;
         }
 
-        // Read the file contents before and after the changes
-        String oldContent = getContentFromTree(repository, oldCommit.getTree().getId(), diff.getOldPath());
-        String newContent = getContentFromTree(repository, newCommit.getTree().getId(), diff.getNewPath());
+        return diff.getOldPath().endsWith(".java") || diff.getNewPath().endsWith(".java");
+    }
 
-        // Remove comments and whitespace from both contents
-        String oldCode = stripCommentsAndWhitespace(oldContent);
-        String newCode = stripCommentsAndWhitespace(newContent);
+    /**
+     * Method to check if a commit difference is a modification of a configuration
+     * file, whose parsed structures must be compared to know if it was a change
+     *
+     * @param diff DiffEntry object
+     * @return true if the difference modifies a configuration file, false otherwise
+     */
+    private static boolean isConfigurationModify(DiffEntry diff) {
+        return diff.getChangeType().equals(DiffEntry.ChangeType.MODIFY) && FileUtils.isConfigurationFile(diff.getNewPath());
+    }
+
+    /**
+     * Method to check if a commit difference was a change to the structure of a
+     * configuration file. Key order is ignored as JsonObject equality ignores it.
+     *
+     * @param path path of the configuration file
+     * @param oldContent file content before the changes
+     * @param newContent file content after the changes
+     * @return true if the parsed structures differ or can't be parsed, false otherwise
+     */
+    private static boolean isConfigurationChange(String path, String oldContent, String newContent) {
+        String fileName = new File(path).getName();
 
+        try {
+            JsonObject oldData = NonJsonReadWriteUtils.parseConfiguration(fileName, oldContent);
+            JsonObject newData = NonJsonReadWriteUtils.parseConfiguration(fileName, newContent);
+            return Objects.isNull(oldData) || !oldData.equals(newData);
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Method to check if a commit difference was a change to the code
+     *
+     * @param oldHash token hash of the file before the changes
+     * @param newHash token hash of the file after the changes
+     *
+     * @return true if difference was a change to the code, false otherwise
+     */
+    private static boolean isCodeChange(String oldHash, String newHash) {
         // If the meaningful code is different, return true
-        return !oldCode.equals(newCode);
+        return !oldHash.equals(newHash);
     }
 
     /**
-     * Get file data from a file tree
-     * 
-     * @param repository repository to check
-     * @param treeId id of the tree to check
-     * @param filePath file to get data from
-     * @return data from the file, or an empty string if an error occurs or file is not found
+     * Read the content of a blob unless its token hash is known, putting
+     * cached hashes into the known hashes and read contents into the contents
+     *
+     * @param reader reader of the repository objects
+     * @param blobId id of the blob, the zero id for a file that doesn't exist
+     * @param contents the contents still to hash
+     * @param hashes the known token hashes
      */
-    private String getContentFromTree(Repository repository, ObjectId treeId, String filePath) {
-        try (ObjectReader reader = repository.newObjectReader();
-             TreeWalk treeWalk = new TreeWalk(repository)) {
+    private void readUncached(ObjectReader reader, AbbreviatedObjectId blobId, Map<ObjectId, String> contents, Map<ObjectId, String> hashes) {
+        ObjectId objectId = toObjectId(blobId);
+        if (contents.containsKey(objectId) || hashes.containsKey(objectId)) {
+            return;
+        }
 
-            // Add the tree to the tree walker
-            treeWalk.addTree(treeId);
-            treeWalk.setRecursive(true); // We want to search recursively
+        String hash = tokenHashes.get(objectId);
+        if (Objects.nonNull(hash)) {
+            hashes.put(objectId, hash);
+        } else {
+            contents.put(objectId, readBlob(reader, objectId));
+        }
+    }
 
-            // Walk through the tree to find the file
-            while (treeWalk.next()) {
-                String currentPath = treeWalk.getPathString();
-                if (currentPath.equals(filePath)) {
-                    // Ensure we have a blob (file) and not a tree
-                    if (treeWalk.getFileMode(0).getObjectType() == Constants.OBJ_BLOB) {
-                        // Read the file content and return it
-                        byte[] data = reader.open(treeWalk.getObjectId(0)).getBytes();
-                        return new String(data, StandardCharsets.UTF_8);
-                    }
-                }
-            }
+    /**
+     * Get file data of a blob
+     *
+     * @param reader reader of the repository objects
+     * @param blobId id of the blob, the zero id for a file that doesn't exist
+     * @return data from the file, or an empty string if an error occurs or file doesn't exist
+     */
+    private static String readBlob(ObjectReader reader, ObjectId blobId) {
+        if (ObjectId.zeroId().equals(blobId)) {
+            return "";
+        }
 
+        try {
+            return new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
         } catch (Exception e) {
             // Return an empty string in case of an error
             return "";
         }
-
-        // If the file is not found, return an empty string
-        return "";
     }
 
-    /**
-     * Remove comments and whitespace from file content
-     * 
-     * @param content string of all file content
-     * @return string of file content with whitespace and comments removed
-     */
-    private String stripCommentsAndWhitespace(String content) {
-        return content.replaceAll("(//.*|/\\*[^*]*\\*+(?:[^/*][^*]*\\*+)*/|\\s+)", "");
+    private static ObjectId toObjectId(AbbreviatedObjectId blobId) {
+        return Objects.isNull(blobId) || !blobId.isComplete() ? ObjectId.zeroId() : blobId.toObjectId();
     }
 
     /**
@@ -278,17 +431,361 @@ public class GitService {
     public String getHeadCommit() {
         String commitID = "";
 
-        try {
+        try (RevWalk walk = new RevWalk(repository)) {
             Ref head = repository.findRef(HEAD_COMMIT);
-            RevWalk walk = new RevWalk(repository);
             ObjectId commitId = head.getObjectId();
             RevCommit commit = walk.parseCommit(commitId);
             commitID = commit.getName();
-            walk.close();
         } catch (Exception e) {
             Error.reportAndExit(Error.GIT_FAILED, Optional.of(e));
         }
 
         return commitID;
     }
+
+    /**
+     * Resolve a commit id, abbreviated id, tag or branch to a full commit id
+     *
+     * @param ref the reference to resolve
+     * @return the full commit id
+     */
+    public String resolveCommit(String ref) {
+        String commitID = "";
+
+        try {
+            ObjectId objectId = repository.resolve(ref + "^{commit}");
+            if (objectId == null) {
+                throw new IllegalArgumentException("Unknown commit " + ref);
+            }
+            commitID = objectId.getName();
+        } catch (Exception e) {
+            Error.reportAndExit(Error.GIT_FAILED, Optional.of(e));
+        }
+
+        return commitID;
+    }
+
+    /**
+     * Get the id of the git tree of a directory at a commit. Two commits with the
+     * same tree id for a directory have the same files in it.
+     *
+     * @param commitID the commit or ref
+     * @param path git path of the directory, the repository root if empty
+     * @return the tree id or null if the directory doesn't exist or an error occurs
+     */
+    public String getTreeId(String commitID, String path) {
+        String treePath = path.startsWith(FileUtils.GIT_SEPARATOR) ? path.substring(1) : path;
+
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevTree tree = revWalk.parseCommit(repository.resolve(commitID + "^{commit}")).getTree();
+            if (treePath.isEmpty()) {
+                return tree.getName();
+            }
+
+            try (TreeWalk treeWalk = TreeWalk.forPath(repository, treePath, tree)) {
+                if (Objects.isNull(treeWalk) || !FileMode.TREE.equals(treeWalk.getFileMode(0))) {
+                    return null;
+                }
+                return treeWalk.getObjectId(0).getName();
+            }
+        } catch (Exception e) {
+            LoggerManager.debug(() -> "No tree of " + path + " at " + commitID + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * This method lists the files valid for extraction in the tree of a commit,
+     * see {@link FileUtils#isValidFile(String)}, without reading the working tree
+     *
+     * @param commitID the commit to list the files of
+     * @return the blob ids of the files keyed by their git path, in tree order
+     */
+    public Map<String, String> getValidFilePaths(String commitID) {
+        Map<String, String> paths = new LinkedHashMap<>();
+
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevTree tree = revWalk.parseCommit(repository.resolve(commitID + "^{commit}")).getTree();
+            listValidFiles(tree).forEach((path, id) -> paths.put(FileUtils.GIT_SEPARATOR + path, id.getName()));
+        } catch (Exception e) {
+            Error.reportAndExit(Error.GIT_FAILED, Optional.of(e));
+        }
+
+        return paths;
+    }
+
+    /**
+     * This method gets the ids of the .gitignore files of the directories above a
+     * directory at a commit. They decide which files of the directory are extracted
+     * as well when they are respected, but are not part of the tree of the directory.
+     *
+     * @param commitID the commit or ref
+     * @param path git path of the directory
+     * @return the ids in order from the repository root, empty if .gitignore files are not respected
+     */
+    public List<String> getParentIgnoreFileIds(String commitID, String path) {
+        List<String> ids = new ArrayList<>();
+        if (!config.isRespectGitignore()) {
+            return ids;
+        }
+
+        String treePath = path.startsWith(FileUtils.GIT_SEPARATOR) ? path.substring(1) : path;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevTree tree = revWalk.parseCommit(repository.resolve(commitID + "^{commit}")).getTree();
+
+            for (int end = treePath.indexOf(FileUtils.GIT_SEPARATOR); ; end = treePath.indexOf(FileUtils.GIT_SEPARATOR, end + 1)) {
+                String directory = end < 0 ? treePath : treePath.substring(0, end);
+                String parent = directory.contains(FileUtils.GIT_SEPARATOR) ? directory.substring(0, directory.lastIndexOf(FileUtils.GIT_SEPARATOR)) : "";
+                String ignorePath = parent.isEmpty() ? GITIGNORE_FILE : parent + FileUtils.GIT_SEPARATOR + GITIGNORE_FILE;
+
+                try (TreeWalk treeWalk = TreeWalk.forPath(repository, ignorePath, tree)) {
+                    ids.add(Objects.isNull(treeWalk) ? ObjectId.zeroId().getName() : treeWalk.getObjectId(0).getName());
+                }
+
+                if (end < 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Error.reportAndExit(Error.GIT_FAILED, Optional.of(e));
+        }
+
+        return ids;
+    }
+
+    /**
+     * List the files valid for extraction in a tree
+     *
+     * @param tree the tree to list
+     * @return the blob ids of the files keyed by their path in the tree, in tree order
+     */
+    private Map<String, ObjectId> listValidFiles(RevTree tree) throws IOException {
+        Map<String, ObjectId> files = new LinkedHashMap<>();
+
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(tree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(newFileFilter(tree));
+
+            while (treeWalk.next()) {
+                // Skip symbolic links and submodules
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE) {
+                    files.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Check if any .gitignore file differs between two trees
+     */
+    private boolean hasIgnoreFileChanges(RevTree oldTree, RevTree newTree) throws IOException {
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(oldTree);
+            treeWalk.addTree(newTree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(GITIGNORE_FILE), TreeFilter.ANY_DIFF));
+
+            while (treeWalk.next()) {
+                if (treeWalk.getNameString().equals(GITIGNORE_FILE)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Compare the files extracted from two trees, a file extracted from only one
+     * of them is added or deleted even if its contents are the same in both
+     *
+     * @param oldFiles the blob ids of the files of the old tree keyed by path
+     * @param newFiles the blob ids of the files of the new tree keyed by path
+     * @return the differences in the order of the paths
+     */
+    private static List<DiffEntry> compareFiles(Map<String, ObjectId> oldFiles, Map<String, ObjectId> newFiles) {
+        Set<String> paths = new TreeSet<>(oldFiles.keySet());
+        paths.addAll(newFiles.keySet());
+
+        List<DiffEntry> diffs = new ArrayList<>();
+        for (String path : paths) {
+            ObjectId oldId = oldFiles.get(path);
+            ObjectId newId = newFiles.get(path);
+
+            if (Objects.isNull(oldId)) {
+                diffs.add(new FileDiffEntry(DiffEntry.ChangeType.ADD, path, null, newId));
+            } else if (Objects.isNull(newId)) {
+                diffs.add(new FileDiffEntry(DiffEntry.ChangeType.DELETE, path, oldId, null));
+            } else if (!oldId.equals(newId)) {
+                diffs.add(new FileDiffEntry(DiffEntry.ChangeType.MODIFY, path, oldId, newId));
+            }
+        }
+
+        return diffs;
+    }
+
+    /**
+     * Create a filter for the files to extract
+     *
+     * @param tree the tree to read .gitignore files from if they are respected
+     * @return the tree filter
+     */
+    private TreeFilter newFileFilter(RevTree tree) {
+        return new ExtractionFileFilter(config.isRespectGitignore() ? tree : null);
+    }
+
+    /**
+     * Release the repository handle held by this service
+     */
+    @Override
+    public void close() {
+        repository.close();
+    }
+
+    /**
+     * Compile the configured globs into path matchers, a glob starting with
+     * a double asterisk and a separator also matches at the repository root
+     *
+     * @param globs the configured globs, may be null
+     * @return the path matchers
+     */
+    private static List<PathMatcher> compileGlobs(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if (Objects.isNull(globs)) {
+            return matchers;
+        }
+
+        for (String glob : globs) {
+            matchers.add(FileSystems.getDefault().getPathMatcher(GLOB_SYNTAX + glob));
+            if (glob.startsWith(ANY_DIRECTORY)) {
+                matchers.add(FileSystems.getDefault().getPathMatcher(GLOB_SYNTAX + glob.substring(ANY_DIRECTORY.length())));
+            }
+        }
+
+        return matchers;
+    }
+
+    private static boolean isBuildFile(String path) {
+        return path.endsWith(POM_FILE) || path.endsWith(GRADLE_FILE);
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Difference of a regular file between two lists of files, see {@link #compareFiles(Map, Map)}
+     */
+    private static class FileDiffEntry extends DiffEntry {
+        private FileDiffEntry(ChangeType changeType, String path, ObjectId oldId, ObjectId newId) {
+            this.changeType = changeType;
+            this.oldPath = Objects.isNull(oldId) ? DEV_NULL : path;
+            this.newPath = Objects.isNull(newId) ? DEV_NULL : path;
+            this.oldMode = Objects.isNull(oldId) ? FileMode.MISSING : FileMode.REGULAR_FILE;
+            this.newMode = Objects.isNull(newId) ? FileMode.MISSING : FileMode.REGULAR_FILE;
+            this.oldId = AbbreviatedObjectId.fromObjectId(Objects.isNull(oldId) ? ObjectId.zeroId() : oldId);
+            this.newId = AbbreviatedObjectId.fromObjectId(Objects.isNull(newId) ? ObjectId.zeroId() : newId);
+        }
+    }
+
+    /**
+     * Tree filter accepting the files that are valid for extraction, see
+     * {@link FileUtils#isValidFile(String)}, and selected by the configured
+     * globs and optionally the .gitignore files of a tree. Excluded directories
+     * are pruned, so nothing below them is listed or diffed.
+     */
+    private class ExtractionFileFilter extends TreeFilter {
+        /**
+         * The tree to read .gitignore files from, null if they are not respected
+         */
+        private final RevTree ignoreTree;
+
+        /**
+         * The parsed .gitignore file of each directory visited so far
+         */
+        private final Map<String, IgnoreNode> ignoreNodes = new HashMap<>();
+
+        private ExtractionFileFilter(RevTree ignoreTree) {
+            this.ignoreTree = ignoreTree;
+        }
+
+        @Override
+        public boolean include(TreeWalk walker) throws IOException {
+            String pathString = walker.getPathString();
+            if (pathString.contains(".github")) {
+                return false;
+            }
+
+            boolean isDirectory = walker.isSubtree();
+            if (!isDirectory && !FileUtils.isValidFile(pathString)) {
+                return false;
+            }
+
+            Path path = Paths.get(pathString);
+            if (matchesAny(excludeMatchers, path) || (isDirectory && matchesAny(excludeDirectoryMatchers, path))) {
+                return false;
+            } else if (!isDirectory && !includeMatchers.isEmpty() && !isBuildFile(pathString) && !matchesAny(includeMatchers, path)) {
+                // Build files mark the microservices, so they are listed regardless of the includes
+                return false;
+            }
+
+            return Objects.isNull(ignoreTree) || !isIgnored(pathString, isDirectory);
+        }
+
+        /**
+         * Check a path against the .gitignore files of its directories, the
+         * deepest one with a matching rule decides
+         */
+        private boolean isIgnored(String path, boolean isDirectory) throws IOException {
+            for (int end = path.lastIndexOf(FileUtils.GIT_SEPARATOR); ; end = path.lastIndexOf(FileUtils.GIT_SEPARATOR, end - 1)) {
+                String directory = end < 0 ? "" : path.substring(0, end);
+                Boolean ignored = getIgnoreNode(directory).checkIgnored(path.substring(end + 1), isDirectory);
+
+                if (Objects.nonNull(ignored)) {
+                    return ignored;
+                } else if (end < 0) {
+                    return false;
+                }
+            }
+        }
+
+        private IgnoreNode getIgnoreNode(String directory) throws IOException {
+            IgnoreNode ignoreNode = ignoreNodes.get(directory);
+            if (Objects.nonNull(ignoreNode)) {
+                return ignoreNode;
+            }
+
+            ignoreNode = new IgnoreNode();
+            String ignorePath = directory.isEmpty() ? GITIGNORE_FILE : directory + FileUtils.GIT_SEPARATOR + GITIGNORE_FILE;
+            try (TreeWalk treeWalk = TreeWalk.forPath(repository, ignorePath, ignoreTree)) {
+                if (Objects.nonNull(treeWalk)) {
+                    try (InputStream inputStream = repository.open(treeWalk.getObjectId(0)).openStream()) {
+                        ignoreNode.parse(inputStream);
+                    }
+                }
+            }
+
+            ignoreNodes.put(directory, ignoreNode);
+            return ignoreNode;
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return true;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+    }
 }
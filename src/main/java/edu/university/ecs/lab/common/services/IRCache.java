@@ -0,0 +1,278 @@
+package edu.university.ecs.lab.common.services;
+
+import com.google.gson.Gson;
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.common.utils.FileUtils;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Bounded cache of extracted systems for a single repository keyed by commit ID.
+ * Entries are held in memory up to a maximum count and written to disk up to a
+ * maximum total size, so that an IR extracted by one component of a pipeline can
+ * be picked up by another one. Entries older than the maximum age are evicted from
+ * both levels. Systems are copied on the way in and out, callers may modify them.
+ */
+public class IRCache {
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(7);
+
+    /**
+     * Version of what is extracted at a commit and of the format it is written in. It must
+     * be raised whenever either changes, so that entries written before are not read.
+     */
+    public static final int FORMAT_VERSION = 1;
+    private static final String CACHE_DIRECTORY = "cache";
+    private static final String JSON_EXTENSION = ".json";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final Gson gson = JsonReadWriteUtils.registerDeserializers();
+
+    /**
+     * Directory holding the on-disk entries of this repository
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of systems held in memory
+     */
+    private final int maxEntries;
+
+    /**
+     * Maximum total size in bytes of the on-disk entries
+     */
+    private final long maxDiskBytes;
+
+    /**
+     * Maximum age of an entry on either level
+     */
+    private final Duration maxAge;
+
+    /**
+     * In-memory entries in least recently used order
+     */
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /**
+     * Create a cache for the repository of a configuration using the default bounds
+     *
+     * @param config the configuration of the repository
+     */
+    public IRCache(Config config) {
+        this(config, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_DISK_BYTES, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Create a cache for the repository of a configuration
+     *
+     * @param config the configuration of the repository
+     * @param maxEntries maximum number of systems held in memory, 0 disables the memory level
+     * @param maxDiskBytes maximum total size of the on-disk entries, 0 disables the disk level
+     * @param maxAge maximum age of an entry
+     */
+    public IRCache(Config config, int maxEntries, long maxDiskBytes, Duration maxAge) {
+        this.directory = Paths.get(FileUtils.getOutputPath(), CACHE_DIRECTORY, getDirectoryName(config));
+        this.maxEntries = maxEntries;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxAge = maxAge;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > IRCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * This method returns a copy of the system cached at a commit. The
+     * memory level is checked first, then the disk level.
+     *
+     * @param commitID the resolved commit ID
+     * @return a copy of the cached system or null if none is present
+     */
+    public synchronized MicroserviceSystem get(String commitID) {
+        if (Objects.isNull(commitID) || commitID.isEmpty()) {
+            return null;
+        }
+
+        CacheEntry entry = entries.get(commitID);
+        if (entry != null) {
+            if (!isExpired(entry.getCreated())) {
+                return entry.getMicroserviceSystem().copy();
+            }
+            entries.remove(commitID);
+        }
+
+        entry = readFromDisk(commitID);
+        if (entry == null) {
+            return null;
+        }
+
+        if (maxEntries > 0) {
+            entries.put(commitID, entry);
+        }
+
+        return entry.getMicroserviceSystem().copy();
+    }
+
+    /**
+     * This method stores a copy of a system under a commit on both levels
+     *
+     * @param commitID the resolved commit ID
+     * @param microserviceSystem the system to cache
+     */
+    public synchronized void put(String commitID, MicroserviceSystem microserviceSystem) {
+        if (Objects.isNull(commitID) || commitID.isEmpty()) {
+            return;
+        }
+
+        if (maxEntries > 0) {
+            entries.put(commitID, new CacheEntry(microserviceSystem.copy(), System.currentTimeMillis()));
+        }
+
+        writeToDisk(commitID, microserviceSystem);
+    }
+
+    /**
+     * This method drops every entry from both levels
+     */
+    public synchronized void clear() {
+        entries.clear();
+        for (File file : listDiskEntries()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Read an entry from disk, evicting it if it has expired or cannot be read
+     *
+     * @param commitID the commit of the entry
+     * @return the cached entry or null if not present
+     */
+    private CacheEntry readFromDisk(String commitID) {
+        if (maxDiskBytes <= 0) {
+            return null;
+        }
+
+        File file = getEntryFile(commitID);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        if (isExpired(file.lastModified())) {
+            file.delete();
+            return null;
+        }
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return new CacheEntry(gson.fromJson(reader, MicroserviceSystem.class), file.lastModified());
+        } catch (Exception e) {
+            LoggerManager.warn(() -> "Dropping unreadable IR cache entry " + file.getPath());
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Write an entry to disk and evict expired and oldest entries until
+     * the disk level fits its size bound again
+     *
+     * @param commitID the commit of the entry
+     * @param microserviceSystem the system to write
+     */
+    private void writeToDisk(String commitID, MicroserviceSystem microserviceSystem) {
+        if (maxDiskBytes <= 0) {
+            return;
+        }
+
+        // Written aside and moved in place, so readers never see a partial entry
+        File file = getEntryFile(commitID);
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, commitID, TEMPORARY_EXTENSION);
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                gson.toJson(microserviceSystem.toJsonObject(), writer);
+            }
+            Files.move(temporary, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LoggerManager.warn(() -> "Failed to write IR cache entry " + file.getPath());
+            if (temporary != null) {
+                temporary.toFile().delete();
+            }
+            return;
+        }
+
+        List<File> files = listDiskEntries();
+        files.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+        long totalBytes = 0;
+        for (File f : files) {
+            totalBytes += f.length();
+            if (isExpired(f.lastModified()) || totalBytes > maxDiskBytes) {
+                LoggerManager.debug(() -> "Evicted IR cache entry " + f.getPath());
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the list of entry files currently on disk
+     *
+     * @return the list of entry files
+     */
+    private List<File> listDiskEntries() {
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(JSON_EXTENSION));
+        return files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Get the name of the cache directory of a configuration. Systems are named after
+     * the configuration and configurations selecting or limiting files differently
+     * extract different systems at the same commit, so they are kept apart, as are
+     * the entries written by other versions of the extraction.
+     */
+    private static String getDirectoryName(Config config) {
+        String key = FORMAT_VERSION + "|" + config.getSystemName() + "|" + config.getIncludes() + "|" + config.getExcludes()
+                + "|" + config.isRespectGitignore() + "|" + config.getMaxFileBytes() + "|" + config.getMaxParseMillis();
+        return config.getRepoName() + "-" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the directory holding the on-disk entries
+     *
+     * @return the directory
+     */
+    Path getDirectory() {
+        return directory;
+    }
+
+    private File getEntryFile(String commitID) {
+        return directory.resolve(commitID + JSON_EXTENSION).toFile();
+    }
+
+    private boolean isExpired(long created) {
+        return System.currentTimeMillis() - created > maxAge.toMillis();
+    }
+
+    /**
+     * A system held in memory along with the time it was cached
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final MicroserviceSystem microserviceSystem;
+        private final long created;
+    }
+}
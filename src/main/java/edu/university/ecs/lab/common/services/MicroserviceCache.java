@@ -0,0 +1,100 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.common.models.ir.Microservice;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded in-memory cache of extracted microservices keyed by their path and the
+ * id of the git tree of their folder. A microservice whose folder has the same
+ * tree at another commit has the same files there, so its extracted model can be
+ * reused instead of scanning the folder again. Microservices are copied on the
+ * way in and out, callers may modify them.
+ */
+public class MicroserviceCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final String KEY_SEPARATOR = "@";
+
+    /**
+     * Maximum number of microservices held
+     */
+    private final int maxEntries;
+
+    /**
+     * Cached microservices in least recently used order
+     */
+    private final LinkedHashMap<String, Microservice> entries;
+
+    /**
+     * Create a cache using the default bound
+     */
+    public MicroserviceCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a cache
+     *
+     * @param maxEntries maximum number of microservices held, 0 disables the cache
+     */
+    public MicroserviceCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Microservice> eldest) {
+                return size() > MicroserviceCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a copy of the microservice extracted from a folder with the given tree
+     *
+     * @param path git path of the microservice folder
+     * @param treeId id of the git tree of the folder
+     * @return a copy of the cached microservice or null if there is none
+     */
+    public Microservice get(String path, String treeId) {
+        Microservice microservice;
+
+        synchronized (entries) {
+            microservice = entries.get(key(path, treeId));
+        }
+
+        return Objects.isNull(microservice) ? null : microservice.copy();
+    }
+
+    /**
+     * Put a copy of a microservice into the cache, microservices without
+     * a tree id are ignored
+     *
+     * @param microservice the extracted microservice
+     */
+    public void put(Microservice microservice) {
+        if (Objects.isNull(microservice.getTreeId()) || maxEntries <= 0) {
+            return;
+        }
+
+        Microservice copy = microservice.copy();
+        synchronized (entries) {
+            entries.put(key(copy.getPath(), copy.getTreeId()), copy);
+        }
+    }
+
+    /**
+     * Put copies of the microservices of a previously extracted system
+     * that still have their tree id into the cache
+     *
+     * @param microserviceSystem the previously extracted system
+     */
+    public void putAll(MicroserviceSystem microserviceSystem) {
+        microserviceSystem.getMicroservices().forEach(this::put);
+    }
+
+    private static String key(String path, String treeId) {
+        return path + KEY_SEPARATOR + treeId;
+    }
+}
@@ -0,0 +1,111 @@
+package edu.university.ecs.lab.common.services;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thread safe record of the files that hit a parse limit during a run, see
+ * {@link edu.university.ecs.lab.common.config.Config#getMaxFileBytes()} and
+ * {@link edu.university.ecs.lab.common.config.Config#getMaxParseMillis()}
+ */
+public class ParseLimitReport implements JsonSerializable {
+
+    /**
+     * The limits a file can hit and the fallback taken for each
+     */
+    public enum Limit {
+        /**
+         * The file was too large and was skipped
+         */
+        FILE_SIZE,
+
+        /**
+         * The file took too long and only its declarations were kept
+         */
+        PARSE_TIME
+    }
+
+    /**
+     * The files that hit a limit in the order they hit it
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * This method records a file that hit a limit
+     *
+     * @param commitID the commit the file was parsed at
+     * @param path the path of the file
+     * @param limit the limit hit
+     * @param value the size in bytes or the time in milliseconds of the file
+     */
+    public void add(String commitID, String path, Limit limit, long value) {
+        Entry entry = new Entry(commitID, path, limit, value);
+
+        synchronized (entries) {
+            entries.add(entry);
+        }
+
+        LoggerManager.warn(() -> "File " + path + " at " + commitID + " hit the " + limit + " limit at " + value + ", " +
+                (limit == Limit.FILE_SIZE ? "skipped" : "kept its declarations only"));
+    }
+
+    /**
+     * This method returns the files that hit a limit so far
+     *
+     * @return a copy of the entries of the report
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * This method checks whether any file hit a limit
+     *
+     * @return true if the report has no entries
+     */
+    public boolean isEmpty() {
+        synchronized (entries) {
+            return entries.isEmpty();
+        }
+    }
+
+    /**
+     * see {@link JsonSerializable#toJsonObject()}
+     */
+    @Override
+    public JsonObject toJsonObject() {
+        JsonArray jsonArray = new JsonArray();
+        for (Entry entry : getEntries()) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("commitID", entry.getCommitID());
+            jsonObject.addProperty("path", entry.getPath());
+            jsonObject.addProperty("limit", entry.getLimit().name());
+            jsonObject.addProperty("value", entry.getValue());
+            jsonArray.add(jsonObject);
+        }
+
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.add("files", jsonArray);
+        return jsonObject;
+    }
+
+    /**
+     * A single file that hit a limit
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String commitID;
+        private final String path;
+        private final Limit limit;
+        private final long value;
+    }
+}
@@ -0,0 +1,279 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Hands out exclusive working trees so that jobs on different commits of the
+ * same repository can run concurrently without resetting each other's files.
+ * Working trees are git worktrees of the clone under ./clone/repoName, so they
+ * all share its object store, and are pooled per repository for reuse. Pool
+ * bookkeeping and worktree creation are guarded by striped per-repository locks.
+ * Worktrees are managed by running the git executable, which must be on the PATH.
+ */
+public class RepositoryLeaseManager {
+    private static final int EXIT_SUCCESS = 0;
+    private static final int LOCK_STRIPES = 16;
+    private static final String WORK_TREE_SEPARATOR = "@";
+    private static final String GIT_FILE = ".git";
+    private static final String GIT_DIR_PREFIX = "gitdir:";
+    private static final RepositoryLeaseManager instance = new RepositoryLeaseManager(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of working trees created per repository
+     */
+    private final int maxWorkTrees;
+
+    /**
+     * Striped locks, a repository always maps to the same stripe
+     */
+    private final ReentrantLock[] locks;
+
+    /**
+     * Signalled when a working tree of a repository on the stripe is released
+     */
+    private final Condition[] released;
+
+    /**
+     * Working tree pools keyed by repository name
+     */
+    private final Map<String, WorkTreePool> pools;
+
+    /**
+     * Create a lease manager
+     *
+     * @param maxWorkTrees maximum number of working trees per repository
+     */
+    public RepositoryLeaseManager(int maxWorkTrees) {
+        this.maxWorkTrees = Math.max(1, maxWorkTrees);
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        this.released = new Condition[LOCK_STRIPES];
+        this.pools = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            released[i] = locks[i].newCondition();
+        }
+    }
+
+    /**
+     * Get the process wide lease manager, allowing one working tree per processor
+     * for each repository
+     *
+     * @return the shared lease manager
+     */
+    public static RepositoryLeaseManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * This method leases an exclusive working tree of the configured repository
+     * checked out at a commit. It blocks while every working tree of the repository
+     * is leased and the pool is at its maximum size. The repository must already
+     * be cloned, see {@link GitService#cloneRemote()}.
+     *
+     * @param config the configuration of the repository
+     * @param commitID the commit to check out in the working tree
+     * @return the lease, which must be closed to return the working tree
+     * @throws WorkTreeLeaseException if git fails to create the working tree or to check out the commit
+     */
+    public WorkTreeLease acquire(Config config, String commitID) {
+        String repoName = config.getRepoName();
+        int stripe = stripeFor(repoName);
+        String workTreeName = null;
+
+        locks[stripe].lock();
+        try {
+            WorkTreePool pool = pools.computeIfAbsent(repoName, name -> new WorkTreePool());
+            if (!pool.initialized) {
+                initializePool(repoName, pool);
+            }
+
+            while (pool.idle.isEmpty() && pool.created >= maxWorkTrees) {
+                released[stripe].awaitUninterruptibly();
+            }
+
+            if (!pool.idle.isEmpty()) {
+                workTreeName = pool.idle.pop();
+            } else {
+                // Adding a worktree writes to the shared .git directory so it stays under the lock
+                workTreeName = repoName + WORK_TREE_SEPARATOR + pool.created;
+                addWorkTree(repoName, workTreeName, commitID);
+                pool.created++;
+            }
+        } finally {
+            locks[stripe].unlock();
+        }
+
+        // The working tree is now exclusively ours, checkout outside of the lock
+        try {
+            runGit(new File(FileUtils.getRepositoryPath(workTreeName)), "checkout", "--quiet", "--force", "--detach", commitID);
+        } catch (WorkTreeLeaseException e) {
+            release(repoName, workTreeName);
+            throw e;
+        }
+
+        String finalWorkTreeName = workTreeName;
+        LoggerManager.debug(() -> "Leased " + finalWorkTreeName + " at " + commitID);
+
+        return new WorkTreeLease(this, config.forWorkTree(workTreeName), commitID);
+    }
+
+    /**
+     * Return a working tree to the pool of its repository
+     *
+     * @param repoName the name of the repository
+     * @param workTreeName the name of the working tree
+     */
+    void release(String repoName, String workTreeName) {
+        int stripe = stripeFor(repoName);
+
+        locks[stripe].lock();
+        try {
+            pools.get(repoName).idle.push(workTreeName);
+            released[stripe].signalAll();
+        } finally {
+            locks[stripe].unlock();
+        }
+
+        LoggerManager.debug(() -> "Released " + workTreeName);
+    }
+
+    /**
+     * Prune worktrees whose directories are gone and pick up the ones a
+     * previous process left behind so they are reused instead of recreated
+     *
+     * @param repoName the name of the repository
+     * @param pool the pool to initialize
+     */
+    private void initializePool(String repoName, WorkTreePool pool) {
+        runGit(new File(FileUtils.getRepositoryPath(repoName)), "worktree", "prune");
+
+        for (int i = 0; i < maxWorkTrees; i++) {
+            String workTreeName = repoName + WORK_TREE_SEPARATOR + i;
+            if (!isWorkTree(workTreeName)) {
+                break;
+            }
+            pool.idle.add(workTreeName);
+            pool.created++;
+        }
+
+        pool.initialized = true;
+    }
+
+    /**
+     * Check if a directory is a worktree still registered with its repository. The
+     * directory of a worktree outlives its registration when the clone is replaced.
+     *
+     * @param workTreeName the name of the working tree
+     * @return true if the working tree can be reused
+     */
+    private static boolean isWorkTree(String workTreeName) {
+        File gitFile = new File(FileUtils.getRepositoryPath(workTreeName), GIT_FILE);
+        if (!gitFile.isFile()) {
+            return false;
+        }
+
+        try {
+            String content = Files.readString(gitFile.toPath(), StandardCharsets.UTF_8).trim();
+            return content.startsWith(GIT_DIR_PREFIX) && new File(content.substring(GIT_DIR_PREFIX.length()).trim()).isDirectory();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Add a detached git worktree of a repository next to its clone
+     *
+     * @param repoName the name of the repository
+     * @param workTreeName the name of the new working tree
+     * @param commitID the commit to check out
+     */
+    private void addWorkTree(String repoName, String workTreeName, String commitID) {
+        File repositoryPath = new File(FileUtils.getRepositoryPath(repoName));
+        Path workTreePath = Paths.get(FileUtils.getRepositoryPath(workTreeName)).toAbsolutePath();
+
+        // A directory left behind by a worktree that is no longer registered is in the way
+        deleteRecursively(workTreePath);
+        runGit(repositoryPath, "worktree", "add", "--force", "--detach", workTreePath.toString(), commitID);
+
+        LoggerManager.info(() -> "Created working tree " + workTreeName);
+    }
+
+    /**
+     * Run a git command in a directory
+     *
+     * @param directory the directory to run in
+     * @param args the git arguments
+     * @throws WorkTreeLeaseException if git can't be run or exits unsuccessfully, with its output
+     */
+    private static void runGit(File directory, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+
+        String output;
+        int exitCode;
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(command).directory(directory);
+            processBuilder.redirectErrorStream(true);
+            Process process = processBuilder.start();
+            output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            exitCode = process.waitFor();
+        } catch (IOException e) {
+            throw new WorkTreeLeaseException("Failed to run git " + String.join(" ", args) + ", git must be on the PATH", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkTreeLeaseException("Interrupted running git " + String.join(" ", args), e);
+        }
+
+        if (exitCode != EXIT_SUCCESS) {
+            throw new WorkTreeLeaseException("git " + String.join(" ", args) + " failed in " + directory.getPath() + ": " + output);
+        }
+    }
+
+    /**
+     * Delete a directory and everything below it if it exists
+     *
+     * @param path the directory
+     * @throws WorkTreeLeaseException if the directory can't be deleted
+     */
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        } catch (IOException e) {
+            throw new WorkTreeLeaseException("Failed to delete " + path, e);
+        }
+    }
+
+    private static int stripeFor(String repoName) {
+        return Math.floorMod(repoName.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Working trees of a single repository, only accessed under its stripe lock
+     */
+    private static class WorkTreePool {
+        private final Deque<String> idle = new ArrayDeque<>();
+        private int created;
+        private boolean initialized;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.utils.FileUtils;
+import edu.university.ecs.lab.common.utils.ParseContext;
+import lombok.Getter;
+
+/**
+ * An exclusive working tree checked out at a commit, handed out by
+ * {@link RepositoryLeaseManager}. The working tree must not be used after
+ * the lease is closed.
+ */
+public class WorkTreeLease implements AutoCloseable {
+    private final RepositoryLeaseManager leaseManager;
+
+    /**
+     * Config view whose paths point into the leased working tree
+     */
+    @Getter
+    private final Config config;
+
+    /**
+     * The commit checked out in the working tree
+     */
+    @Getter
+    private final String commitID;
+
+    /**
+     * Parser state for the working tree at this commit
+     */
+    @Getter
+    private final ParseContext parseContext;
+
+    private boolean closed;
+
+    WorkTreeLease(RepositoryLeaseManager leaseManager, Config config, String commitID) {
+        this.leaseManager = leaseManager;
+        this.config = config;
+        this.commitID = commitID;
+        this.parseContext = new ParseContext(config);
+        this.parseContext.setCommitID(commitID);
+    }
+
+    /**
+     * Get the local path of the leased working tree
+     *
+     * @return the relative path of the working tree
+     */
+    public String getPath() {
+        return FileUtils.getRepositoryPath(config.getWorkTreeName());
+    }
+
+    /**
+     * Return the working tree to its pool
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        leaseManager.release(config.getRepoName(), config.getWorkTreeName());
+    }
+}
@@ -0,0 +1,17 @@
+package edu.university.ecs.lab.common.services;
+
+/**
+ * Thrown when a working tree can't be leased because git failed to create
+ * it or to check out the requested commit, see {@link RepositoryLeaseManager}
+ */
+public class WorkTreeLeaseException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public WorkTreeLeaseException(String message) {
+        super(message);
+    }
+
+    public WorkTreeLeaseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
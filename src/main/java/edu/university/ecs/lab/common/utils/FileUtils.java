@@ -2,9 +2,11 @@ package edu.university.ecs.lab.common.utils;
 
 import edu.university.ecs.lab.common.error.Error;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 
@@ -19,6 +21,8 @@ public class FileUtils {
     private static final String DEFAULT_CLONE_PATH = "clone";
     private static final String DOT = ".";
     public static final String GIT_SEPARATOR = "/";
+    private static final String SAFE_FILE_NAME = "[a-z0-9._-]+";
+    private static final int REF_DIGEST_LENGTH = 8;
 
     /**
      * Private constructor to prevent instantiation.
@@ -56,6 +60,24 @@ public class FileUtils {
         return DOT + SYS_SEPARATOR + DEFAULT_CLONE_PATH;
     }
 
+    /**
+     * This method turns a commit ID or ref into a file name part. A ref made of other than
+     * lower case letters, digits, dots, dashes and underscores has the other characters
+     * replaced and a digest of the ref appended, so that refs like feature/x and feature_x,
+     * or ones differing only in case, don't share a file even on a case insensitive file system.
+     *
+     * @param ref the commit ID or ref
+     * @return the file name part for the ref
+     */
+    public static String refToFileName(String ref) {
+        if (ref.matches(SAFE_FILE_NAME)) {
+            return ref;
+        }
+
+        String digest = UUID.nameUUIDFromBytes(ref.getBytes(StandardCharsets.UTF_8)).toString().substring(0, REF_DIGEST_LENGTH);
+        return ref.replaceAll("[^\\w.-]", "_") + "-" + digest;
+    }
+
     /**
      * This method converts a path of the form .\clone\repoName\pathToFile to the form
      * /pathToFile
@@ -17,6 +17,8 @@ public class FlowUtils {
     public static List<Flow> buildFlows(MicroserviceSystem microserviceSystem) {
         List<Flow> allFlows = new ArrayList<>();
         List<Flow> baseFlows = generateNewFlows(getAllMicroserviceControllers(microserviceSystem));
+        Map<Microservice, Map<String, List<JClass>>> servicesByType = new IdentityHashMap<>();
+        Map<Microservice, Map<String, List<JClass>>> repositoriesByType = new IdentityHashMap<>();
         Flow flowCopy1, flowCopy2, flowCopy3, flowCopy4;
 
         for(Flow flow : baseFlows) {
@@ -29,7 +31,7 @@ public class FlowUtils {
                 if (serviceField.isPresent()) {
                     flowCopy1.setControllerServiceField(serviceField.get());
 
-                    List<JClass> serviceClasses = findAllServices(flowCopy1);
+                    List<JClass> serviceClasses = findAllServices(flowCopy1, servicesByType);
                     for (JClass serviceClass : serviceClasses) {
                         flowCopy2 = flowCopy1;
                         flowCopy2.setService(serviceClass);
@@ -47,7 +49,7 @@ public class FlowUtils {
                                 if (repositoryField.isPresent()) {
                                     flowCopy3.setServiceRepositoryField(repositoryField.get());
 
-                                    List<JClass> repositoryClasses = findAllRepositorys(flowCopy3);
+                                    List<JClass> repositoryClasses = findAllRepositorys(flowCopy3, repositoriesByType);
                                     for (JClass repositoryClass : repositoryClasses) {
                                         flowCopy4 = flowCopy3;
 
@@ -175,13 +177,12 @@ public class FlowUtils {
      * Note: This is a source of approximation -- Runtime types
      *
      * @param flow the flow
+     * @param servicesByType the services of each microservice keyed by type, built lazily
      * @return the jClass affiliated with the serviceField
      */
-    private static List<JClass> findAllServices(Flow flow) {
-        return flow.getModel().getServices().stream()
-                .filter(
-                        jClass -> jClass.getImplementedTypes().contains(flow.getControllerServiceField().getType()) || jClass.getName().equals(flow.getControllerServiceField().getType()))
-                .collect(Collectors.toUnmodifiableList());
+    private static List<JClass> findAllServices(Flow flow, Map<Microservice, Map<String, List<JClass>>> servicesByType) {
+        return servicesByType.computeIfAbsent(flow.getModel(), microservice -> indexByType(microservice.getServices()))
+                .getOrDefault(flow.getControllerServiceField().getType(), List.of());
     }
 
     /**
@@ -230,13 +231,32 @@ public class FlowUtils {
      * Note: This is a source of approximation -- Runtime types
      *
      * @param flow the flow
+     * @param repositoriesByType the repositories of each microservice keyed by type, built lazily
      * @return the jClass affiliated with the repositoryField
      */
-    private static List<JClass> findAllRepositorys(Flow flow) {
-        return flow.getModel().getRepositories().stream()
-                .filter(
-                        jClass -> jClass.getImplementedTypes().contains(flow.getServiceRepositoryField().getType()) || jClass.getName().equals(flow.getServiceRepositoryField().getType()))
-                .collect(Collectors.toUnmodifiableList());
+    private static List<JClass> findAllRepositorys(Flow flow, Map<Microservice, Map<String, List<JClass>>> repositoriesByType) {
+        return repositoriesByType.computeIfAbsent(flow.getModel(), microservice -> indexByType(microservice.getRepositories()))
+                .getOrDefault(flow.getServiceRepositoryField().getType(), List.of());
+    }
+
+    /**
+     * This method indexes classes by their name and the types they implement, so a
+     * field type is matched with a single lookup instead of scanning every class
+     * for every flow. Classes keep their order under each type.
+     *
+     * @param classes the classes to index
+     * @return the classes keyed by each type they can be referred to by
+     */
+    private static Map<String, List<JClass>> indexByType(Set<JClass> classes) {
+        Map<String, List<JClass>> classesByType = new HashMap<>();
+
+        for (JClass jClass : classes) {
+            Set<String> types = new LinkedHashSet<>(jClass.getImplementedTypes());
+            types.add(jClass.getName());
+            types.forEach(type -> classesByType.computeIfAbsent(type, t -> new ArrayList<>()).add(jClass));
+        }
+
+        return classesByType;
     }
 
     /**
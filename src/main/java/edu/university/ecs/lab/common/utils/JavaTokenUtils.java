@@ -0,0 +1,157 @@
+package edu.university.ecs.lab.common.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes a hash of the tokens of Java source code in a single pass, so that
+ * two versions of a file hash the same if they only differ in comments,
+ * whitespace and optionally the order of their imports. Literals are kept as
+ * tokens, so comment markers inside of them are not treated as comments.
+ */
+public class JavaTokenUtils {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String IMPORT = "import";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private JavaTokenUtils() {}
+
+    /**
+     * This method computes the normalized token hash of Java source code
+     *
+     * @param content the source code
+     * @param ignoreImportOrder true if imports are hashed in sorted order
+     * @return the hex encoded hash of the tokens
+     */
+    public static String hash(String content, boolean ignoreImportOrder) {
+        MessageDigest digest = newDigest();
+        List<String> imports = new ArrayList<>();
+        StringBuilder importStatement = null;
+        int depth = 0;
+        int length = content.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = content.charAt(i);
+            int start = i;
+
+            // Whitespace and comments only separate tokens
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '/' && i + 1 < length && content.charAt(i + 1) == '/') {
+                while (i < length && content.charAt(i) != '\n' && content.charAt(i) != '\r') {
+                    i++;
+                }
+                continue;
+            } else if (c == '/' && i + 1 < length && content.charAt(i + 1) == '*') {
+                int end = content.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+
+            if (c == '"' && content.startsWith("\"\"\"", i)) {
+                i = skipLiteral(content, i + 3, "\"\"\"");
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(content, i + 1, String.valueOf(c));
+            } else if (Character.isJavaIdentifierPart(c)) {
+                while (i < length && Character.isJavaIdentifierPart(content.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+
+            String token = content.substring(start, i);
+
+            // Imports are only collected at the top level
+            if (ignoreImportOrder && depth == 0 && importStatement == null && token.equals(IMPORT)) {
+                importStatement = new StringBuilder();
+            }
+
+            if (importStatement != null) {
+                importStatement.append(token).append('\0');
+                if (token.equals(";")) {
+                    imports.add(importStatement.toString());
+                    importStatement = null;
+                }
+                continue;
+            }
+
+            if (token.equals("{")) {
+                depth++;
+            } else if (token.equals("}")) {
+                depth--;
+            }
+
+            update(digest, token);
+        }
+
+        // Imports are hashed after the rest of the file in sorted order
+        if (importStatement != null) {
+            imports.add(importStatement.toString());
+        }
+        Collections.sort(imports);
+        for (String statement : imports) {
+            update(digest, statement);
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Get the index after a string, character or text block literal
+     *
+     * @param content the source code
+     * @param index the index after the opening delimiter
+     * @param delimiter the closing delimiter
+     * @return the index after the closing delimiter or the length of the content
+     */
+    private static int skipLiteral(String content, int index, String delimiter) {
+        while (index < content.length()) {
+            if (content.charAt(index) == '\\') {
+                index += 2;
+            } else if (content.startsWith(delimiter, index)) {
+                return index + delimiter.length();
+            } else {
+                index++;
+            }
+        }
+
+        return content.length();
+    }
+
+    private static void update(MessageDigest digest, String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+
+        // Length prefixed so that the token boundaries are part of the hash
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(chars);
+    }
+}
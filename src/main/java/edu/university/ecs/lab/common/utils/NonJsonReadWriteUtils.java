@@ -10,10 +10,9 @@ import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -35,126 +34,161 @@ public class NonJsonReadWriteUtils {
      */
     public static ConfigFile readFromYaml(String path, Config config) {
         JsonObject data = null;
-        Yaml yaml = new Yaml(new SafeConstructor());
-        Gson gson = new Gson();
-
-        try (FileInputStream fis = new FileInputStream(path)) {
-            // Parse YAML file to Map
-            Map<String, Object> yamlMap = yaml.load(fis);
-
-            if (yamlMap == null || yamlMap.isEmpty()) {
-                // Handle empty file or empty YAML content
-                data = new JsonObject();
-            } else {
-                String jsonString = gson.toJson(yamlMap);
-                data =  JsonParser.parseString(jsonString).getAsJsonObject();
-            }
 
+        try {
+            data = parseYaml(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
         } catch (Exception e) {
             // Handle I/O errors (file not found, etc.)
             return null;
         }
 
-        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getRepoName()), new File(path).getName(), data, FileType.CONFIG);
+        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getWorkTreeName()), new File(path).getName(), data, FileType.CONFIG);
     }
 
     public static ConfigFile readFromDocker(String path, Config config) {
-        List<String> instructions = new ArrayList<>();
         JsonObject jsonObject;
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                instructions.add(line.trim());  // Add each line as an instruction
-            }
+        try {
+            jsonObject = parseDocker(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
         } catch (Exception e) {
             return null;
         }
-        jsonObject = new JsonObject();
-        JsonArray jsonArray = new JsonArray();
-        for (String instruction : instructions) {
-            jsonArray.add(instruction);
-        }
-        jsonObject.add("instructions", jsonArray);
 
-        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getRepoName()), new File(path).getName(), jsonObject, FileType.CONFIG);
+        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getWorkTreeName()), new File(path).getName(), jsonObject, FileType.CONFIG);
     }
 
     public static ConfigFile readFromPom(String path, Config config) {
-        String xmlContent = null;
         JsonObject jsonObject;
         try {
             // Read the entire file content
-            xmlContent = new String(Files.readAllBytes(Paths.get(path)));
-
-            if (xmlContent.trim().isEmpty()) {
-                jsonObject = new JsonObject();
-            } else {
-                // Convert XML to JSONObject using org.json
-                JSONObject jsonObjectOld = XML.toJSONObject(xmlContent);
-
-                // Convert JSONObject to Gson JsonObject
-                JsonElement jsonElement = JsonParser.parseString(jsonObjectOld.toString());
-                jsonObject = jsonElement.getAsJsonObject();
-            }
+            jsonObject = parsePom(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
         } catch (Exception e) {
             return null;
         }
 
 
-        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getRepoName()), new File(path).getName(), jsonObject, FileType.CONFIG);
+        return new ConfigFile(FileUtils.localPathToGitPath(path, config.getWorkTreeName()), new File(path).getName(), jsonObject, FileType.CONFIG);
     }
 
     public static ConfigFile readFromGradle(String path, Config config) {
+        JsonObject jsonObject;
+
+        try {
+            jsonObject = parseGradle(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+
+        return new ConfigFile(
+            FileUtils.localPathToGitPath(path, config.getWorkTreeName()), 
+            new File(path).getName(), 
+            jsonObject, 
+            FileType.CONFIG
+        );
+    }
+
+    /**
+     * This method parses the content of a configuration file into the structure
+     * its reader above would produce, see
+     * {@link SourceToObjectUtils#parseConfigurationFile(File, Config)}
+     *
+     * @param fileName the name of the configuration file
+     * @param content the content of the configuration file
+     * @return the file structure as json object or null if the file is not supported
+     * @throws Exception if the content can't be parsed
+     */
+    public static JsonObject parseConfiguration(String fileName, String content) throws Exception {
+        if(fileName.endsWith(".yml")) {
+            return parseYaml(content);
+        } else if(fileName.equals("DockerFile")) {
+            return parseDocker(content);
+        } else if(fileName.equals("pom.xml")) {
+            return parsePom(content);
+        } else if (fileName.equals("build.gradle")){
+            return parseGradle(content);
+        } else {
+            return null;
+        }
+    }
+
+    private static JsonObject parseYaml(String content) {
+        Yaml yaml = new Yaml(new SafeConstructor());
+        Gson gson = new Gson();
+
+        // Parse YAML content to Map
+        Map<String, Object> yamlMap = yaml.load(content);
+
+        if (yamlMap == null || yamlMap.isEmpty()) {
+            // Handle empty file or empty YAML content
+            return new JsonObject();
+        }
+
+        String jsonString = gson.toJson(yamlMap);
+        return JsonParser.parseString(jsonString).getAsJsonObject();
+    }
+
+    private static JsonObject parseDocker(String content) {
+        JsonObject jsonObject = new JsonObject();
+        JsonArray jsonArray = new JsonArray();
+
+        content.lines().forEach(line -> jsonArray.add(line.trim()));  // Add each line as an instruction
+        jsonObject.add("instructions", jsonArray);
+
+        return jsonObject;
+    }
+
+    private static JsonObject parsePom(String xmlContent) {
+        if (xmlContent.trim().isEmpty()) {
+            return new JsonObject();
+        }
+
+        // Convert XML to JSONObject using org.json
+        JSONObject jsonObjectOld = XML.toJSONObject(xmlContent);
+
+        // Convert JSONObject to Gson JsonObject
+        JsonElement jsonElement = JsonParser.parseString(jsonObjectOld.toString());
+        return jsonElement.getAsJsonObject();
+    }
+
+    private static JsonObject parseGradle(String content) {
         JsonObject jsonObject = new JsonObject();
         Stack<JsonObject> jsonStack = new Stack<>();
         jsonStack.push(jsonObject);
+        String currentKey = null;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line;
-            String currentKey = null;
+        for (String line : (Iterable<String>) content.lines()::iterator) {
+            line = line.trim();
 
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
 
-                if (line.isEmpty()) {
-                    continue;
+            if (line.endsWith("{")) {
+                String key = line.substring(0, line.length() - 1).trim();
+                JsonObject newObject = new JsonObject();
+                jsonStack.peek().add(key, newObject);
+                jsonStack.push(newObject);
+                currentKey = key;
+            } else if (line.equals("}")) {
+                jsonStack.pop();
+                currentKey = null;
+            } else if (line.contains("=")) {
+                String[] parts = line.split("=", 2);
+                if (parts.length == 2) {
+                    String key = parts[0].trim();
+                    String value = parts[1].trim().replace("'", "\"");
+                    jsonStack.peek().addProperty(key, value);
                 }
-
-                if (line.endsWith("{")) {
-                    String key = line.substring(0, line.length() - 1).trim();
-                    JsonObject newObject = new JsonObject();
-                    jsonStack.peek().add(key, newObject);
-                    jsonStack.push(newObject);
-                    currentKey = key;
-                } else if (line.equals("}")) {
-                    jsonStack.pop();
-                    currentKey = null;
-                } else if (line.contains("=")) {
-                    String[] parts = line.split("=", 2);
-                    if (parts.length == 2) {
-                        String key = parts[0].trim();
-                        String value = parts[1].trim().replace("'", "\"");
-                        jsonStack.peek().addProperty(key, value);
-                    }
-                } else {
-                    if (currentKey != null) {
-                        JsonArray array = jsonStack.peek().has(currentKey) ?
-                                jsonStack.peek().getAsJsonArray(currentKey) : new JsonArray();
-                        array.add(line);
-                        jsonStack.peek().add(currentKey, array);
-                    }
+            } else {
+                if (currentKey != null) {
+                    JsonArray array = jsonStack.peek().has(currentKey) ?
+                            jsonStack.peek().getAsJsonArray(currentKey) : new JsonArray();
+                    array.add(line);
+                    jsonStack.peek().add(currentKey, array);
                 }
             }
-        } catch (IOException e) {
-            return null;
         }
 
-        return new ConfigFile(
-            FileUtils.localPathToGitPath(path, config.getRepoName()), 
-            new File(path).getName(), 
-            jsonObject, 
-            FileType.CONFIG
-        );
+        return jsonObject;
     }
     
 }
@@ -0,0 +1,311 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.resolution.declarations.AssociableToAST;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserEnumDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.services.ParseLimitReport;
+import edu.university.ecs.lab.common.services.LoggerManager;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Holds the parser and type solver state used while parsing the source files
+ * of a single working tree. Building a type solver is expensive, so a context
+ * is meant to be reused for every file parsed at the same commit and then
+ * invalidated once the working tree changes. A context is not thread safe.
+ */
+public class ParseContext {
+    /**
+     * Language level of the sources, pinned instead of following the parser's default
+     */
+    private static final ParserConfiguration.LanguageLevel LANGUAGE_LEVEL = ParserConfiguration.LanguageLevel.JAVA_14;
+
+    /**
+     * Configuration of the repository being parsed
+     */
+    @Getter
+    private final Config config;
+
+    /**
+     * Type solver over the JDK and the repository source tree, built lazily
+     */
+    private CombinedTypeSolver typeSolver;
+
+    /**
+     * Symbol resolver backed by {@link #typeSolver}, built lazily
+     */
+    private JavaSymbolSolver symbolSolver;
+
+    /**
+     * Parser using {@link #newExtractionConfiguration()}, built lazily
+     */
+    private JavaParser javaParser;
+
+    /**
+     * Index of the types of the microservice whose files are being parsed, null if there is none
+     */
+    @Getter
+    @Setter
+    private TypeIndex typeIndex;
+
+    /**
+     * Git paths of the root directories of the microservices at the current commit
+     */
+    private Set<String> microservicePaths = Set.of();
+
+    /**
+     * Git path of the root directory of the microservice whose files are being parsed,
+     * null if there is none. Types declared in the files of the other microservices
+     * are left unsolved while it is set, see {@link MicroserviceTypeSolver}.
+     */
+    @Getter
+    @Setter
+    private String microservicePath;
+
+    /**
+     * Git path of the microservice of each source file the type solver read a type from
+     */
+    private final Map<Path, Optional<String>> sourceMicroservicePaths = new HashMap<>();
+
+    /**
+     * Report of the files that hit a parse limit, null if hits are only logged
+     */
+    @Getter
+    @Setter
+    private ParseLimitReport parseLimitReport;
+
+    /**
+     * Commit the working tree is checked out at, recorded with the files that hit a parse limit
+     */
+    @Getter
+    @Setter
+    private String commitID;
+
+    /**
+     * Git paths of the files that hit the parse time limit at the current commit. What
+     * is extracted from them depends on the load of the machine, so it must not be cached.
+     */
+    private final Set<String> parseTimeLimited = new HashSet<>();
+
+    public ParseContext(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * This method returns the type solver for the repository, creating it
+     * if it does not exist yet
+     *
+     * @return the combined reflection and source type solver
+     */
+    public CombinedTypeSolver getTypeSolver() {
+        if (typeSolver == null) {
+            typeSolver = new CombinedTypeSolver();
+            typeSolver.add(new ReflectionTypeSolver());
+            typeSolver.add(new MicroserviceTypeSolver(Paths.get(FileUtils.getRepositoryPath(config.getWorkTreeName())).toAbsolutePath().normalize()));
+        }
+
+        return typeSolver;
+    }
+
+    /**
+     * This method sets the root directories of the microservices at the current commit
+     *
+     * @param microservicePaths the git paths of the root directories
+     */
+    public void setMicroservicePaths(Collection<String> microservicePaths) {
+        this.microservicePaths = Set.copyOf(microservicePaths);
+        sourceMicroservicePaths.clear();
+    }
+
+    /**
+     * This method finds the most specific microservice containing a file
+     *
+     * @param path the git path of the file
+     * @return the git path of the root directory of the microservice, null if the file is in none
+     */
+    public String findMicroservicePath(String path) {
+        String found = null;
+
+        for (String microservicePath : microservicePaths) {
+            if ((microservicePath.isEmpty() || path.startsWith(microservicePath + FileUtils.GIT_SEPARATOR))
+                    && (found == null || microservicePath.length() > found.length())) {
+                found = microservicePath;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * This method creates the parser configuration used for extraction. Only declarations,
+     * annotations and call expressions are read, so comments are not attributed to nodes,
+     * lexical preservation and line separator detection are off and the language level
+     * is pinned. No symbol resolver is set, see {@link #attachSymbolSolver(CompilationUnit)}.
+     *
+     * @return a new parser configuration
+     */
+    public static ParserConfiguration newExtractionConfiguration() {
+        return new ParserConfiguration()
+                .setLanguageLevel(LANGUAGE_LEVEL)
+                .setAttributeComments(false)
+                .setLexicalPreservationEnabled(false)
+                .setDetectOriginalLineSeparator(false);
+    }
+
+    /**
+     * This method returns the parser for the repository, creating it
+     * if it does not exist yet
+     *
+     * @return the java parser without symbol resolution
+     */
+    public JavaParser getJavaParser() {
+        if (javaParser == null) {
+            javaParser = new JavaParser(newExtractionConfiguration());
+        }
+
+        return javaParser;
+    }
+
+    /**
+     * This method attaches the symbol resolver to a parsed file, which is only
+     * needed once something in the file has to be resolved by the type solver
+     *
+     * @param compilationUnit the parsed file
+     */
+    public void attachSymbolSolver(CompilationUnit compilationUnit) {
+        if (compilationUnit.containsData(Node.SYMBOL_RESOLVER_KEY)) {
+            return;
+        }
+
+        if (symbolSolver == null) {
+            symbolSolver = new JavaSymbolSolver(getTypeSolver());
+        }
+
+        symbolSolver.inject(compilationUnit);
+    }
+
+    /**
+     * This method records a file that hit a parse limit in the report, or only
+     * logs it if there is no report
+     *
+     * @param path the git path of the file
+     * @param limit the limit hit
+     * @param value the size in bytes or the time in milliseconds of the file
+     */
+    public void reportLimit(String path, ParseLimitReport.Limit limit, long value) {
+        if (limit == ParseLimitReport.Limit.PARSE_TIME) {
+            parseTimeLimited.add(path);
+        }
+
+        if (Objects.nonNull(parseLimitReport)) {
+            parseLimitReport.add(commitID, path, limit, value);
+        } else {
+            LoggerManager.warn(() -> "File " + path + " at " + commitID + " hit the " + limit + " limit at " + value);
+        }
+    }
+
+    /**
+     * This method checks whether a file hit the parse time limit at the current commit
+     *
+     * @param path the git path of the file
+     * @return true if only the declarations of the file were kept
+     */
+    public boolean isParseTimeLimited(String path) {
+        return parseTimeLimited.contains(path);
+    }
+
+    /**
+     * This method drops the parser and type solver state. It must be called
+     * whenever the working tree is moved to another commit since the type
+     * solver caches the source files it has already read.
+     */
+    public void invalidate() {
+        typeSolver = null;
+        symbolSolver = null;
+        parseTimeLimited.clear();
+        sourceMicroservicePaths.clear();
+    }
+
+    /**
+     * Type solver over the source files of the working tree that leaves the types
+     * declared in the files of microservices other than {@link #microservicePath}
+     * unsolved. A microservice is then extracted from its own files and the files
+     * outside of every microservice only, which is what its reuse is keyed on.
+     */
+    private class MicroserviceTypeSolver extends JavaParserTypeSolver {
+        private final Path srcDir;
+
+        MicroserviceTypeSolver(Path srcDir) {
+            super(srcDir, newExtractionConfiguration());
+            this.srcDir = srcDir;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> reference = super.tryToSolveType(name);
+
+            if (reference.isSolved() && !isVisible(reference.getCorrespondingDeclaration())) {
+                return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+            }
+
+            return reference;
+        }
+
+        /**
+         * Check whether a type declared in the working tree may be used by the microservice being parsed
+         *
+         * @param declaration the type declaration
+         * @return false if the type is declared in another microservice
+         */
+        private boolean isVisible(ResolvedReferenceTypeDeclaration declaration) {
+            if (Objects.isNull(microservicePath)) {
+                return true;
+            }
+
+            Optional<Path> file = getNode(declaration)
+                    .flatMap(Node::findCompilationUnit)
+                    .flatMap(CompilationUnit::getStorage)
+                    .map(CompilationUnit.Storage::getPath);
+            if (file.isEmpty()) {
+                return true;
+            }
+
+            Optional<String> owner = sourceMicroservicePaths.computeIfAbsent(file.get(), path -> Optional.ofNullable(
+                    findMicroservicePath(FileUtils.GIT_SEPARATOR + srcDir.relativize(path.toAbsolutePath().normalize())
+                            .toString().replace(FileUtils.SYS_SEPARATOR, FileUtils.GIT_SEPARATOR))));
+
+            return owner.isEmpty() || owner.get().equals(microservicePath);
+        }
+
+        private Optional<? extends Node> getNode(ResolvedReferenceTypeDeclaration declaration) {
+            // Enum declarations don't expose their node through toAst
+            if (declaration instanceof JavaParserEnumDeclaration) {
+                return Optional.of(((JavaParserEnumDeclaration) declaration).getWrappedNode());
+            } else if (declaration instanceof AssociableToAST) {
+                return ((AssociableToAST<?>) declaration).toAst();
+            }
+
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Table of the declared types of the fields, parameters and local variables of a
+ * single compilation unit, used to find the type of a method call scope without
+ * the symbol solver. The table only answers where the declaration a name refers
+ * to is certain: a variable declared in the enclosing method and visible at the
+ * use, or otherwise a field of the enclosing class or, given a {@link TypeIndex},
+ * a field it inherits. The index also names the types of the microservice, both
+ * declared with a qualifier or type arguments and named as the scope of a static
+ * call. The symbol solver answers everything else, and its answers
+ * for names that no enclosing method declares are memoized per class. Types are
+ * given by their simple name.
+ */
+class ScopeTypeTable {
+    private static final String VAR = "var";
+
+    /**
+     * Names of the type parameters declared anywhere in the compilation unit,
+     * a variable of such a type is left to the symbol solver
+     */
+    private final Set<String> typeParameters = new HashSet<>();
+
+    /**
+     * The variables declared in each method or constructor, built lazily
+     */
+    private final Map<CallableDeclaration<?>, Map<String, List<Declaration>>> callableDeclarations = new IdentityHashMap<>();
+
+    /**
+     * Memoized types of names not declared by the method using them, per class
+     */
+    private final Map<TypeDeclaration<?>, Map<String, String>> resolvedNames = new IdentityHashMap<>();
+
+    /**
+     * Index of the types of the microservice, null if there is none
+     */
+    private final TypeIndex typeIndex;
+
+    ScopeTypeTable(CompilationUnit compilationUnit, TypeIndex typeIndex) {
+        this.typeIndex = typeIndex;
+        compilationUnit.findAll(TypeParameter.class).forEach(typeParameter -> typeParameters.add(typeParameter.getNameAsString()));
+    }
+
+    /**
+     * This method returns the simple name of the type of a method call scope
+     *
+     * @param scope the scope of a method call
+     * @param solver the symbol solver to fall back to
+     * @return the simple type name, or the answer of the solver
+     */
+    String getType(Expression scope, Supplier<String> solver) {
+        CallableDeclaration<?> callable = scope.findAncestor(CallableDeclaration.class).orElse(null);
+        TypeDeclaration<?> type = Objects.isNull(callable) ? null : getMemberOf(callable);
+
+        // Methods of anonymous and local classes may use the variables of the methods around them
+        if (Objects.isNull(type)) {
+            return solver.get();
+        }
+
+        if (scope.isFieldAccessExpr() && scope.asFieldAccessExpr().getScope().isThisExpr()) {
+            String fieldType = getFieldType(type, scope.asFieldAccessExpr().getNameAsString());
+            return Objects.nonNull(fieldType) ? fieldType : solver.get();
+        } else if (!scope.isNameExpr()) {
+            return solver.get();
+        }
+
+        String name = scope.asNameExpr().getNameAsString();
+        List<Declaration> declarations = getDeclarations(callable, type).getOrDefault(name, List.of());
+
+        // Not declared by the method, so it means the same thing anywhere in the class
+        if (declarations.isEmpty()) {
+            String fieldType = getFieldType(type, name);
+            if (Objects.nonNull(fieldType)) {
+                return fieldType;
+            }
+
+            String staticType = getStaticType(type, name);
+            return Objects.nonNull(staticType) ? staticType
+                    : resolvedNames.computeIfAbsent(type, t -> new HashMap<>()).computeIfAbsent(name, n -> solver.get());
+        }
+
+        Declaration visible = null;
+        for (Declaration declaration : declarations) {
+            if (declaration.isVisibleAt(scope)) {
+                if (Objects.nonNull(visible)) {
+                    return solver.get();
+                }
+                visible = declaration;
+            }
+        }
+
+        // A variable declared later or in another block leaves the name to a field
+        if (Objects.isNull(visible)) {
+            return solver.get();
+        }
+
+        return Objects.nonNull(visible.type) ? visible.type : solver.get();
+    }
+
+    /**
+     * Get the class a method or constructor is a member of
+     *
+     * @return the class, null if it is anonymous or local
+     */
+    private static TypeDeclaration<?> getMemberOf(CallableDeclaration<?> callable) {
+        Node parent = callable.getParentNode().orElse(null);
+        if (!(parent instanceof TypeDeclaration)) {
+            return null;
+        }
+
+        TypeDeclaration<?> type = (TypeDeclaration<?>) parent;
+        if (type.isClassOrInterfaceDeclaration() && type.asClassOrInterfaceDeclaration().isLocalClassDeclaration()) {
+            return null;
+        }
+
+        return type;
+    }
+
+    /**
+     * Get the type of a field of a class, fields declared by the class hide inherited ones
+     *
+     * @return the simple name of the field type, null if unknown
+     */
+    private String getFieldType(TypeDeclaration<?> type, String name) {
+        for (FieldDeclaration field : type.getFields()) {
+            for (VariableDeclarator variable : field.getVariables()) {
+                if (variable.getNameAsString().equals(name)) {
+                    return simpleName(variable.getType(), type);
+                }
+            }
+        }
+
+        if (Objects.isNull(typeIndex) || type.getFullyQualifiedName().isEmpty()) {
+            return null;
+        }
+
+        return typeIndex.getInheritedFieldType(type.getFullyQualifiedName().get(), name);
+    }
+
+    /**
+     * Get the type a name refers to as the scope of a static call, a name no
+     * field of the class or the classes around it may have
+     *
+     * @return the simple name of the indexed type, null if the name isn't one
+     */
+    private String getStaticType(TypeDeclaration<?> type, String name) {
+        if (Objects.isNull(typeIndex) || type.getFullyQualifiedName().isEmpty()
+                || typeIndex.hasField(type.getFullyQualifiedName().get(), name)) {
+            return null;
+        }
+
+        return typeIndex.resolveType(type.getFullyQualifiedName().get(), name);
+    }
+
+    private Map<String, List<Declaration>> getDeclarations(CallableDeclaration<?> callable, TypeDeclaration<?> type) {
+        return callableDeclarations.computeIfAbsent(callable, c -> {
+            Map<String, List<Declaration>> declarations = new HashMap<>();
+
+            for (Parameter parameter : c.findAll(Parameter.class)) {
+                Node scope = parameter.getParentNode().orElse(c);
+                declarations.computeIfAbsent(parameter.getNameAsString(), n -> new ArrayList<>())
+                        .add(new Declaration(scope, null, simpleName(parameter.getType(), type)));
+            }
+
+            for (VariableDeclarator variable : c.findAll(VariableDeclarator.class)) {
+                Node scope = getBlockOf(variable);
+                declarations.computeIfAbsent(variable.getNameAsString(), n -> new ArrayList<>())
+                        .add(new Declaration(scope, variable, simpleName(variable.getType(), type)));
+            }
+
+            return declarations;
+        });
+    }
+
+    /**
+     * Get the node a local variable is visible in
+     */
+    private static Node getBlockOf(VariableDeclarator variable) {
+        Node node = variable;
+
+        while (node.getParentNode().isPresent()) {
+            node = node.getParentNode().get();
+            if (node instanceof BlockStmt || node instanceof ForStmt || node instanceof ForEachStmt
+                    || node instanceof TryStmt || node instanceof SwitchEntry || node instanceof CallableDeclaration
+                    || node instanceof TypeDeclaration || node instanceof ObjectCreationExpr) {
+                return node;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Get the simple name of a declared class type. Types with type arguments or a
+     * qualifier are named by the index if they are types of the microservice, and are
+     * otherwise left to the symbol solver, since an unsolved type argument or qualifier
+     * is named in place of the type when the solver fails.
+     *
+     * @param type the declared type
+     * @param context the class the type is written in
+     * @return the simple name, null for other types or types the table can't name for sure
+     */
+    private String simpleName(Type type, TypeDeclaration<?> context) {
+        if (!type.isClassOrInterfaceType()) {
+            return null;
+        }
+
+        ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+        if (classType.getTypeArguments().isPresent() || classType.getScope().isPresent()) {
+            return Objects.isNull(typeIndex) || context.getFullyQualifiedName().isEmpty() ? null
+                    : typeIndex.resolveType(context.getFullyQualifiedName().get(), classType.getNameWithScope());
+        }
+
+        String name = classType.getNameAsString();
+        return name.equals(VAR) || typeParameters.contains(name) ? null : name;
+    }
+
+    /**
+     * A parameter or local variable and where it is visible
+     */
+    private static class Declaration {
+        private final Node scope;
+        private final VariableDeclarator variable;
+        private final String type;
+
+        private Declaration(Node scope, VariableDeclarator variable, String type) {
+            this.scope = scope;
+            this.variable = variable;
+            this.type = type;
+        }
+
+        /**
+         * Check whether a use is inside the scope of the declaration and,
+         * for a local variable, after it
+         */
+        private boolean isVisibleAt(Node use) {
+            if (!scope.isAncestorOf(use)) {
+                return false;
+            } else if (Objects.isNull(variable)) {
+                return true;
+            }
+
+            return variable.getEnd().isPresent() && use.getBegin().isPresent() && variable.getEnd().get().isBefore(use.getBegin().get());
+        }
+    }
+}
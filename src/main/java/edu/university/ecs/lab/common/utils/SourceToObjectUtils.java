@@ -1,6 +1,7 @@
 package edu.university.ecs.lab.common.utils;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.PackageDeclaration;
@@ -9,13 +10,9 @@ import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import com.github.javaparser.symbolsolver.model.typesystem.ReferenceTypeImpl;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 import edu.university.ecs.lab.common.config.Config;
 import edu.university.ecs.lab.common.error.Error;
 import edu.university.ecs.lab.common.models.enums.ClassRole;
@@ -24,55 +21,70 @@ import edu.university.ecs.lab.common.models.enums.HttpMethod;
 import edu.university.ecs.lab.common.models.enums.RestCallTemplate;
 import edu.university.ecs.lab.common.models.ir.*;
 import edu.university.ecs.lab.common.services.LoggerManager;
+import edu.university.ecs.lab.common.services.ParseLimitReport;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * Static utility class for parsing a file and returning associated models from code structure.
  */
 public class SourceToObjectUtils {
-    private static CompilationUnit cu;
-    private static String microserviceName = "";
-    private static String path;
-    private static String className;
-    private static String packageName;
-    private static String packageAndClassName;
-    private static CombinedTypeSolver combinedTypeSolver;
-    private static Config config;
+    /**
+     * Values of the file currently being parsed, kept per thread so that
+     * files of different working trees can be parsed concurrently
+     */
+    private static final ThreadLocal<ParseState> state = ThreadLocal.withInitial(ParseState::new);
 
 
-    private static void generateStaticValues(File sourceFile, Config config1) {
+    private static boolean generateStaticValues(File sourceFile, ParseContext parseContext) {
+        ParseState parseState = state.get();
+
         // Parse the highest level node being compilation unit
-        config = config1;
+        parseState.config = parseContext.getConfig();
+
+        // Skip files too large to parse in reasonable time
+        long maxFileBytes = parseState.config.getMaxFileBytes();
+        if (maxFileBytes > 0 && sourceFile.length() > maxFileBytes) {
+            parseContext.reportLimit(FileUtils.localPathToGitPath(sourceFile.getPath(), parseState.config.getWorkTreeName()), ParseLimitReport.Limit.FILE_SIZE, sourceFile.length());
+            parseState.microserviceName = "";
+            return false;
+        }
+
+        long maxParseMillis = parseState.config.getMaxParseMillis();
+        parseState.deadline = maxParseMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxParseMillis) : Long.MAX_VALUE;
+        parseState.started = System.nanoTime();
         try {
-            cu = StaticJavaParser.parse(sourceFile);
+            ParseResult<CompilationUnit> parseResult = parseContext.getJavaParser().parse(sourceFile);
+            if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) {
+                throw new ParseProblemException(parseResult.getProblems());
+            }
+            parseState.cu = parseResult.getResult().get();
+            // A file parsed on its own only sees the types it declares
+            parseState.typeIndex = Objects.nonNull(parseContext.getTypeIndex()) ? parseContext.getTypeIndex()
+                    : new TypeIndex(List.of(TypeIndex.summarize(parseState.cu)));
+            parseState.scopeTypes = new ScopeTypeTable(parseState.cu, parseState.typeIndex);
         } catch (Exception e) {
             LoggerManager.warn(() -> "Failed to parse  " + sourceFile.getPath());
-            microserviceName = "";
-            return;
+            parseState.microserviceName = "";
+            return false;
 //            Error.reportAndExit(Error.JPARSE_FAILED, Optional.of(e));
         }
-        if (!cu.findAll(PackageDeclaration.class).isEmpty()) {
-            packageName = cu.findAll(PackageDeclaration.class).get(0).getNameAsString();
-            packageAndClassName = packageName + "." + sourceFile.getName().replace(".java", "");
+        if (!parseState.cu.findAll(PackageDeclaration.class).isEmpty()) {
+            parseState.packageName = parseState.cu.findAll(PackageDeclaration.class).get(0).getNameAsString();
+            parseState.packageAndClassName = parseState.packageName + "." + sourceFile.getName().replace(".java", "");
         }
-        path = FileUtils.localPathToGitPath(sourceFile.getPath(), config.getRepoName());
-
-        TypeSolver reflectionTypeSolver = new ReflectionTypeSolver();
-        TypeSolver javaParserTypeSolver = new JavaParserTypeSolver(FileUtils.getRepositoryPath(config.getRepoName()));
-
-        combinedTypeSolver = new CombinedTypeSolver();
-        combinedTypeSolver.add(reflectionTypeSolver);
-        combinedTypeSolver.add(javaParserTypeSolver);
+        parseState.path = FileUtils.localPathToGitPath(sourceFile.getPath(), parseState.config.getWorkTreeName());
 
-        JavaSymbolSolver symbolSolver = new JavaSymbolSolver(combinedTypeSolver);
-        StaticJavaParser.getConfiguration().setSymbolResolver(symbolSolver);
-        className = sourceFile.getName().replace(".java", "");
+        parseState.parseContext = parseContext;
+        parseState.combinedTypeSolver = parseContext.getTypeSolver();
+        parseState.className = sourceFile.getName().replace(".java", "");
 
+        return true;
     }
 
     /**
@@ -82,16 +94,39 @@ public class SourceToObjectUtils {
      * @return the JClass object representing the file
      */
     public static JClass parseClass(File sourceFile, Config config, String microserviceName) {
+        return parseClass(sourceFile, new ParseContext(config), microserviceName);
+    }
+
+    /**
+     * This method parses a Java class file and return a JClass object, reusing
+     * the parser and type solver held by the given context.
+     *
+     * @param sourceFile the file to parse
+     * @param parseContext the parser state of the working tree the file belongs to
+     * @param microserviceName the name of the microservice the file belongs to
+     * @return the JClass object representing the file
+     */
+    public static JClass parseClass(File sourceFile, ParseContext parseContext, String microserviceName) {
         // Guard condition
         if(Objects.isNull(sourceFile) || FileUtils.isConfigurationFile(sourceFile.getPath())) {
             LoggerManager.warn(() -> "JClass filtered  " + sourceFile.getPath() + " is config or null");
             return null;
         }
 
-        generateStaticValues(sourceFile, config);
-        if (!microserviceName.isEmpty()) {
-            SourceToObjectUtils.microserviceName = microserviceName;
+        try {
+            return parseClass(sourceFile, parseContext, microserviceName, state.get());
+        } finally {
+            // Parsing methods called outside of a file are not bounded
+            state.get().deadline = Long.MAX_VALUE;
+        }
+    }
+
+    private static JClass parseClass(File sourceFile, ParseContext parseContext, String microserviceName, ParseState parseState) {
+        if (!generateStaticValues(sourceFile, parseContext)) {
+            return null;
         }
+        // Set for every file, a file outside of a microservice must not keep the name of the previous one
+        parseState.microserviceName = microserviceName;
 
         // Calculate early to determine classrole based on annotation, filter for class based annotations only
         Set<AnnotationExpr> classAnnotations = filterClassAnnotations();
@@ -106,21 +141,27 @@ public class SourceToObjectUtils {
         }
 
         JClass jClass = null;
-        if(classRole == ClassRole.FEIGN_CLIENT) {
-            jClass = handleFeignClient(requestMapping, classAnnotations);
-        } else if(classRole == ClassRole.REP_REST_RSC) {
-            jClass = handleRepositoryRestResource(requestMapping, classAnnotations);
-        } else {
-            jClass = new JClass(
-                    className,
-                    path,
-                    packageName,
-                    classRole,
-                    parseMethods(cu.findAll(MethodDeclaration.class), requestMapping),
-                    parseFields(cu.findAll(FieldDeclaration.class)),
-                    parseAnnotations(classAnnotations),
-                    parseMethodCalls(cu.findAll(MethodDeclaration.class)),
-                    cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
+        try {
+            if (classRole == ClassRole.FEIGN_CLIENT) {
+                jClass = handleFeignClient(requestMapping, classAnnotations);
+            } else if (classRole == ClassRole.REP_REST_RSC) {
+                jClass = handleRepositoryRestResource(requestMapping, classAnnotations);
+            } else {
+                jClass = new JClass(
+                        parseState.className,
+                        parseState.path,
+                        parseState.packageName,
+                        classRole,
+                        parseMethods(parseState.cu.findAll(MethodDeclaration.class), requestMapping),
+                        parseFields(parseState.cu.findAll(FieldDeclaration.class)),
+                        parseAnnotations(classAnnotations),
+                        parseMethodCalls(parseState.cu.findAll(MethodDeclaration.class)),
+                        parseState.cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
+            }
+        } catch (ParseTimeExceededException e) {
+            // Parsing the file took too long, fall back to the declarations only
+            parseContext.reportLimit(parseState.path, ParseLimitReport.Limit.PARSE_TIME, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - parseState.started));
+            jClass = parseDeclarations(classRole, classAnnotations);
         }
 
         // Build the JClass
@@ -140,19 +181,9 @@ public class SourceToObjectUtils {
         Set<Method> methods = new HashSet<>();
 
         for (MethodDeclaration methodDeclaration : methodDeclarations) {
-            Set<edu.university.ecs.lab.common.models.ir.Parameter> parameters = new HashSet<>();
-            for (Parameter parameter : methodDeclaration.getParameters()) {
-                parameters.add(new edu.university.ecs.lab.common.models.ir.Parameter(parameter, packageAndClassName));
-            }
+            checkDeadline();
 
-            Method method = new Method(
-                    methodDeclaration.getNameAsString(),
-                    packageAndClassName,
-                    parameters,
-                    methodDeclaration.getTypeAsString(),
-                    parseAnnotations(methodDeclaration.getAnnotations()),
-                    microserviceName,
-                    className);
+            Method method = parseMethod(methodDeclaration);
 
             method = convertValidEndpoints(methodDeclaration, method, requestMapping);
 
@@ -162,6 +193,56 @@ public class SourceToObjectUtils {
         return methods;
     }
 
+    /**
+     * This method parses the declaration of a single method, without
+     * converting it to an endpoint
+     *
+     * @param methodDeclaration the methodDeclaration to be parsed
+     * @return the Method model representing the MethodDeclaration
+     */
+    private static Method parseMethod(MethodDeclaration methodDeclaration) {
+        Set<edu.university.ecs.lab.common.models.ir.Parameter> parameters = new HashSet<>();
+        for (Parameter parameter : methodDeclaration.getParameters()) {
+            parameters.add(new edu.university.ecs.lab.common.models.ir.Parameter(parameter, state.get().packageAndClassName));
+        }
+
+        return new Method(
+                methodDeclaration.getNameAsString(),
+                state.get().packageAndClassName,
+                parameters,
+                methodDeclaration.getTypeAsString(),
+                parseAnnotations(methodDeclaration.getAnnotations()),
+                state.get().microserviceName,
+                state.get().className);
+    }
+
+    /**
+     * This method builds a JClass from the declarations of the file only, leaving out
+     * endpoints and method calls. It is the fallback for a file whose parse time limit
+     * is hit, see {@link Config#getMaxParseMillis()}
+     *
+     * @param classRole the role of the class
+     * @param classAnnotations the class level annotations
+     * @return the JClass object representing the declarations of the file
+     */
+    private static JClass parseDeclarations(ClassRole classRole, Set<AnnotationExpr> classAnnotations) {
+        Set<Method> methods = new HashSet<>();
+        for (MethodDeclaration methodDeclaration : state.get().cu.findAll(MethodDeclaration.class)) {
+            methods.add(parseMethod(methodDeclaration));
+        }
+
+        return new JClass(
+                state.get().className,
+                state.get().path,
+                state.get().packageName,
+                classRole,
+                methods,
+                parseFields(state.get().cu.findAll(FieldDeclaration.class)),
+                parseAnnotations(classAnnotations),
+                new ArrayList<>(),
+                state.get().cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
+    }
+
     /**
      * This method converts a valid Method to an Endpoint
      *
@@ -172,9 +253,11 @@ public class SourceToObjectUtils {
      */
     public static Method convertValidEndpoints(MethodDeclaration methodDeclaration, Method method, AnnotationExpr requestMapping) {
         for (AnnotationExpr ae : methodDeclaration.getAnnotations()) {
+            checkDeadline();
+
             String ae_name = ae.getNameAsString();
             if (EndpointTemplate.ENDPOINT_ANNOTATIONS.contains(ae_name)) {
-                EndpointTemplate endpointTemplate = new EndpointTemplate(requestMapping, ae);
+                EndpointTemplate endpointTemplate = new EndpointTemplate(requestMapping, ae, state.get().typeIndex);
 
                 // By Spring documentation, only the first valid @Mapping annotation is considered;
                 // And getAnnotations() return them in order, so we can return immediately
@@ -199,6 +282,8 @@ public class SourceToObjectUtils {
         // loop through method calls
         for (MethodDeclaration methodDeclaration : methodDeclarations) {
             for (MethodCallExpr mce : methodDeclaration.findAll(MethodCallExpr.class)) {
+                checkDeadline();
+
                 String methodName = mce.getNameAsString();
 
                 String calledServiceName = getCallingObjectName(mce);
@@ -207,8 +292,8 @@ public class SourceToObjectUtils {
                 String parameterContents = mce.getArguments().stream().map(Objects::toString).collect(Collectors.joining(","));
 
                 if (Objects.nonNull(calledServiceName)) {
-                    MethodCall methodCall = new MethodCall(methodName, packageAndClassName, calledServiceType, calledServiceName,
-                            methodDeclaration.getNameAsString(), parameterContents, microserviceName, className);
+                    MethodCall methodCall = new MethodCall(methodName, state.get().packageAndClassName, calledServiceType, calledServiceName,
+                            methodDeclaration.getNameAsString(), parameterContents, state.get().microserviceName, state.get().className);
 
                     methodCall = convertValidRestCalls(mce, methodCall);
 
@@ -232,7 +317,7 @@ public class SourceToObjectUtils {
             return methodCall;
         }
 
-        RestCallTemplate restCallTemplate = new RestCallTemplate(methodCallExpr,methodCall, cu);
+        RestCallTemplate restCallTemplate = new RestCallTemplate(methodCallExpr,methodCall, state.get().cu, state.get().typeIndex);
 
         if (restCallTemplate.getUrl().isEmpty()) {
             return methodCall;
@@ -253,7 +338,7 @@ public class SourceToObjectUtils {
         // loop through class declarations
         for (FieldDeclaration fd : fieldDeclarations) {
             for (VariableDeclarator variable : fd.getVariables()) {
-                javaFields.add(new Field(variable.getNameAsString(), packageAndClassName, variable.getTypeAsString()));
+                javaFields.add(new Field(variable.getNameAsString(), state.get().packageAndClassName, variable.getTypeAsString()));
             }
 
         }
@@ -289,9 +374,23 @@ public class SourceToObjectUtils {
             return "";
         }
 
+        // Declared types answer most scopes without the symbol solver
+        return state.get().scopeTypes.getType(scope, () -> resolveType(scope));
+    }
+
+    /**
+     * Resolve the type of an expression with the symbol solver
+     *
+     * @param scope the expression to resolve
+     * @return the simple name of the type, the name of the unsolved symbol or empty if unknown
+     */
+    private static String resolveType(Expression scope) {
         try {
+            // Only files with something left to resolve need the symbol resolver
+            state.get().parseContext.attachSymbolSolver(state.get().cu);
+
             // Resolve the type of the object
-            var resolvedType = JavaParserFacade.get(combinedTypeSolver).getType(scope);
+            var resolvedType = JavaParserFacade.get(state.get().combinedTypeSolver).getType(scope);
             List<String> parts = List.of(((ReferenceTypeImpl) resolvedType).getQualifiedName().split("\\."));
             if(parts.isEmpty()) {
                 return "";
@@ -317,7 +416,7 @@ public class SourceToObjectUtils {
         Set<Annotation> annotations = new HashSet<>();
 
         for (AnnotationExpr ae : annotationExprs) {
-            annotations.add(new Annotation(ae, packageAndClassName));
+            annotations.add(new Annotation(ae, state.get().packageAndClassName));
         }
 
         return annotations;
@@ -374,7 +473,7 @@ public class SourceToObjectUtils {
     private static JClass handleFeignClient(AnnotationExpr requestMapping, Set<AnnotationExpr> classAnnotations) {
 
         // Parse the methods
-        Set<Method> methods = parseMethods(cu.findAll(MethodDeclaration.class), requestMapping);
+        Set<Method> methods = parseMethods(state.get().cu.findAll(MethodDeclaration.class), requestMapping);
 
         // New methods for conversion
         Set<Method> newMethods = new HashSet<>();
@@ -383,9 +482,11 @@ public class SourceToObjectUtils {
 
         // For each method that is detected as an endpoint convert into a Method + RestCall
         for(Method method : methods) {
+            checkDeadline();
+
             if(method instanceof Endpoint) {
                 Endpoint endpoint = (Endpoint) method;
-                newMethods.add(new Method(method.getName(), packageAndClassName, method.getParameters(), method.getReturnType(), method.getAnnotations(), method.getMicroserviceName(), method.getClassName()));
+                newMethods.add(new Method(method.getName(), state.get().packageAndClassName, method.getParameters(), method.getReturnType(), method.getAnnotations(), method.getMicroserviceName(), method.getClassName()));
 
                 StringBuilder queryParams = new StringBuilder();
                 for(edu.university.ecs.lab.common.models.ir.Parameter parameter : method.getParameters()) {
@@ -409,7 +510,7 @@ public class SourceToObjectUtils {
                     queryParams.replace(0, 1, "?");
                 }
 
-                newRestCalls.add(new RestCall(new MethodCall("exchange", packageAndClassName, "RestCallTemplate", "restCallTemplate", method.getName(), "", endpoint.getMicroserviceName(), endpoint.getClassName()), endpoint.getUrl() + queryParams, endpoint.getHttpMethod()));
+                newRestCalls.add(new RestCall(new MethodCall("exchange", state.get().packageAndClassName, "RestCallTemplate", "restCallTemplate", method.getName(), "", endpoint.getMicroserviceName(), endpoint.getClassName()), endpoint.getUrl() + queryParams, endpoint.getHttpMethod()));
             } else {
                 newMethods.add(method);
             }
@@ -418,15 +519,15 @@ public class SourceToObjectUtils {
 
         // Build the JClass
         return new JClass(
-                className,
-                path,
-                packageName,
+                state.get().className,
+                state.get().path,
+                state.get().packageName,
                 ClassRole.FEIGN_CLIENT,
                 newMethods,
-                parseFields(cu.findAll(FieldDeclaration.class)),
+                parseFields(state.get().cu.findAll(FieldDeclaration.class)),
                 parseAnnotations(classAnnotations),
                 newRestCalls,
-                cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
+                state.get().cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
     }
 
     public static ConfigFile parseConfigurationFile(File file, Config config) {
@@ -445,7 +546,7 @@ public class SourceToObjectUtils {
 
     private static Set<AnnotationExpr> filterClassAnnotations() {
         Set<AnnotationExpr> classAnnotations = new HashSet<>();
-        for (AnnotationExpr ae : cu.findAll(AnnotationExpr.class)) {
+        for (AnnotationExpr ae : state.get().cu.findAll(AnnotationExpr.class)) {
             if (ae.getParentNode().isPresent()) {
                 Node n = ae.getParentNode().get();
                 if (n instanceof ClassOrInterfaceDeclaration) {
@@ -468,7 +569,7 @@ public class SourceToObjectUtils {
     private static JClass handleRepositoryRestResource(AnnotationExpr requestMapping, Set<AnnotationExpr> classAnnotations) {
 
         // Parse the methods
-        Set<Method> methods = parseMethods(cu.findAll(MethodDeclaration.class), requestMapping);
+        Set<Method> methods = parseMethods(state.get().cu.findAll(MethodDeclaration.class), requestMapping);
 
         // New methods for conversion
         Set<Method> newEndpoints = new HashSet<>();
@@ -476,7 +577,7 @@ public class SourceToObjectUtils {
         List<MethodCall> newRestCalls = new ArrayList<>();
 
         // Arbitrary preURL naming scheme if not defined in the annotation
-        String preURL = "/" + className.toLowerCase().replace("repository", "") + "s";
+        String preURL = "/" + state.get().className.toLowerCase().replace("repository", "") + "s";
 
         for(AnnotationExpr annotation : classAnnotations) {
             if(annotation.getNameAsString().equals("RepositoryRestResource")) {
@@ -497,6 +598,7 @@ public class SourceToObjectUtils {
 
         // For each method that is detected as an endpoint convert into a Method + RestCall
         for(Method method : methods) {
+            checkDeadline();
 
             String url = "/search";
             boolean restResourceFound = false;
@@ -534,15 +636,15 @@ public class SourceToObjectUtils {
 
         // Build the JClass
         return new JClass(
-                className,
-                path,
-                packageName,
+                state.get().className,
+                state.get().path,
+                state.get().packageName,
                 ClassRole.REP_REST_RSC,
                 newEndpoints,
-                parseFields(cu.findAll(FieldDeclaration.class)),
+                parseFields(state.get().cu.findAll(FieldDeclaration.class)),
                 parseAnnotations(classAnnotations),
                 newRestCalls,
-                cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
+                state.get().cu.findAll(ClassOrInterfaceDeclaration.class).get(0).getImplementedTypes().stream().map(NodeWithSimpleName::getNameAsString).collect(Collectors.toSet()));
     }
 
     private static JClass handleJS(String filePath) {
@@ -572,4 +674,41 @@ public class SourceToObjectUtils {
 
         return jClass;
     }
+
+    /**
+     * Throw if the file being parsed is past its deadline, see {@link Config#getMaxParseMillis()}.
+     * The deadline is only checked here, between the steps of the extraction.
+     */
+    private static void checkDeadline() {
+        if (System.nanoTime() > state.get().deadline) {
+            throw new ParseTimeExceededException();
+        }
+    }
+
+    /**
+     * Thrown when a file is still being parsed past its deadline,
+     * see {@link Config#getMaxParseMillis()}
+     */
+    private static class ParseTimeExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Values shared by the parsing methods while a single file is parsed
+     */
+    private static class ParseState {
+        private CompilationUnit cu;
+        private ScopeTypeTable scopeTypes;
+        private TypeIndex typeIndex;
+        private String microserviceName = "";
+        private String path;
+        private String className;
+        private String packageName;
+        private String packageAndClassName;
+        private ParseContext parseContext;
+        private CombinedTypeSolver combinedTypeSolver;
+        private Config config;
+        private long started;
+        private long deadline = Long.MAX_VALUE;
+    }
 }
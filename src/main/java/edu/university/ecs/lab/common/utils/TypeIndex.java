@@ -0,0 +1,537 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the type declarations of the source files of a single microservice,
+ * holding the fully qualified name, the supertypes and the field types of each
+ * type. It is built from declaration summaries of every file in one pre-pass,
+ * so inherited fields are found without the symbol solver, which can't locate
+ * the sources of a microservice by package. Summaries only depend on the contents
+ * of their file, so they can be reused for every commit the file is unchanged in.
+ * The index also holds the String constants of each type, which are evaluated on
+ * first use and then kept, so URLs built from constants are resolved with lookups.
+ * An index is used by one thread at a time.
+ */
+public class TypeIndex {
+    private static final String VAR = "var";
+    private static final String PACKAGE_SEPARATOR = ".";
+    private static final String MEMBER_SEPARATOR = "#";
+    private static final Set<String> STRING_TYPES = Set.of("String", "java.lang.String");
+    private static final String FORMAT_METHOD = "format";
+    private static final Pattern FORMAT_SPECIFIER_PATTERN = Pattern.compile("%([sdif%])");
+
+    /**
+     * Placeholder for a format argument that isn't a constant
+     */
+    public static final String UNKNOWN_VALUE = "{?}";
+
+    /**
+     * Types keyed by their fully qualified name
+     */
+    private final Map<String, TypeSummary> types = new HashMap<>();
+
+    /**
+     * Fully qualified names of the types keyed by their simple name
+     */
+    private final Map<String, List<String>> namesBySimpleName = new HashMap<>();
+
+    /**
+     * Evaluated constants keyed by type and name, null if not a constant expression
+     */
+    private final Map<String, String> constantValues = new HashMap<>();
+
+    /**
+     * Constants being evaluated, to stop at constants defined in terms of themselves
+     */
+    private final Set<String> evaluating = new HashSet<>();
+
+    /**
+     * Build the index of a microservice from the summaries of its files
+     *
+     * @param summaries the summaries of the types declared in each file
+     */
+    public TypeIndex(Collection<List<TypeSummary>> summaries) {
+        for (List<TypeSummary> fileSummaries : summaries) {
+            for (TypeSummary summary : fileSummaries) {
+                types.putIfAbsent(summary.getName(), summary);
+                namesBySimpleName.computeIfAbsent(summary.getSimpleName(), n -> new ArrayList<>()).add(summary.getName());
+            }
+        }
+    }
+
+    /**
+     * This method summarizes the types declared in a parsed file, local classes are left out
+     *
+     * @param compilationUnit the parsed file
+     * @return the summaries of the declared types
+     */
+    public static List<TypeSummary> summarize(CompilationUnit compilationUnit) {
+        List<TypeSummary> summaries = new ArrayList<>();
+        String packageName = compilationUnit.getPackageDeclaration().map(PackageDeclaration::getNameAsString).orElse("");
+
+        // Imports are kept with every type of the file to resolve its supertypes by
+        Map<String, String> imports = new HashMap<>();
+        List<String> wildcardImports = new ArrayList<>();
+        Map<String, String> staticImports = new HashMap<>();
+        List<String> staticWildcardImports = new ArrayList<>();
+        for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+            String name = importDeclaration.getNameAsString();
+            if (importDeclaration.isAsterisk()) {
+                (importDeclaration.isStatic() ? staticWildcardImports : wildcardImports).add(name);
+            } else {
+                (importDeclaration.isStatic() ? staticImports : imports).put(name.substring(name.lastIndexOf(PACKAGE_SEPARATOR) + 1), name);
+            }
+        }
+
+        Set<String> typeParameters = new HashSet<>();
+        compilationUnit.findAll(TypeParameter.class).forEach(typeParameter -> typeParameters.add(typeParameter.getNameAsString()));
+
+        for (TypeDeclaration<?> type : compilationUnit.findAll(TypeDeclaration.class)) {
+            String name = type.getFullyQualifiedName().orElse(null);
+            if (Objects.isNull(name) || (type.isClassOrInterfaceDeclaration() && type.asClassOrInterfaceDeclaration().isLocalClassDeclaration())) {
+                continue;
+            }
+
+            List<String> supertypes = new ArrayList<>();
+            if (type.isClassOrInterfaceDeclaration()) {
+                ClassOrInterfaceDeclaration declaration = type.asClassOrInterfaceDeclaration();
+                declaration.getExtendedTypes().forEach(supertype -> supertypes.add(supertype.getNameWithScope()));
+                declaration.getImplementedTypes().forEach(supertype -> supertypes.add(supertype.getNameWithScope()));
+            }
+
+            Map<String, String> fieldTypes = new HashMap<>();
+            Map<String, Expression> constants = new HashMap<>();
+            boolean isInterface = type.isClassOrInterfaceDeclaration() && type.asClassOrInterfaceDeclaration().isInterface();
+            for (FieldDeclaration field : type.getFields()) {
+                boolean isFinal = field.isFinal() || isInterface;
+                for (VariableDeclarator variable : field.getVariables()) {
+                    fieldTypes.put(variable.getNameAsString(), simpleName(variable.getType(), typeParameters));
+
+                    // Initializers are copied so that a summary doesn't hold on to the whole file
+                    if (isFinal && STRING_TYPES.contains(variable.getTypeAsString()) && variable.getInitializer().isPresent()) {
+                        constants.put(variable.getNameAsString(), variable.getInitializer().get().clone());
+                    }
+                }
+            }
+
+            summaries.add(new TypeSummary(name, type.getNameAsString(), packageName, supertypes, fieldTypes, constants,
+                    imports, wildcardImports, staticImports, staticWildcardImports));
+        }
+
+        return summaries;
+    }
+
+    /**
+     * This method finds the type of a field a type inherits from its supertypes
+     *
+     * @param typeName the fully qualified name of the type
+     * @param fieldName the name of the field
+     * @return the simple name of the field type, null if not found or not a plain class type
+     */
+    public String getInheritedFieldType(String typeName, String fieldName) {
+        TypeSummary type = types.get(typeName);
+        if (Objects.isNull(type)) {
+            return null;
+        }
+
+        Set<String> visited = new HashSet<>();
+        visited.add(typeName);
+        Deque<TypeSummary> pending = new ArrayDeque<>(getSupertypes(type, visited));
+
+        // Supertypes closer to the type come first, as their fields hide those further up
+        while (!pending.isEmpty()) {
+            TypeSummary supertype = pending.poll();
+            if (supertype.getFieldTypes().containsKey(fieldName)) {
+                return supertype.getFieldTypes().get(fieldName);
+            }
+            pending.addAll(getSupertypes(supertype, visited));
+        }
+
+        return null;
+    }
+
+    /**
+     * This method resolves a type name as written in a type of the index, see {@link #resolve}
+     *
+     * @param typeName the fully qualified name of the type the name is written in
+     * @param name the simple or qualified name of a type, without type arguments
+     * @return the simple name of the indexed type, null if the name isn't an indexed type
+     */
+    public String resolveType(String typeName, String name) {
+        TypeSummary context = types.get(typeName);
+        String resolved = Objects.isNull(context) ? null : resolve(name, context);
+        return Objects.isNull(resolved) ? null : types.get(resolved).getSimpleName();
+    }
+
+    /**
+     * This method checks whether a field of a type or of a type it is nested in may
+     * be named, by being declared or inherited by one of them
+     *
+     * @param typeName the fully qualified name of the type
+     * @param fieldName the name of the field
+     * @return true if the name may refer to a field
+     */
+    public boolean hasField(String typeName, String fieldName) {
+        for (TypeSummary type = types.get(typeName); Objects.nonNull(type); type = getEnclosingType(type)) {
+            if (hasMember(type, fieldName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * This method evaluates an expression of a parsed file made of String constants,
+     * literals, concatenations and String.format calls, in the type it appears in.
+     * Names declared by the enclosing methods or lambdas are not constants.
+     *
+     * @param expression the expression
+     * @return the value of the expression, null if it isn't a constant expression
+     */
+    public String getConstantValue(Expression expression) {
+        TypeDeclaration<?> type = expression.findAncestor(TypeDeclaration.class).orElse(null);
+        TypeSummary context = Objects.isNull(type) ? null : type.getFullyQualifiedName().map(types::get).orElse(null);
+        if (Objects.isNull(context)) {
+            return null;
+        }
+
+        Set<String> locals = new HashSet<>();
+        Optional<Node> parent = expression.getParentNode();
+        while (parent.isPresent()) {
+            Node node = parent.get();
+            if (node instanceof CallableDeclaration || node instanceof LambdaExpr) {
+                node.findAll(Parameter.class).forEach(parameter -> locals.add(parameter.getNameAsString()));
+                node.findAll(VariableDeclarator.class).forEach(variable -> locals.add(variable.getNameAsString()));
+            }
+            parent = node.getParentNode();
+        }
+
+        return evaluate(expression, context, locals);
+    }
+
+    /**
+     * Evaluate a constant expression in the context of a type
+     *
+     * @return the value, null if it isn't a constant expression
+     */
+    private String evaluate(Expression expression, TypeSummary context, Set<String> locals) {
+        if (expression.isStringLiteralExpr()) {
+            return expression.asStringLiteralExpr().asString();
+        } else if (expression.isEnclosedExpr()) {
+            return evaluate(expression.asEnclosedExpr().getInner(), context, locals);
+        } else if (expression.isBinaryExpr() && expression.asBinaryExpr().getOperator() == BinaryExpr.Operator.PLUS) {
+            Expression left = expression.asBinaryExpr().getLeft();
+            Expression right = expression.asBinaryExpr().getRight();
+
+            // Adding two numbers isn't a concatenation
+            if (isNumber(left) && isNumber(right)) {
+                return null;
+            }
+
+            String leftValue = evaluateOperand(left, context, locals);
+            String rightValue = evaluateOperand(right, context, locals);
+            return Objects.isNull(leftValue) || Objects.isNull(rightValue) ? null : leftValue + rightValue;
+        } else if (expression.isNameExpr()) {
+            String name = expression.asNameExpr().getNameAsString();
+            return locals.contains(name) ? null : getConstant(context, name);
+        } else if (expression.isFieldAccessExpr()) {
+            Expression scope = expression.asFieldAccessExpr().getScope();
+            String name = expression.asFieldAccessExpr().getNameAsString();
+            if (scope.isThisExpr()) {
+                return getMemberConstant(context, name);
+            }
+
+            String typeName = qualifiedName(scope);
+            if (Objects.isNull(typeName) || locals.contains(typeName)) {
+                return null;
+            }
+
+            String owner = resolve(typeName, context);
+            return Objects.isNull(owner) ? null : getMemberConstant(types.get(owner), name);
+        } else if (expression.isMethodCallExpr()) {
+            return evaluateFormat(expression.asMethodCallExpr(), context, locals);
+        }
+
+        return null;
+    }
+
+    /**
+     * Evaluate an operand of a concatenation, which may also be a number or character literal
+     */
+    private String evaluateOperand(Expression expression, TypeSummary context, Set<String> locals) {
+        if (isNumber(expression)) {
+            return expression.asLiteralStringValueExpr().getValue();
+        }
+
+        return evaluate(expression, context, locals);
+    }
+
+    private static boolean isNumber(Expression expression) {
+        return expression.isIntegerLiteralExpr() || expression.isLongLiteralExpr() || expression.isCharLiteralExpr();
+    }
+
+    /**
+     * Evaluate a String.format call with a constant format, arguments that
+     * aren't constants are filled in with {@link #UNKNOWN_VALUE}
+     *
+     * @return the formatted value, null if it isn't a String.format call with a constant format
+     */
+    private String evaluateFormat(MethodCallExpr methodCall, TypeSummary context, Set<String> locals) {
+        if (!methodCall.getNameAsString().equals(FORMAT_METHOD) || methodCall.getArguments().isEmpty()
+                || !methodCall.getScope().map(TypeIndex::qualifiedName).filter(STRING_TYPES::contains).isPresent()) {
+            return null;
+        }
+
+        String format = evaluate(methodCall.getArgument(0), context, locals);
+        if (Objects.isNull(format)) {
+            return null;
+        }
+
+        StringBuilder value = new StringBuilder();
+        Matcher matcher = FORMAT_SPECIFIER_PATTERN.matcher(format);
+        int argument = 1;
+        while (matcher.find()) {
+            String replacement = "%";
+            if (!matcher.group(1).equals("%")) {
+                replacement = argument < methodCall.getArguments().size() ? evaluateOperand(methodCall.getArgument(argument), context, locals) : null;
+                replacement = Objects.isNull(replacement) ? UNKNOWN_VALUE : replacement;
+                argument++;
+            }
+            matcher.appendReplacement(value, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(value);
+
+        return value.toString();
+    }
+
+    /**
+     * Find the constant a simple name refers to in a type: a member of the type or
+     * its supertypes, a member of an enclosing type, or a static import
+     *
+     * @return the value of the constant, null if there is none
+     */
+    private String getConstant(TypeSummary context, String name) {
+        for (TypeSummary type = context; Objects.nonNull(type); type = getEnclosingType(type)) {
+            if (hasMember(type, name)) {
+                return getMemberConstant(type, name);
+            }
+        }
+
+        String imported = context.getStaticImports().get(name);
+        if (Objects.nonNull(imported)) {
+            TypeSummary owner = types.get(imported.substring(0, imported.lastIndexOf(PACKAGE_SEPARATOR)));
+            return Objects.isNull(owner) ? null : getMemberConstant(owner, name);
+        }
+
+        for (String wildcardImport : context.getStaticWildcardImports()) {
+            TypeSummary owner = types.get(wildcardImport);
+            if (Objects.nonNull(owner) && hasMember(owner, name)) {
+                return getMemberConstant(owner, name);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Check whether a type declares or inherits a field
+     */
+    private boolean hasMember(TypeSummary type, String name) {
+        return Objects.nonNull(findMember(type, name));
+    }
+
+    /**
+     * Find the value of a field of a type or its supertypes, fields closer
+     * to the type hiding those further up
+     *
+     * @return the value of the field, null if it isn't a constant or there is no such field
+     */
+    private String getMemberConstant(TypeSummary type, String name) {
+        TypeSummary owner = findMember(type, name);
+        if (Objects.isNull(owner) || !owner.getConstants().containsKey(name)) {
+            return null;
+        }
+
+        String key = owner.getName() + MEMBER_SEPARATOR + name;
+        if (constantValues.containsKey(key)) {
+            return constantValues.get(key);
+        } else if (!evaluating.add(key)) {
+            return null;
+        }
+
+        String value = evaluate(owner.getConstants().get(name), owner, Set.of());
+        evaluating.remove(key);
+        constantValues.put(key, value);
+
+        return value;
+    }
+
+    /**
+     * Find the type declaring a field among a type and its supertypes
+     *
+     * @return the declaring type, null if there is none
+     */
+    private TypeSummary findMember(TypeSummary type, String name) {
+        Set<String> visited = new HashSet<>();
+        visited.add(type.getName());
+        Deque<TypeSummary> pending = new ArrayDeque<>(List.of(type));
+
+        while (!pending.isEmpty()) {
+            TypeSummary next = pending.poll();
+            if (next.getFieldTypes().containsKey(name)) {
+                return next;
+            }
+            pending.addAll(getSupertypes(next, visited));
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the indexed type a nested type is declared in
+     *
+     * @return the enclosing type, null for a top level type
+     */
+    private TypeSummary getEnclosingType(TypeSummary type) {
+        int separator = type.getName().lastIndexOf(PACKAGE_SEPARATOR);
+        return separator < 0 ? null : types.get(type.getName().substring(0, separator));
+    }
+
+    /**
+     * Get the dotted name of a name or chain of field accesses
+     *
+     * @return the name, null for other expressions
+     */
+    private static String qualifiedName(Expression expression) {
+        if (expression.isNameExpr()) {
+            return expression.asNameExpr().getNameAsString();
+        } else if (expression.isFieldAccessExpr()) {
+            String scope = qualifiedName(expression.asFieldAccessExpr().getScope());
+            return Objects.isNull(scope) ? null : scope + PACKAGE_SEPARATOR + expression.asFieldAccessExpr().getNameAsString();
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the indexed supertypes of a type not visited yet
+     */
+    private List<TypeSummary> getSupertypes(TypeSummary type, Set<String> visited) {
+        List<TypeSummary> supertypes = new ArrayList<>();
+
+        for (String supertype : type.getSupertypes()) {
+            String name = resolve(supertype, type);
+            if (Objects.nonNull(name) && visited.add(name)) {
+                supertypes.add(types.get(name));
+            }
+        }
+
+        return supertypes;
+    }
+
+    /**
+     * Resolve a type name as written in the file of a type: by its single type
+     * import, in the same package, by a wildcard import, or by being the only
+     * indexed type of that simple name
+     *
+     * @return the fully qualified name of the indexed type, null if it can't be resolved
+     */
+    private String resolve(String name, TypeSummary context) {
+        if (types.containsKey(name)) {
+            return name;
+        }
+
+        String imported = context.getImports().get(name);
+        if (Objects.nonNull(imported)) {
+            return types.containsKey(imported) ? imported : null;
+        }
+
+        String samePackage = context.getPackageName().isEmpty() ? name : context.getPackageName() + PACKAGE_SEPARATOR + name;
+        if (types.containsKey(samePackage)) {
+            return samePackage;
+        }
+
+        for (String wildcardImport : context.getWildcardImports()) {
+            String candidate = wildcardImport + PACKAGE_SEPARATOR + name;
+            if (types.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+
+        List<String> candidates = namesBySimpleName.getOrDefault(name, List.of());
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    /**
+     * Get the simple name of a plain class type, see {@link ScopeTypeTable}
+     */
+    private static String simpleName(Type type, Set<String> typeParameters) {
+        if (!type.isClassOrInterfaceType()) {
+            return null;
+        }
+
+        ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+        if (classType.getTypeArguments().isPresent() || classType.getScope().isPresent()) {
+            return null;
+        }
+
+        String name = classType.getNameAsString();
+        return name.equals(VAR) || typeParameters.contains(name) ? null : name;
+    }
+
+    /**
+     * The declaration of a single type, without any of its code
+     */
+    @Getter
+    public static class TypeSummary {
+        private final String name;
+        private final String simpleName;
+        private final String packageName;
+        private final List<String> supertypes;
+        private final Map<String, String> fieldTypes;
+        private final Map<String, Expression> constants;
+        private final Map<String, String> imports;
+        private final List<String> wildcardImports;
+        private final Map<String, String> staticImports;
+        private final List<String> staticWildcardImports;
+
+        private TypeSummary(String name, String simpleName, String packageName, List<String> supertypes,
+                            Map<String, String> fieldTypes, Map<String, Expression> constants,
+                            Map<String, String> imports, List<String> wildcardImports,
+                            Map<String, String> staticImports, List<String> staticWildcardImports) {
+            this.name = name;
+            this.simpleName = simpleName;
+            this.packageName = packageName;
+            this.supertypes = supertypes;
+            this.fieldTypes = fieldTypes;
+            this.constants = constants;
+            this.imports = imports;
+            this.wildcardImports = wildcardImports;
+            this.staticImports = staticImports;
+            this.staticWildcardImports = staticWildcardImports;
+        }
+    }
+}
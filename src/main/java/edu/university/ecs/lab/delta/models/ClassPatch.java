@@ -0,0 +1,283 @@
+package edu.university.ecs.lab.delta.models;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import edu.university.ecs.lab.common.models.enums.FileType;
+import edu.university.ecs.lab.common.models.ir.*;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents the structural changes made to a JClass between two
+ * commits, used as the data of a ChangeType.MODIFY Delta in place of the whole
+ * re-parsed class. Elements are matched on their JSON form without the
+ * microservice name, which is assigned when the class is merged.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClassPatch implements JsonSerializable {
+    /**
+     * Marker identifying the JSON data of a Delta as a class patch
+     */
+    public static final String PATCH_KEY = "patch";
+
+    private static final String MICROSERVICE_NAME = "microserviceName";
+
+    private List<Method> addedMethods = new ArrayList<>();
+    private List<Method> removedMethods = new ArrayList<>();
+    private List<MethodCall> addedMethodCalls = new ArrayList<>();
+    private List<MethodCall> removedMethodCalls = new ArrayList<>();
+    private List<Field> addedFields = new ArrayList<>();
+    private List<Field> removedFields = new ArrayList<>();
+    private List<Annotation> addedAnnotations = new ArrayList<>();
+    private List<Annotation> removedAnnotations = new ArrayList<>();
+    private Set<String> addedImplementedTypes = new HashSet<>();
+    private Set<String> removedImplementedTypes = new HashSet<>();
+
+    /**
+     * This method computes the patch turning one version of a class into another.
+     * A patch can only describe changes of the class members, so null is returned
+     * if the name, path, package or role of the class changed.
+     *
+     * @param oldClass the class at the old commit
+     * @param newClass the class at the new commit
+     * @return the patch or null if the whole class must be replaced
+     */
+    public static ClassPatch diff(JClass oldClass, JClass newClass) {
+        if (!Objects.equals(oldClass.getName(), newClass.getName())
+                || !Objects.equals(oldClass.getPath(), newClass.getPath())
+                || !Objects.equals(oldClass.getPackageName(), newClass.getPackageName())
+                || !Objects.equals(oldClass.getClassRole(), newClass.getClassRole())) {
+            return null;
+        }
+
+        ClassPatch classPatch = new ClassPatch();
+        classPatch.addedMethods = subtract(newClass.getMethods(), oldClass.getMethods());
+        classPatch.removedMethods = subtract(oldClass.getMethods(), newClass.getMethods());
+        classPatch.addedMethodCalls = subtract(newClass.getMethodCalls(), oldClass.getMethodCalls());
+        classPatch.removedMethodCalls = subtract(oldClass.getMethodCalls(), newClass.getMethodCalls());
+        classPatch.addedFields = subtract(newClass.getFields(), oldClass.getFields());
+        classPatch.removedFields = subtract(oldClass.getFields(), newClass.getFields());
+        classPatch.addedAnnotations = subtract(newClass.getAnnotations(), oldClass.getAnnotations());
+        classPatch.removedAnnotations = subtract(oldClass.getAnnotations(), newClass.getAnnotations());
+        classPatch.addedImplementedTypes = new HashSet<>(newClass.getImplementedTypes());
+        classPatch.addedImplementedTypes.removeAll(oldClass.getImplementedTypes());
+        classPatch.removedImplementedTypes = new HashSet<>(oldClass.getImplementedTypes());
+        classPatch.removedImplementedTypes.removeAll(newClass.getImplementedTypes());
+
+        return classPatch;
+    }
+
+    /**
+     * This method computes a fingerprint of a class in the canonical form elements
+     * are matched on. Two versions of a class with the same name, path, package and
+     * role have an empty patch if and only if their fingerprints are equal.
+     *
+     * @param jClass the class to fingerprint
+     * @return the fingerprint of the class
+     */
+    public static String fingerprint(JClass jClass) {
+        return UUID.nameUUIDFromBytes(key(jClass).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * This method applies the patch to a class in place. Added method
+     * calls are appended after the remaining ones.
+     *
+     * @param jClass the class at the old commit
+     */
+    public void apply(JClass jClass) {
+        remove(jClass.getMethods(), removedMethods);
+        jClass.getMethods().addAll(addedMethods);
+        remove(jClass.getMethodCalls(), removedMethodCalls);
+        jClass.getMethodCalls().addAll(addedMethodCalls);
+        remove(jClass.getFields(), removedFields);
+        jClass.getFields().addAll(addedFields);
+        remove(jClass.getAnnotations(), removedAnnotations);
+        jClass.getAnnotations().addAll(addedAnnotations);
+        jClass.getImplementedTypes().removeAll(removedImplementedTypes);
+        jClass.getImplementedTypes().addAll(addedImplementedTypes);
+    }
+
+    /**
+     * This method composes the patch with a patch of the class made after it,
+     * applying the result is the same as applying both patches in order
+     *
+     * @param next the patch applied after this one
+     * @return the composed patch
+     */
+    public ClassPatch then(ClassPatch next) {
+        ClassPatch classPatch = new ClassPatch();
+        List<List<Method>> methods = compose(addedMethods, removedMethods, next.addedMethods, next.removedMethods);
+        classPatch.addedMethods = methods.get(0);
+        classPatch.removedMethods = methods.get(1);
+        List<List<MethodCall>> methodCalls = compose(addedMethodCalls, removedMethodCalls, next.addedMethodCalls, next.removedMethodCalls);
+        classPatch.addedMethodCalls = methodCalls.get(0);
+        classPatch.removedMethodCalls = methodCalls.get(1);
+        List<List<Field>> fields = compose(addedFields, removedFields, next.addedFields, next.removedFields);
+        classPatch.addedFields = fields.get(0);
+        classPatch.removedFields = fields.get(1);
+        List<List<Annotation>> annotations = compose(addedAnnotations, removedAnnotations, next.addedAnnotations, next.removedAnnotations);
+        classPatch.addedAnnotations = annotations.get(0);
+        classPatch.removedAnnotations = annotations.get(1);
+
+        // Removing a type that isn't implemented has no effect, so both removals are kept
+        classPatch.addedImplementedTypes = new HashSet<>(addedImplementedTypes);
+        classPatch.addedImplementedTypes.removeAll(next.removedImplementedTypes);
+        classPatch.addedImplementedTypes.addAll(next.addedImplementedTypes);
+        classPatch.removedImplementedTypes = new HashSet<>(removedImplementedTypes);
+        classPatch.removedImplementedTypes.addAll(next.removedImplementedTypes);
+
+        // A type removed and added back was implemented all along
+        Set<String> unchangedTypes = new HashSet<>(classPatch.addedImplementedTypes);
+        unchangedTypes.retainAll(classPatch.removedImplementedTypes);
+        classPatch.addedImplementedTypes.removeAll(unchangedTypes);
+        classPatch.removedImplementedTypes.removeAll(unchangedTypes);
+
+        return classPatch;
+    }
+
+    /**
+     * This method checks if the patch changes nothing
+     *
+     * @return true if there are no changes
+     */
+    public boolean isEmpty() {
+        return addedMethods.isEmpty() && removedMethods.isEmpty()
+                && addedMethodCalls.isEmpty() && removedMethodCalls.isEmpty()
+                && addedFields.isEmpty() && removedFields.isEmpty()
+                && addedAnnotations.isEmpty() && removedAnnotations.isEmpty()
+                && addedImplementedTypes.isEmpty() && removedImplementedTypes.isEmpty();
+    }
+
+    /**
+     * see {@link JsonSerializable#toJsonObject()}
+     */
+    @Override
+    public JsonObject toJsonObject() {
+        JsonObject jsonObject = new JsonObject();
+        Gson gson = new Gson();
+
+        jsonObject.addProperty(PATCH_KEY, FileType.JCLASS.name());
+        jsonObject.add("addedMethods", JsonSerializable.toJsonArray(addedMethods));
+        jsonObject.add("removedMethods", JsonSerializable.toJsonArray(removedMethods));
+        jsonObject.add("addedMethodCalls", JsonSerializable.toJsonArray(addedMethodCalls));
+        jsonObject.add("removedMethodCalls", JsonSerializable.toJsonArray(removedMethodCalls));
+        jsonObject.add("addedFields", JsonSerializable.toJsonArray(addedFields));
+        jsonObject.add("removedFields", JsonSerializable.toJsonArray(removedFields));
+        jsonObject.add("addedAnnotations", JsonSerializable.toJsonArray(addedAnnotations));
+        jsonObject.add("removedAnnotations", JsonSerializable.toJsonArray(removedAnnotations));
+        jsonObject.add("addedImplementedTypes", gson.toJsonTree(addedImplementedTypes).getAsJsonArray());
+        jsonObject.add("removedImplementedTypes", gson.toJsonTree(removedImplementedTypes).getAsJsonArray());
+
+        return jsonObject;
+    }
+
+    /**
+     * Get the elements of a collection that have no counterpart in another one,
+     * each element of the other collection cancels out a single equal element
+     *
+     * @param from the collection to take elements from
+     * @param subtract the collection of elements to cancel out
+     * @return the remaining elements of from in their original order
+     */
+    private static <T extends JsonSerializable> List<T> subtract(Collection<T> from, Collection<T> subtract) {
+        Map<String, Integer> counts = subtract.stream().collect(Collectors.toMap(ClassPatch::key, element -> 1, Integer::sum));
+        List<T> remaining = new ArrayList<>();
+
+        for (T element : from) {
+            String key = key(element);
+            Integer count = counts.get(key);
+            if (count == null) {
+                remaining.add(element);
+            } else if (count == 1) {
+                counts.remove(key);
+            } else {
+                counts.put(key, count - 1);
+            }
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Compose the added and removed elements of a patch with the ones of the next patch
+     *
+     * @param added the elements this patch adds
+     * @param removed the elements this patch removes
+     * @param nextAdded the elements the next patch adds
+     * @param nextRemoved the elements the next patch removes
+     * @return the added and the removed elements of the composed patch
+     */
+    private static <T extends JsonSerializable> List<List<T>> compose(List<T> added, List<T> removed, List<T> nextAdded, List<T> nextRemoved) {
+        List<T> composedAdded = concat(subtract(added, nextRemoved), nextAdded);
+        List<T> composedRemoved = concat(removed, subtract(nextRemoved, added));
+
+        // An element removed by one patch and added back by the other is left as is
+        return List.of(subtract(composedAdded, composedRemoved), subtract(composedRemoved, composedAdded));
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> list = new ArrayList<>(first);
+        list.addAll(second);
+        return list;
+    }
+
+    /**
+     * Remove the elements of a collection matching the given ones, each given
+     * element matches a single element of the collection. Elements are removed
+     * by identity since equals of some members ignores their name.
+     *
+     * @param from the collection to remove elements from
+     * @param matching the elements to remove
+     */
+    private static <T extends JsonSerializable> void remove(Collection<T> from, Collection<T> matching) {
+        if (matching.isEmpty()) {
+            return;
+        }
+
+        Set<T> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        remaining.addAll(subtract(from, matching));
+        from.removeIf(element -> !remaining.contains(element));
+    }
+
+    /**
+     * Get the canonical JSON form of an element used to match it, independent
+     * of the microservice it and its members belong to and of the iteration
+     * order of its sets
+     *
+     * @param element the element
+     * @return the matching key
+     */
+    private static String key(JsonSerializable element) {
+        return canonical(element.toJsonObject());
+    }
+
+    private static String canonical(JsonElement jsonElement) {
+        if (jsonElement.isJsonObject()) {
+            return jsonElement.getAsJsonObject().entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(MICROSERVICE_NAME))
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(entry -> entry.getKey() + ":" + canonical(entry.getValue()))
+                    .collect(Collectors.joining(",", "{", "}"));
+        } else if (jsonElement.isJsonArray()) {
+            List<String> elements = new ArrayList<>();
+            for (JsonElement element : (JsonArray) jsonElement) {
+                elements.add(canonical(element));
+            }
+            Collections.sort(elements);
+            return elements.stream().collect(Collectors.joining(",", "[", "]"));
+        }
+
+        return jsonElement.toString();
+    }
+}
@@ -5,22 +5,21 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import edu.university.ecs.lab.common.models.ir.ConfigFile;
 import edu.university.ecs.lab.common.models.ir.JClass;
-import edu.university.ecs.lab.common.models.ir.ProjectFile;
 import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
 import edu.university.ecs.lab.common.services.LoggerManager;
 import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
 import edu.university.ecs.lab.delta.models.enums.ChangeType;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.*;
 
 /**
  * This class represents a single Delta change between two commits.
  * In the case of ChangeType.DELETE @see {@link ChangeType} the
  * classChange will respectively be null as the instance of this class
- * is no longer locally present for parsing at the new commit
+ * is no longer locally present for parsing at the new commit.
+ * The decoded change is memoized without synchronization, so a delta
+ * must not be decoded from several threads at once
  */
 @Data
-@AllArgsConstructor
 public class Delta implements JsonSerializable {
 
     private static final Gson gson = JsonReadWriteUtils.registerDeserializers();
@@ -42,55 +41,153 @@ public class Delta implements JsonSerializable {
     private ChangeType changeType;
 
     /**
-     * The changed contents, could be a changed class or
-     * a changed configuration file
+     * The changed contents, could be a changed class, a changed
+     * configuration file or a patch of a class. Null if the delta was created
+     * from a decoded change, see {@link #getData()}
      */
     private JsonObject data;
 
+    /**
+     * The decoded changed contents, memoized on first access. The instance is
+     * shared by every getter, see {@link #copyChange()} for one that can be kept
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient JsonSerializable change;
+
+    /**
+     * Whether {@link #change} holds the decoded data
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient boolean decoded;
+
+    public Delta(String oldPath, String newPath, ChangeType changeType, JsonObject data) {
+        this.oldPath = oldPath;
+        this.newPath = newPath;
+        this.changeType = changeType;
+        this.data = data;
+    }
+
+    /**
+     * Create a delta from an already decoded change, the JSON data is
+     * only built if it is requested
+     *
+     * @param oldPath the old path of the file
+     * @param newPath the new path of the file
+     * @param changeType the type of change
+     * @param change the changed class, configuration file or class patch, null if there is none
+     */
+    public Delta(String oldPath, String newPath, ChangeType changeType, JsonSerializable change) {
+        this.oldPath = oldPath;
+        this.newPath = newPath;
+        this.changeType = changeType;
+        this.change = change;
+        this.decoded = true;
+    }
+
+    /**
+     * This method returns the changed contents as JSON, encoding
+     * the decoded change if the delta was created from one
+     *
+     * @return the changed contents, an empty object if there are none
+     */
+    public JsonObject getData() {
+        if (data != null) {
+            return data;
+        }
+
+        return change == null ? new JsonObject() : change.toJsonObject();
+    }
+
+    public void setData(JsonObject data) {
+        this.data = data;
+        this.change = null;
+        this.decoded = false;
+    }
+
     /**
      * This method returns an instance of JClass if parsable.
+     * The instance is shared by every call.
      *
      * @return JClass instance if parsable otherwise null
      */
     public JClass getClassChange() {
-        if(data.size() == 0) {
-            return null;
-        }
-        try {
-            if(data.get("fileType").getAsString().equals("JCLASS")) {
-                return gson.fromJson(data, JClass.class);
-            } else {
-                return null;
-            }
-        } catch (JsonSyntaxException e) {
-            if(data.get("fileType").getAsString().equals("JCLASS")) {
-                LoggerManager.debug(e::getMessage);
-            }
-            return null;
-        }
-
+        JsonSerializable change = getChange();
+        return change instanceof JClass ? (JClass) change : null;
     }
 
     /**
      * This method returns an instance of ConfigFile if parsable.
+     * The instance is shared by every call.
      *
      * @return ConfigFile instance if parsable otherwise null
      */
     public ConfigFile getConfigChange() {
-        if(data.size() == 0) {
+        JsonSerializable change = getChange();
+        return change instanceof ConfigFile ? (ConfigFile) change : null;
+    }
+
+    /**
+     * This method returns an instance of ClassPatch if the change of
+     * a modified class was extracted as a patch, see {@link ClassPatch}.
+     * The instance is shared by every call.
+     *
+     * @return ClassPatch instance if present otherwise null
+     */
+    public ClassPatch getClassPatch() {
+        JsonSerializable change = getChange();
+        return change instanceof ClassPatch ? (ClassPatch) change : null;
+    }
+
+    /**
+     * This method decodes a new instance of the changed contents on every call.
+     * Unlike the memoized change it can be inserted into a system and mutated
+     * there without changing this delta or any other system.
+     *
+     * @return a new JClass, ConfigFile or ClassPatch, null if not parsable
+     */
+    public JsonSerializable copyChange() {
+        return decode(getData());
+    }
+
+    /**
+     * This method decodes the data into a JClass, ConfigFile or ClassPatch
+     * the first time it is called and returns the memoized change after
+     *
+     * @return the decoded change or null if not parsable
+     */
+    private JsonSerializable getChange() {
+        if (!decoded) {
+            change = decode(data);
+            decoded = true;
+        }
+
+        return change;
+    }
+
+    private static JsonSerializable decode(JsonObject data) {
+        if(data == null || data.size() == 0) {
             return null;
         }
+
         try {
-            if(data.get("fileType").getAsString().equals("CONFIG")) {
+            if(data.has(ClassPatch.PATCH_KEY)) {
+                return gson.fromJson(data, ClassPatch.class);
+            }
+
+            String fileType = data.get("fileType").getAsString();
+            if(fileType.equals("JCLASS")) {
+                return gson.fromJson(data, JClass.class);
+            } else if(fileType.equals("CONFIG")) {
                 return gson.fromJson(data, ConfigFile.class);
             } else {
                 return null;
             }
         } catch (JsonSyntaxException e) {
-            if(data.get("fileType").getAsString().equals("CONFIG")) {
-                LoggerManager.debug(e::getMessage);
-            }
-
+            LoggerManager.debug(e::getMessage);
             return null;
         }
     }
@@ -104,7 +201,7 @@ public class Delta implements JsonSerializable {
         jsonObject.addProperty("changeType", changeType.name());
         jsonObject.addProperty("oldPath", oldPath);
         jsonObject.addProperty("newPath", newPath);
-        jsonObject.add("data", data);
+        jsonObject.add("data", getData());
 
         return jsonObject;
     }
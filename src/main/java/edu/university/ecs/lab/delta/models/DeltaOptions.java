@@ -0,0 +1,27 @@
+package edu.university.ecs.lab.delta.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class represents the optional behaviour of delta extraction, by
+ * default every changed file is extracted whole
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeltaOptions {
+
+    /**
+     * Whether modified classes are extracted as a {@link ClassPatch} against
+     * their version at the old commit instead of as the whole class
+     */
+    private boolean classPatches;
+
+    /**
+     * Whether modified classes whose extracted JClass is the same at both
+     * commits are left out of the system change, see {@link ClassPatch#fingerprint}
+     */
+    private boolean omitUnchanged;
+}
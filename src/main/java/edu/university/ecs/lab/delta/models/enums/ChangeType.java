@@ -8,16 +8,20 @@ import org.eclipse.jgit.diff.DiffEntry;
 public enum ChangeType {
     ADD,
     MODIFY,
-    DELETE;
+    DELETE,
+    RENAME;
 
     public static ChangeType fromDiffEntry(DiffEntry entry) {
         switch (entry.getChangeType()) {
             case ADD:
+            case COPY:
                 return ADD;
             case MODIFY:
                 return MODIFY;
             case DELETE:
                 return DELETE;
+            case RENAME:
+                return RENAME;
             default:
                 throw new IllegalArgumentException("Unknown change type: " + entry.getChangeType());
         }
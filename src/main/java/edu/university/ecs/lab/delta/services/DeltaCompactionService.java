@@ -0,0 +1,326 @@
+package edu.university.ecs.lab.delta.services;
+
+import edu.university.ecs.lab.common.models.ir.JClass;
+import edu.university.ecs.lab.common.models.ir.ProjectFile;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import edu.university.ecs.lab.common.services.LoggerManager;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.delta.models.ClassPatch;
+import edu.university.ecs.lab.delta.models.Delta;
+import edu.university.ecs.lab.delta.models.SystemChange;
+import edu.university.ecs.lab.delta.models.enums.ChangeType;
+
+import java.util.*;
+
+/**
+ * Service for compacting a run of consecutive system changes into a single
+ * net system change from the first old commit to the last new commit. Each
+ * file is followed through its changes, changes that cancel out are dropped
+ * and only the last contents of a file are kept, so merging the net change
+ * does the least work. The given system changes are not modified.
+ */
+public class DeltaCompactionService {
+    private static final String DEV_NULL = "/dev/null";
+    private static final String TEMPORARY_SUFFIX = ".compacting";
+
+    /**
+     * Net changes of the files that exist at the current point of the run keyed by their path
+     */
+    private final Map<String, NetChange> current = new HashMap<>();
+
+    /**
+     * Net changes of the files that existed before the run keyed by their path before the run
+     */
+    private final Map<String, NetChange> original = new HashMap<>();
+
+    /**
+     * Net changes in the order the files were first changed
+     */
+    private final List<NetChange> netChanges = new ArrayList<>();
+
+    /**
+     * Private constructor, see {@link #compact(Iterable)}
+     */
+    private DeltaCompactionService() {
+    }
+
+    /**
+     * This method compacts consecutive system changes into a single net system change
+     *
+     * @param systemChanges the system changes in order, each new commit being the next old commit
+     * @return the net system change, an empty change if there are no system changes
+     */
+    public static SystemChange compact(Iterable<SystemChange> systemChanges) {
+        DeltaCompactionService compactionService = new DeltaCompactionService();
+        SystemChange netSystemChange = new SystemChange();
+        int count = 0;
+
+        for (SystemChange systemChange : systemChanges) {
+            if (count++ == 0) {
+                netSystemChange.setOldCommit(systemChange.getOldCommit());
+            }
+            netSystemChange.setNewCommit(systemChange.getNewCommit());
+            systemChange.getChanges().forEach(compactionService::addDelta);
+        }
+
+        netSystemChange.setChanges(compactionService.getDeltas());
+
+        int total = count;
+        LoggerManager.info(() -> "Compacted " + total + " system changes into " + netSystemChange.getChanges().size() + " deltas "
+                + netSystemChange.getOldCommit() + " -> " + netSystemChange.getNewCommit());
+
+        return netSystemChange;
+    }
+
+    /**
+     * This method compacts consecutive system changes read from files and writes
+     * the net system change to file
+     *
+     * @param deltaPaths the paths of the system changes in order
+     * @param outputPath the path of the output file
+     */
+    public static void compactAndWrite(List<String> deltaPaths, String outputPath) {
+        List<SystemChange> systemChanges = new ArrayList<>();
+        for (String deltaPath : deltaPaths) {
+            systemChanges.add(DeltaExtractionService.read(deltaPath));
+        }
+
+        JsonReadWriteUtils.writeToJSON(outputPath, compact(systemChanges).toJsonObject());
+    }
+
+    /**
+     * This method follows a file through a single delta
+     *
+     * @param delta the next delta of the run
+     */
+    private void addDelta(Delta delta) {
+        switch (delta.getChangeType()) {
+            case ADD:
+                NetChange deleted = original.get(delta.getNewPath());
+
+                // A file deleted earlier in the run is back, so it was modified
+                if (Objects.nonNull(deleted) && deleted.deleted && !current.containsKey(delta.getNewPath())) {
+                    deleted.deleted = false;
+                    deleted.path = delta.getNewPath();
+                    deleted.change = contentsOf(delta);
+                    deleted.dropped = Objects.isNull(deleted.change);
+                    current.put(deleted.path, deleted);
+                } else {
+                    NetChange netChange = new NetChange(null, delta.getNewPath());
+                    netChange.change = contentsOf(delta);
+                    netChange.dropped = Objects.isNull(netChange.change);
+                    current.put(netChange.path, netChange);
+                    netChanges.add(netChange);
+                }
+                break;
+            case MODIFY:
+                find(delta.getOldPath()).update(changeOf(delta), delta.getOldPath(), false);
+                break;
+            case RENAME:
+                NetChange netChange = find(delta.getOldPath());
+                current.remove(delta.getOldPath());
+                netChange.path = delta.getNewPath();
+                netChange.update(changeOf(delta), delta.getNewPath(), true);
+                current.put(netChange.path, netChange);
+                break;
+            case DELETE:
+                NetChange removed = find(delta.getOldPath());
+                current.remove(delta.getOldPath());
+                removed.deleted = true;
+                removed.change = null;
+                removed.dropped = false;
+                break;
+        }
+    }
+
+    /**
+     * Find the net change of a file existing at the current point of the run,
+     * a file not changed yet existed before the run
+     *
+     * @param path the current path of the file
+     * @return the net change of the file
+     */
+    private NetChange find(String path) {
+        NetChange netChange = current.get(path);
+
+        if (Objects.isNull(netChange)) {
+            netChange = new NetChange(path, path);
+            current.put(path, netChange);
+            original.put(path, netChange);
+            netChanges.add(netChange);
+        }
+
+        return netChange;
+    }
+
+    /**
+     * Get the deltas of the net changes. Removals of files that existed before the
+     * run come first and moves second, since a file may be moved or added to the
+     * path another file had before the run.
+     *
+     * @return the net deltas
+     */
+    private List<Delta> getDeltas() {
+        List<Delta> deltas = new ArrayList<>();
+        List<NetChange> renames = new ArrayList<>();
+        List<Delta> others = new ArrayList<>();
+
+        for (NetChange netChange : netChanges) {
+            if (Objects.isNull(netChange.originalPath)) {
+                // Files added and removed within the run cancel out
+                if (!netChange.deleted) {
+                    others.add(new Delta(DEV_NULL, netChange.path, ChangeType.ADD, netChange.change));
+                }
+            } else if (netChange.deleted) {
+                deltas.add(new Delta(netChange.originalPath, DEV_NULL, ChangeType.DELETE, (JsonSerializable) null));
+            } else if (!netChange.originalPath.equals(netChange.path)) {
+                renames.add(netChange);
+                // The move carries the contents from before the run, they are dropped after it
+                if (netChange.dropped) {
+                    others.add(new Delta(netChange.path, netChange.path, ChangeType.MODIFY, (JsonSerializable) null));
+                }
+            } else if (netChange.dropped) {
+                others.add(new Delta(netChange.originalPath, netChange.path, ChangeType.MODIFY, (JsonSerializable) null));
+            } else if (!isEmpty(netChange.change)) {
+                others.add(new Delta(netChange.originalPath, netChange.path, ChangeType.MODIFY, netChange.change));
+            }
+        }
+
+        deltas.addAll(orderRenames(renames));
+        deltas.addAll(others);
+        return deltas;
+    }
+
+    /**
+     * Order the moves of files so that no file is moved to a path another file
+     * still has. Files moved in a cycle are freed by moving one of them to a
+     * temporary path first.
+     *
+     * @param renames the net changes of moved files
+     * @return the deltas of the moves in order
+     */
+    private static List<Delta> orderRenames(List<NetChange> renames) {
+        List<Delta> deltas = new ArrayList<>();
+        Map<String, NetChange> pending = new LinkedHashMap<>();
+        Map<NetChange, String> fromPaths = new HashMap<>();
+
+        for (NetChange netChange : renames) {
+            pending.put(netChange.originalPath, netChange);
+            fromPaths.put(netChange, netChange.originalPath);
+        }
+
+        while (!pending.isEmpty()) {
+            NetChange next = pending.values().stream().filter(netChange -> !pending.containsKey(netChange.path)).findFirst().orElse(null);
+
+            if (Objects.nonNull(next)) {
+                pending.remove(fromPaths.get(next));
+                deltas.add(new Delta(fromPaths.get(next), next.path, ChangeType.RENAME, next.change));
+            } else {
+                NetChange first = pending.values().iterator().next();
+                String temporaryPath = fromPaths.get(first) + TEMPORARY_SUFFIX;
+                pending.remove(fromPaths.get(first));
+                deltas.add(new Delta(fromPaths.get(first), temporaryPath, ChangeType.RENAME, (JsonSerializable) null));
+                fromPaths.put(first, temporaryPath);
+                pending.put(temporaryPath, first);
+            }
+        }
+
+        return deltas;
+    }
+
+    private static boolean isEmpty(JsonSerializable change) {
+        return Objects.isNull(change) || (change instanceof ClassPatch && ((ClassPatch) change).isEmpty());
+    }
+
+    /**
+     * Get the change of a delta as a class, configuration file or class patch
+     * of its own, so that compacting never modifies the given deltas
+     *
+     * @param delta the delta
+     * @return a copy of the change or null if there is none
+     */
+    private static JsonSerializable changeOf(Delta delta) {
+        return delta.copyChange();
+    }
+
+    /**
+     * Get the contents of an added file, merging adds nothing for an added file
+     * without contents or with a patch, so neither is kept
+     *
+     * @param delta the delta adding the file
+     * @return a copy of the contents or null if there are none
+     */
+    private static ProjectFile contentsOf(Delta delta) {
+        JsonSerializable change = changeOf(delta);
+        return change instanceof ProjectFile ? (ProjectFile) change : null;
+    }
+
+    /**
+     * The net change of a single file over the run
+     */
+    private static class NetChange {
+        /**
+         * The path of the file before the run, null if the file was added in the run
+         */
+        private final String originalPath;
+
+        /**
+         * The path of the file at the current point of the run
+         */
+        private String path;
+
+        /**
+         * The last contents of the file, a class patch against the file before the
+         * run, or null if the contents didn't change or aren't known
+         */
+        private JsonSerializable change;
+
+        /**
+         * Whether the file is removed at the current point of the run
+         */
+        private boolean deleted;
+
+        /**
+         * Whether the file exists but its contents were dropped, a file modified
+         * without contents is removed from the system when merging
+         */
+        private boolean dropped;
+
+        private NetChange(String originalPath, String path) {
+            this.originalPath = originalPath;
+            this.path = path;
+        }
+
+        /**
+         * Update the contents of the file with the change of its next delta,
+         * following what merging the delta does, see {@link edu.university.ecs.lab.intermediate.merge.services.MergeService}
+         *
+         * @param next the change of the delta, whole contents, a patch or null if there is none
+         * @param newPath the path of the file after the delta
+         * @param moved whether the delta is a move, a move without contents keeps the contents
+         */
+        private void update(JsonSerializable next, String newPath, boolean moved) {
+            if (next instanceof ClassPatch) {
+                if (change instanceof ClassPatch) {
+                    change = ((ClassPatch) change).then((ClassPatch) next);
+                } else if (change instanceof JClass) {
+                    ((ClassPatch) next).apply((JClass) change);
+                } else if (Objects.isNull(change) && !dropped) {
+                    change = next;
+                }
+                // Otherwise there is no class to patch, merging skips the patch as well
+            } else if (Objects.nonNull(next)) {
+                change = next;
+                dropped = false;
+            } else if (!moved) {
+                change = null;
+                dropped = true;
+            }
+
+            // The contents are owned by this net change
+            if (change instanceof ProjectFile) {
+                ((ProjectFile) change).setPath(newPath);
+            }
+        }
+    }
+}
@@ -1,23 +1,40 @@
 package edu.university.ecs.lab.delta.services;
 
-import com.google.gson.JsonObject;
 import edu.university.ecs.lab.common.config.Config;
-import edu.university.ecs.lab.common.config.ConfigUtil;
+import edu.university.ecs.lab.common.error.Error;
 import edu.university.ecs.lab.common.models.ir.ConfigFile;
 import edu.university.ecs.lab.common.models.ir.JClass;
 import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.common.models.ir.ProjectFile;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import edu.university.ecs.lab.common.services.ExtractionSession;
 import edu.university.ecs.lab.common.services.GitService;
 import edu.university.ecs.lab.common.services.LoggerManager;
+import edu.university.ecs.lab.common.services.WorkTreeLease;
+import edu.university.ecs.lab.common.services.WorkTreeLeaseException;
 import edu.university.ecs.lab.common.utils.FileUtils;
 import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.common.utils.ParseContext;
 import edu.university.ecs.lab.common.utils.SourceToObjectUtils;
+import edu.university.ecs.lab.common.utils.TypeIndex;
+import edu.university.ecs.lab.delta.models.ClassPatch;
 import edu.university.ecs.lab.delta.models.Delta;
+import edu.university.ecs.lab.delta.models.DeltaOptions;
 import edu.university.ecs.lab.delta.models.SystemChange;
 import edu.university.ecs.lab.delta.models.enums.ChangeType;
+import edu.university.ecs.lab.intermediate.create.services.IRExtractionService;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.File;
-import java.util.List;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Service for extracting the differences between two commits of a repository.
@@ -26,6 +43,21 @@ import java.util.List;
  */
 public class DeltaExtractionService {
     private static final String DEV_NULL = "/dev/null";
+    /**
+     * Parser and type solver state of the working tree files are parsed from
+     */
+    private final ParseContext parseContext;
+
+    /**
+     * Session holding the repository and the summaries of the types of Java blobs
+     */
+    private final ExtractionSession session;
+
+    /**
+     * Fingerprints of parsed classes keyed by blob id, shared between extractions
+     */
+    private final Map<ObjectId, String> classFingerprints;
+
     /**
      * Config object representing the contents of the config file
      */
@@ -61,6 +93,12 @@ public class DeltaExtractionService {
      */
     private String outputPath;
 
+    /**
+     * Type indexes of the microservices of the files parsed at commitNew keyed by
+     * the git path of the file, see {@link IRExtractionService#getTypeIndexes}
+     */
+    private Map<String, TypeIndex> typeIndexes = Map.of();
+
 
     /**
      * Constructor for the DeltaExtractionService
@@ -71,155 +109,582 @@ public class DeltaExtractionService {
      * @param commitNew new commit for comparison
      */
     private DeltaExtractionService(String configPath, String outputPath, String commitOld, String commitNew) {
-        this.config = ConfigUtil.readConfig(configPath);
-        this.gitService = new GitService(configPath);
+        this(new ExtractionSession(configPath), outputPath, commitOld, commitNew);
+    }
+
+    /**
+     * Constructor for the DeltaExtractionService reusing an existing session
+     *
+     * @param session the extraction session to work in
+     * @param outputPath output path for file
+     * @param commitOld old commit for comparison
+     * @param commitNew new commit for comparison
+     */
+    private DeltaExtractionService(ExtractionSession session, String outputPath, String commitOld, String commitNew) {
+        this.parseContext = session.getParseContext();
+        this.session = session;
+        this.classFingerprints = session.getClassFingerprints();
+        this.config = session.getConfig();
+        this.gitService = session.getGitService();
         this.commitOld = commitOld;
         this.commitNew = commitNew;
         this.outputPath = outputPath.isEmpty() ? "./Delta.json" : outputPath;
     }
 
+    /**
+     * Constructor for the DeltaExtractionService parsing files from a
+     * leased working tree checked out at the new commit
+     *
+     * @param session the session holding the open repository and caches
+     * @param lease the working tree checked out at the commit to parse files at
+     * @param commitOld old commit for comparison
+     * @param commitNew new commit for comparison
+     */
+    private DeltaExtractionService(ExtractionSession session, WorkTreeLease lease, String commitOld, String commitNew) {
+        this.parseContext = lease.getParseContext();
+        this.session = session;
+        this.classFingerprints = session.getClassFingerprints();
+        this.config = lease.getConfig();
+        this.gitService = session.getGitService();
+        this.commitOld = commitOld;
+        this.commitNew = commitNew;
+        this.outputPath = "./Delta.json";
+    }
+
     /**
      * Generates Delta file representing changes between commitOld and commitNew
+     *
+     * @param session the session whose working tree is moved between the commits
+     * @param options the optional behaviour of the extraction
      */
-    private void generateDelta() {
+    private void generateDelta(ExtractionSession session, DeltaOptions options) {
         List<DiffEntry> differences = null;
 
         // Ensure we start at commitOld
-        gitService.resetLocal(commitOld);
+        session.checkout(commitOld);
 
         // Get the differences between commits
         differences = gitService.getDifferences(commitOld, commitNew);
 
+        // Parse the old versions of modified classes while still at commitOld
+        Map<String, JClass> oldClasses = parseModifiedClasses(differences, options);
+
         // Advance the local commit for parsing
-        gitService.resetLocal(commitNew);
+        session.checkout(commitNew);
 
         // process/write differences to delta output
-        processDelta(differences);
+        processDelta(differences, oldClasses, options);
 
     }
 
+    /**
+     * Parse the modified classes of a list of differences from the working
+     * tree, which must be checked out at commitOld. Only classes the options
+     * need the old version of are parsed, see {@link #needsOldClass}.
+     *
+     * @param diffEntries list of differences
+     * @param options the optional behaviour of the extraction
+     * @return the parsed classes keyed by their git path
+     */
+    private Map<String, JClass> parseModifiedClasses(List<DiffEntry> diffEntries, DeltaOptions options) {
+        Map<String, JClass> oldClasses = new HashMap<>();
+        List<DiffEntry> modifiedClasses = diffEntries.stream()
+                .filter(entry -> needsOldClass(entry, options, classFingerprints))
+                .collect(Collectors.toList());
+        Map<String, TypeIndex> oldTypeIndexes = getTypeIndexes(commitOld, modifiedClasses.stream()
+                .map(entry -> FileUtils.GIT_SEPARATOR + entry.getOldPath())
+                .collect(Collectors.toSet()));
+
+        for (DiffEntry entry : modifiedClasses) {
+            String path = FileUtils.GIT_SEPARATOR + entry.getOldPath();
+            JClass jClass = parseClass(path, oldTypeIndexes.get(path));
+            if (jClass != null) {
+                oldClasses.put(path, jClass);
+                if (options.isOmitUnchanged() && !parseContext.isParseTimeLimited(jClass.getPath())) {
+                    classFingerprints.put(entry.getOldId().toObjectId(), ClassPatch.fingerprint(jClass));
+                }
+            }
+        }
+
+        return oldClasses;
+    }
+
+    /**
+     * Check if the old version of a difference must be parsed, which is the case
+     * for modified classes extracted as patches or whose fingerprint is unknown
+     *
+     * @param entry the difference
+     * @param options the optional behaviour of the extraction
+     * @param classFingerprints fingerprints of parsed classes keyed by blob id
+     * @return true if the class must be parsed at commitOld
+     */
+    private static boolean needsOldClass(DiffEntry entry, DeltaOptions options, Map<ObjectId, String> classFingerprints) {
+        String path = entry.getOldPath();
+        if (!DiffEntry.ChangeType.MODIFY.equals(entry.getChangeType()) || path.equals("pom.xml")
+                || !FileUtils.isValidFile(path) || FileUtils.isConfigurationFile(path)) {
+            return false;
+        }
+
+        return options.isClassPatches() || (options.isOmitUnchanged() && !classFingerprints.containsKey(entry.getOldId().toObjectId()));
+    }
+
     /**
      * Process differences between commits
      * 
      * @param diffEntries list of differences
+     * @param oldClasses classes at commitOld to compare modified classes against
+     * @param options the optional behaviour of the extraction
      */
-    private void processDelta(List<DiffEntry> diffEntries) {
+    private void processDelta(List<DiffEntry> diffEntries, Map<String, JClass> oldClasses, DeltaOptions options) {
         // Set up a new SystemChangeObject
         systemChange = new SystemChange();
         systemChange.setOldCommit(commitOld);
         systemChange.setNewCommit(commitNew);
-        JsonObject data = null;
+        JsonSerializable change = null;
+
+        typeIndexes = getTypeIndexes(commitNew, diffEntries.stream()
+                .filter(entry -> !DiffEntry.ChangeType.DELETE.equals(entry.getChangeType()))
+                .map(entry -> FileUtils.GIT_SEPARATOR + entry.getNewPath())
+                .filter(path -> FileUtils.isValidFile(path) && !FileUtils.isConfigurationFile(path))
+                .collect(Collectors.toSet()));
 
 
         // process each difference
         for (DiffEntry entry : diffEntries) {
-            // Git path
-            String path = entry.getChangeType().equals(DiffEntry.ChangeType.ADD) ? entry.getNewPath() : entry.getOldPath();
-
-            // Special case for root pom
-            if(path.equals("pom.xml")) {
-                continue;
-            }
-
-            // Guard condition, skip invalid files
-            if(!FileUtils.isValidFile(path)) {
-               continue;
+            ChangeType changeType = ChangeType.fromDiffEntry(entry);
+            String oldPath = changeType.equals(ChangeType.ADD) ? null : entry.getOldPath();
+            String newPath = changeType.equals(ChangeType.DELETE) ? null : entry.getNewPath();
+
+            // Build files define microservices and invalid files are skipped, so a
+            // rename involving either is handled as a removal and an addition
+            if (changeType.equals(ChangeType.RENAME) && (isBuildFile(oldPath) || isBuildFile(newPath)
+                    || !FileUtils.isValidFile(oldPath) || !FileUtils.isValidFile(newPath))) {
+                processEntry(entry, ChangeType.DELETE, oldPath, null, oldClasses, options);
+                processEntry(entry, ChangeType.ADD, null, newPath, oldClasses, options);
+            } else {
+                processEntry(entry, changeType, oldPath, newPath, oldClasses, options);
             }
+        }
 
-            // Setup oldPath, newPath for Delta
-            String oldPath = "";
-            String newPath = "";
+        // Output the system changes
+        // JsonReadWriteUtils.writeToJSON(outputPath, systemChange);
 
-            if (DiffEntry.ChangeType.DELETE.equals(entry.getChangeType())) {
-                oldPath = FileUtils.GIT_SEPARATOR + entry.getOldPath();
-                newPath = DEV_NULL;
+        // Report
+        LoggerManager.info(() -> "Delta changes extracted between " + commitOld + " -> " + commitNew);
 
-            } else if (DiffEntry.ChangeType.ADD.equals(entry.getChangeType())) {
-                oldPath = DEV_NULL;
-                newPath = FileUtils.GIT_SEPARATOR + entry.getNewPath();
+    }
 
-            } else {
-                oldPath = FileUtils.GIT_SEPARATOR + entry.getOldPath();
-                newPath = FileUtils.GIT_SEPARATOR + entry.getNewPath();
+    /**
+     * Process a single difference into a delta
+     *
+     * @param entry the difference
+     * @param changeType the type of change
+     * @param entryOldPath git path of the file at commitOld, null for an addition
+     * @param entryNewPath git path of the file at commitNew, null for a removal
+     * @param oldClasses classes at commitOld to compare modified classes against
+     * @param options the optional behaviour of the extraction
+     */
+    private void processEntry(DiffEntry entry, ChangeType changeType, String entryOldPath, String entryNewPath, Map<String, JClass> oldClasses, DeltaOptions options) {
+        // Git path
+        String path = Objects.isNull(entryOldPath) ? entryNewPath : entryOldPath;
 
-            }
+        // Special case for root pom
+        if(path.equals("pom.xml")) {
+            return;
+        }
 
-            changeType = ChangeType.fromDiffEntry(entry);
+        // Guard condition, skip invalid files
+        if(!FileUtils.isValidFile(path)) {
+           return;
+        }
 
-            switch(changeType) {
-                case ADD:
-                    data = add(newPath);
-                    break;
-                case MODIFY:
-                    data = add(oldPath);
+        // Setup oldPath, newPath for Delta
+        String oldPath = Objects.isNull(entryOldPath) ? DEV_NULL : FileUtils.GIT_SEPARATOR + entryOldPath;
+        String newPath = Objects.isNull(entryNewPath) ? DEV_NULL : FileUtils.GIT_SEPARATOR + entryNewPath;
+        JsonSerializable change = null;
+
+        switch(changeType) {
+            case ADD:
+                change = add(newPath);
+                recordFingerprint(entry, change, options);
+                break;
+            case MODIFY:
+                change = add(oldPath);
+
+                // Leave out classes whose extracted form is the same as at commitOld
+                String fingerprint = recordFingerprint(entry, change, options);
+                if (fingerprint != null && fingerprint.equals(oldFingerprint(entry, oldClasses.get(oldPath)))) {
+                    LoggerManager.debug(() -> "[Unchanged] " + oldPath + " at " + commitOld + " -> " + commitNew);
+                    return;
+                }
+
+                if (options.isClassPatches() && change instanceof JClass && oldClasses.containsKey(oldPath)) {
+                    // Falls back to the whole class if the class itself changed
+                    ClassPatch classPatch = ClassPatch.diff(oldClasses.get(oldPath), (JClass) change);
+                    if (classPatch != null) {
+                        change = classPatch;
+                    }
+                }
+                break;
+            case RENAME:
+                // A file moved without changes is not parsed, the merged one is moved instead
+                if (isMove(entry)) {
                     break;
-                case DELETE:
-                    data = delete();
-            }
+                }
+                change = add(newPath);
+                if (change == null) {
+                    systemChange.getChanges().add(new Delta(oldPath, DEV_NULL, ChangeType.DELETE, delete()));
+                    systemChange.getChanges().add(new Delta(DEV_NULL, newPath, ChangeType.ADD, change));
+                    return;
+                }
+                break;
+            case DELETE:
+                change = delete();
+        }
+
+        systemChange.getChanges().add(new Delta(oldPath, newPath, changeType, change));
+    }
+
+    /**
+     * Record the fingerprint of a newly parsed class under its blob id if
+     * unchanged classes are left out and the class did not hit the parse time limit
+     *
+     * @param entry the difference the class was parsed from at commitNew
+     * @param change the parsed file
+     * @param options the optional behaviour of the extraction
+     * @return the fingerprint or null if no fingerprint is recorded
+     */
+    private String recordFingerprint(DiffEntry entry, JsonSerializable change, DeltaOptions options) {
+        if (!options.isOmitUnchanged() || !(change instanceof JClass)) {
+            return null;
+        }
 
-            systemChange.getChanges().add(new Delta(oldPath, newPath, changeType, data));
+        // Only the declarations of a class that hit the parse time limit were kept, they may differ next time
+        if (parseContext.isParseTimeLimited(((JClass) change).getPath())) {
+            return null;
         }
 
-        // Output the system changes
-        // JsonReadWriteUtils.writeToJSON(outputPath, systemChange);
+        String fingerprint = ClassPatch.fingerprint((JClass) change);
+        classFingerprints.put(entry.getNewId().toObjectId(), fingerprint);
+        return fingerprint;
+    }
 
-        // Report
-        LoggerManager.info(() -> "Delta changes extracted between " + commitOld + " -> " + commitNew);
+    /**
+     * Get the fingerprint of a class at commitOld, from the fingerprints of
+     * known blobs or else from its parsed version
+     *
+     * @param entry the difference
+     * @param oldClass the class parsed at commitOld or null
+     * @return the fingerprint or null if the class at commitOld is unknown
+     */
+    private String oldFingerprint(DiffEntry entry, JClass oldClass) {
+        String fingerprint = classFingerprints.get(entry.getOldId().toObjectId());
+        return fingerprint == null && oldClass != null ? ClassPatch.fingerprint(oldClass) : fingerprint;
+    }
+
+    /**
+     * Check if a difference is a move of a file to another directory
+     * without any change to the file itself
+     *
+     * @param entry the difference
+     * @return true if the file was moved unchanged
+     */
+    private static boolean isMove(DiffEntry entry) {
+        return entry.getScore() == 100
+                && new File(entry.getOldPath()).getName().equals(new File(entry.getNewPath()).getName());
+    }
 
+    private static boolean isBuildFile(String path) {
+        return path.endsWith("pom.xml") || path.endsWith("build.gradle");
     }
 
     /**
-     * This method parses a newly added file into a JsonObject containing
-     * the data of the change (updated file). Returns a blank JsonObject if
-     * parsing fails (returns null).
+     * This method parses a newly added file into the class or configuration
+     * file of the change (updated file). Returns null if parsing fails.
      *
      * @param newPath git path of new file
-     * @return JsonObject of data of the new file
+     * @return the parsed new file or null
      */
-    private JsonObject add(String newPath) {
+    private ProjectFile add(String newPath) {
         // Check if it is a configuration file
         if(FileUtils.isConfigurationFile(newPath)) {
-            ConfigFile configFile = SourceToObjectUtils.parseConfigurationFile(new File(FileUtils.gitPathToLocalPath(newPath, config.getRepoName())), config);
+            ConfigFile configFile = SourceToObjectUtils.parseConfigurationFile(new File(FileUtils.gitPathToLocalPath(newPath, config.getWorkTreeName())), config);
             if(configFile == null || configFile.getData() == null) {
-                return new JsonObject();
+                return null;
             } else {
-                return configFile.toJsonObject();
+                return configFile;
             }
 
         // Else it is a Java file
         } else {
-            JClass jClass = SourceToObjectUtils.parseClass(new File(FileUtils.gitPathToLocalPath(newPath, config.getRepoName())), config, "");
-            if(jClass == null) {
-                return new JsonObject();
-            } else {
-                return jClass.toJsonObject();
-            }
+            return parseClass(newPath, typeIndexes.get(newPath));
         }
 
     }
 
+    /**
+     * Get the type indexes of the microservices of Java files at a commit the
+     * working tree is checked out at, see {@link IRExtractionService#getTypeIndexes}
+     *
+     * @param commitID the commit the working tree is checked out at
+     * @param paths the git paths of the Java files
+     * @return the type indexes keyed by the git path of the file
+     */
+    private Map<String, TypeIndex> getTypeIndexes(String commitID, Set<String> paths) {
+        return paths.isEmpty() ? Map.of() : IRExtractionService.getTypeIndexes(session, parseContext, commitID, paths);
+    }
+
+    /**
+     * Parse a class of the working tree with the name and type index of its microservice
+     * and without the types of the other microservices, so that it is parsed as it is
+     * when the IR is extracted
+     *
+     * @param path git path of the class
+     * @param typeIndex the type index of its microservice, null if it is in none
+     * @return the parsed class or null
+     */
+    private JClass parseClass(String path, TypeIndex typeIndex) {
+        String microservicePath = parseContext.findMicroservicePath(path);
+        String microserviceName = Objects.isNull(microservicePath) ? ""
+                : FileUtils.getMicroserviceNameFromPath(FileUtils.gitPathToLocalPath(microservicePath, config.getWorkTreeName()));
+
+        parseContext.setTypeIndex(typeIndex);
+        parseContext.setMicroservicePath(microservicePath);
+        try {
+            return SourceToObjectUtils.parseClass(new File(FileUtils.gitPathToLocalPath(path, config.getWorkTreeName())), parseContext, microserviceName);
+        } finally {
+            parseContext.setTypeIndex(null);
+            parseContext.setMicroservicePath(null);
+        }
+    }
+
     private SystemChange getSystemChange() {
         return this.systemChange;
     }
 
     /**
-     * This method returns a blank JsonObject() as there is no data to parse
+     * This method returns null as there is no data to parse
      *
-     * @return JsonObject that is empty
+     * @return null
      */
-    private JsonObject delete() {
-        return new JsonObject();
+    private ProjectFile delete() {
+        return null;
     }
 
     public static SystemChange create(String configPath, String oldCommit, String newCommit) {
-        DeltaExtractionService extractionService = new DeltaExtractionService(configPath, "", oldCommit, newCommit);
-        extractionService.generateDelta();
+        try (ExtractionSession session = new ExtractionSession(configPath)) {
+            return create(session, oldCommit, newCommit);
+        }
+    }
+
+    /**
+     * Extract the changes between two commits using an existing session
+     *
+     * @param session the extraction session to work in
+     * @param oldCommit old commit for comparison
+     * @param newCommit new commit for comparison
+     * @return the system change between the two commits
+     */
+    public static SystemChange create(ExtractionSession session, String oldCommit, String newCommit) {
+        return create(session, oldCommit, newCommit, false);
+    }
+
+    /**
+     * Extract the changes between two commits using an existing session. If
+     * classPatches is set, modified classes are extracted as a {@link ClassPatch}
+     * against their version at the old commit instead of as the whole class.
+     *
+     * @param session the extraction session to work in
+     * @param oldCommit old commit for comparison
+     * @param newCommit new commit for comparison
+     * @param classPatches whether modified classes are extracted as patches
+     * @return the system change between the two commits
+     */
+    public static SystemChange create(ExtractionSession session, String oldCommit, String newCommit, boolean classPatches) {
+        return create(session, oldCommit, newCommit, new DeltaOptions(classPatches, false));
+    }
+
+    /**
+     * Extract the changes between two commits using an existing session, with
+     * the optional behaviour of the extraction set in the options
+     *
+     * @param session the extraction session to work in
+     * @param oldCommit old commit for comparison
+     * @param newCommit new commit for comparison
+     * @param options the optional behaviour of the extraction
+     * @return the system change between the two commits
+     */
+    public static SystemChange create(ExtractionSession session, String oldCommit, String newCommit, DeltaOptions options) {
+        DeltaExtractionService extractionService = new DeltaExtractionService(session, "", oldCommit, newCommit);
+        extractionService.generateDelta(session, options);
         return extractionService.getSystemChange();
     }
 
     public static void createAndWrite(String configPath, String oldCommit, String newCommit, String outputPath) {
         SystemChange systemChange = DeltaExtractionService.create(configPath, oldCommit, newCommit);
-        JsonReadWriteUtils.writeToJSON(outputPath, systemChange);
+        JsonReadWriteUtils.writeToJSON(outputPath, systemChange.toJsonObject());
+    }
+
+    /**
+     * Extract the changes between two commits using an existing session and write them to file
+     *
+     * @param session the extraction session to work in
+     * @param oldCommit old commit for comparison
+     * @param newCommit new commit for comparison
+     * @param outputPath the path of the output file
+     */
+    public static void createAndWrite(ExtractionSession session, String oldCommit, String newCommit, String outputPath) {
+        SystemChange systemChange = DeltaExtractionService.create(session, oldCommit, newCommit);
+        JsonReadWriteUtils.writeToJSON(outputPath, systemChange.toJsonObject());
+    }
+
+    /**
+     * Extract the changes between every consecutive pair of a range of commits and
+     * write each of them to outputDirectory/Delta_&lt;index&gt;.json, see
+     * {@link #createRange(ExtractionSession, List, int, Consumer)}
+     *
+     * @param configPath path to the config file
+     * @param commits the commits of the range in order, oldest first
+     * @param outputDirectory the directory to write the system changes to
+     * @return the output paths in the order of the pairs
+     */
+    public static List<String> createAndWriteRange(String configPath, List<String> commits, String outputDirectory) {
+        List<String> outputPaths = new ArrayList<>();
+
+        try (ExtractionSession session = new ExtractionSession(configPath)) {
+            createRange(session, commits, Runtime.getRuntime().availableProcessors(), systemChange -> {
+                String outputPath = Paths.get(outputDirectory, "Delta_" + (outputPaths.size() + 1) + ".json").toString();
+                JsonReadWriteUtils.writeToJSON(outputPath, systemChange.toJsonObject());
+                outputPaths.add(outputPath);
+            });
+        }
+
+        return outputPaths;
+    }
+
+    /**
+     * Extract the changes between every consecutive pair of a range of commits as a
+     * pipeline of three overlapping stages. Tree differences of upcoming pairs are
+     * computed ahead on a single thread, the changed files of each pair are parsed on a
+     * pool of workers in a working tree leased at the newer commit, and the finished
+     * system changes are handed to the consumer in the order of the range on the
+     * calling thread. The session's own working tree is left untouched.
+     *
+     * @param session the extraction session providing the repository
+     * @param commits the commits of the range in order, oldest first
+     * @param parallelism the maximum number of pairs parsed at once
+     * @param consumer receives each system change in order
+     */
+    public static void createRange(ExtractionSession session, List<String> commits, int parallelism, Consumer<SystemChange> consumer) {
+        createRange(session, commits, parallelism, false, consumer);
+    }
+
+    /**
+     * Extract the changes between every consecutive pair of a range of commits, see
+     * {@link #createRange(ExtractionSession, List, int, Consumer)}. If classPatches is set,
+     * modified classes are extracted as a {@link ClassPatch}, parsing their old version
+     * in a working tree leased at the older commit of the pair first.
+     *
+     * @param session the extraction session providing the repository
+     * @param commits the commits of the range in order, oldest first
+     * @param parallelism the maximum number of pairs parsed at once
+     * @param classPatches whether modified classes are extracted as patches
+     * @param consumer receives each system change in order
+     */
+    public static void createRange(ExtractionSession session, List<String> commits, int parallelism, boolean classPatches, Consumer<SystemChange> consumer) {
+        createRange(session, commits, parallelism, new DeltaOptions(classPatches, false), consumer);
+    }
+
+    /**
+     * Extract the changes between every consecutive pair of a range of commits, see
+     * {@link #createRange(ExtractionSession, List, int, Consumer)}, with the optional
+     * behaviour of the extraction set in the options. Old versions of modified classes
+     * the options need are parsed in a working tree leased at the older commit first.
+     *
+     * @param session the extraction session providing the repository
+     * @param commits the commits of the range in order, oldest first
+     * @param parallelism the maximum number of pairs parsed at once
+     * @param options the optional behaviour of the extraction
+     * @param consumer receives each system change in order
+     * @throws WorkTreeLeaseException if the working tree of a pair can't be leased, the changes before it have been consumed
+     */
+    public static void createRange(ExtractionSession session, List<String> commits, int parallelism, DeltaOptions options, Consumer<SystemChange> consumer) {
+        if (commits.size() < 2) {
+            return;
+        }
+
+        GitService gitService = session.getGitService();
+        int workers = Math.max(1, Math.min(parallelism, commits.size() - 1));
+        ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(workers);
+
+        try {
+            // Stage 1, compute the differences of every pair ahead of parsing
+            List<Future<List<DiffEntry>>> differences = new ArrayList<>();
+            for (int i = 1; i < commits.size(); i++) {
+                String commitOld = commits.get(i - 1);
+                String commitNew = commits.get(i);
+                differences.add(diffExecutor.submit(() -> gitService.getDifferences(commitOld, commitNew)));
+            }
+
+            // Stage 2, parse pairs concurrently while stage 3 emits finished ones in order
+            Deque<Future<SystemChange>> pending = new ArrayDeque<>();
+            for (int i = 1; i < commits.size(); i++) {
+                String commitOld = commits.get(i - 1);
+                String commitNew = commits.get(i);
+                Future<List<DiffEntry>> diffEntries = differences.get(i - 1);
+                pending.add(parseExecutor.submit(() -> createInWorkTree(session, commitOld, commitNew, diffEntries.get(), options)));
+
+                // Bound the number of finished changes waiting to be emitted
+                while (pending.size() > workers * 2) {
+                    consumer.accept(pending.poll().get());
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                consumer.accept(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Error.reportAndExit(Error.UNKNOWN_ERROR, Optional.of(e));
+        } catch (ExecutionException e) {
+            // The range can't go on past a pair that wasn't extracted, the caller decides what to do about it
+            if (e.getCause() instanceof WorkTreeLeaseException) {
+                throw (WorkTreeLeaseException) e.getCause();
+            }
+            Error.reportAndExit(Error.UNKNOWN_ERROR, Optional.of(e));
+        } finally {
+            diffExecutor.shutdownNow();
+            parseExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Process the differences of a pair in a working tree leased at the new commit
+     *
+     * @param session the extraction session providing the repository
+     * @param commitOld old commit for comparison
+     * @param commitNew new commit for comparison
+     * @param diffEntries the differences between the commits
+     * @param options the optional behaviour of the extraction
+     * @return the system change between the two commits
+     */
+    private static SystemChange createInWorkTree(ExtractionSession session, String commitOld, String commitNew, List<DiffEntry> diffEntries, DeltaOptions options) {
+        Map<ObjectId, String> classFingerprints = session.getClassFingerprints();
+        Map<String, JClass> oldClasses = new HashMap<>();
+
+        // Old versions are parsed in a lease of their own, which is released before the next one is taken
+        if (diffEntries.stream().anyMatch(entry -> needsOldClass(entry, options, classFingerprints))) {
+            try (WorkTreeLease lease = session.acquire(commitOld)) {
+                oldClasses = new DeltaExtractionService(session, lease, commitOld, commitNew).parseModifiedClasses(diffEntries, options);
+            }
+        }
+
+        try (WorkTreeLease lease = session.acquire(commitNew)) {
+            DeltaExtractionService extractionService = new DeltaExtractionService(session, lease, commitOld, commitNew);
+            extractionService.processDelta(diffEntries, oldClasses, options);
+            return extractionService.getSystemChange();
+        }
     }
 
     public static SystemChange read(String fPath) {
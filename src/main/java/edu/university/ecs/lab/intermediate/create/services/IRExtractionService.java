@@ -1,30 +1,46 @@
 package edu.university.ecs.lab.intermediate.create.services;
 
 import edu.university.ecs.lab.common.config.Config;
-import edu.university.ecs.lab.common.config.ConfigUtil;
 import edu.university.ecs.lab.common.error.Error;
 import edu.university.ecs.lab.common.models.ir.ConfigFile;
 import edu.university.ecs.lab.common.models.ir.JClass;
 import edu.university.ecs.lab.common.models.ir.Microservice;
 import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.common.services.ExtractionSession;
 import edu.university.ecs.lab.common.services.GitService;
 import edu.university.ecs.lab.common.services.LoggerManager;
+import edu.university.ecs.lab.common.services.MicroserviceCache;
+import edu.university.ecs.lab.common.services.WorkTreeLease;
+import edu.university.ecs.lab.common.services.WorkTreeLeaseException;
 import edu.university.ecs.lab.common.utils.FileUtils;
 import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.common.utils.ParseContext;
 import edu.university.ecs.lab.common.utils.SourceToObjectUtils;
+import edu.university.ecs.lab.common.utils.TypeIndex;
 import edu.university.ecs.lab.delta.models.SystemChange;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import lombok.extern.java.Log;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 
 
 /**
@@ -32,6 +48,26 @@ import org.w3c.dom.NodeList;
  * are allowed to exit the program with an error code if an error occurs.
  */
 public class IRExtractionService {
+    private static final String POM_FILE = "pom.xml";
+    private static final String GRADLE_FILE = "build.gradle";
+    private static final String TREE_ID_SEPARATOR = "+";
+    private static final String GRADLE_SETTINGS_FILE = "settings.gradle";
+    private static final String MODULES_TAG = "modules";
+    private static final String JAVA_EXTENSION = ".java";
+    private static final Pattern GRADLE_INCLUDE_PATTERN = Pattern.compile("(?m)^\\s*include\\b\\s*\\(?([^\\n]*)");
+    private static final Pattern GRADLE_PROJECT_PATTERN = Pattern.compile("['\"]([^'\"]+)['\"]");
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Parser and type solver state of the working tree being scanned
+     */
+    private final ParseContext parseContext;
+
     /**
      * Service to handle cloning from git
      */
@@ -42,11 +78,37 @@ public class IRExtractionService {
      */
     private final Config config;
 
+    /**
+     * Extracted microservices to reuse for folders with an unchanged tree
+     */
+    private final MicroserviceCache microserviceCache;
+
+    /**
+     * Summaries of the types declared in Java blobs keyed by blob id
+     */
+    private final Map<String, List<TypeIndex.TypeSummary>> typeSummaries;
+
     /**
      * CommitID of IR Extraction
      */
     private final String commitID;
 
+    /**
+     * Blob ids of the files found in the tree of the commit keyed by their git path
+     */
+    private Map<String, String> blobIds = Map.of();
+
+    /**
+     * Git paths and blob ids of the Java files outside of every microservice, which
+     * the type solver resolves from the whole working tree, see {@link #getTreeId(String)}
+     */
+    private List<String> sharedSourceIds = List.of();
+
+    /**
+     * Whether a file scanned so far hit the parse time limit, see {@link Config#getMaxParseMillis()}
+     */
+    private boolean parseTimeLimited;
+
     /**
      * This constructor initializes a new IRExtractionService and instantiates a
      * GitService object for repository manipulation
@@ -56,16 +118,61 @@ public class IRExtractionService {
      * @see GitService
      */
     public IRExtractionService(String configPath, Optional<String> commitID) {
-        gitService = new GitService(configPath);
+        this(new ExtractionSession(configPath), commitID);
+    }
+
+    /**
+     * This constructor initializes a new IRExtractionService that reuses the
+     * repository, configuration and parser state of an existing session
+     *
+     * @param session the extraction session to work in
+     * @param commitID optional commitID for extraction, if empty resolves to HEAD
+     * @see ExtractionSession
+     */
+    public IRExtractionService(ExtractionSession session, Optional<String> commitID) {
+        this.parseContext = session.getParseContext();
+        this.gitService = session.getGitService();
+        this.config = session.getConfig();
+        this.microserviceCache = session.getMicroserviceCache();
+        this.typeSummaries = session.getTypeSummaries();
 
         if(commitID.isPresent()) {
             this.commitID = commitID.get();
-            gitService.resetLocal(this.commitID);
+            session.checkout(this.commitID);
         } else {
             this.commitID = gitService.getHeadCommit();
+            parseContext.setCommitID(this.commitID);
         }
+    }
 
-        config = ConfigUtil.readConfig(configPath);
+    /**
+     * This constructor initializes a new IRExtractionService that scans a
+     * leased working tree instead of the clone itself
+     *
+     * @param session the session holding the open repository and caches
+     * @param lease the working tree checked out at the commit to extract
+     * @param commitID the commitID to record for the extraction
+     * @see WorkTreeLease
+     */
+    private IRExtractionService(ExtractionSession session, WorkTreeLease lease, String commitID) {
+        this(session, lease.getParseContext(), commitID);
+    }
+
+    /**
+     * This constructor initializes a new IRExtractionService that scans the
+     * working tree of a parse context, which must be checked out at the commit
+     *
+     * @param session the session holding the open repository and caches
+     * @param parseContext the parser state of the working tree
+     * @param commitID the commitID to record for the extraction
+     */
+    private IRExtractionService(ExtractionSession session, ParseContext parseContext, String commitID) {
+        this.parseContext = parseContext;
+        this.gitService = session.getGitService();
+        this.config = parseContext.getConfig();
+        this.microserviceCache = session.getMicroserviceCache();
+        this.typeSummaries = session.getTypeSummaries();
+        this.commitID = commitID;
     }
 
     /**
@@ -97,26 +204,12 @@ public class IRExtractionService {
         // Clone the repository present in the configuration file
         gitService.cloneRemote();
 
-        // Start scanning from the root directory
-        List<String> rootDirectories = findRootDirectories(FileUtils.getRepositoryPath(config.getRepoName()));
-        List<String> rootDirectoriesCopy = List.copyOf(rootDirectories);
-
-        // Filter more/less specific
-        for(String s1 : rootDirectoriesCopy) {
-            for(String s2 : rootDirectoriesCopy) {
-                if(s1.equals(s2)) {
-                    continue;
-                } else if(s1.matches(s2.replace(FileUtils.SYS_SEPARATOR, FileUtils.SPECIAL_SEPARATOR) + FileUtils.SPECIAL_SEPARATOR + ".*")) {
-                    rootDirectories.remove(s2);
-                } else if(s2.matches(s1.replace(FileUtils.SYS_SEPARATOR, FileUtils.SPECIAL_SEPARATOR) + FileUtils.SPECIAL_SEPARATOR + ".*")) {
-                    rootDirectories.remove(s1);
-                }
-            }
-        }
+        // Find the microservices and their files in a single pass over the commit's tree
+        Map<String, List<String>> microserviceFiles = discoverFiles();
 
         // Scan each root directory for microservices
-        for (String rootDirectory : rootDirectories) {
-            Microservice microservice = recursivelyScanFiles(rootDirectory);
+        for (Map.Entry<String, List<String>> entry : microserviceFiles.entrySet()) {
+            Microservice microservice = scanOrReuse(entry.getKey(), entry.getValue());
             if (microservice != null) {
                 microservices.add(microservice);
             }
@@ -126,58 +219,316 @@ public class IRExtractionService {
     }
 
     /**
-     * Recursively search for directories containing a microservice (pom.xml file)
+     * Reuse the microservice extracted from the same git tree if there is one,
+     * otherwise parse its files and record its tree id
+     *
+     * @param path the git path of the microservice root directory
+     * @param files the git paths of the files of the microservice
+     * @return model of a single service
+     */
+    private Microservice scanOrReuse(String path, List<String> files) {
+        String treeId = getTreeId(path);
+
+        if (treeId != null) {
+            Microservice microservice = microserviceCache.get(path, treeId);
+            if (microservice != null) {
+                LoggerManager.info(() -> "Reused unchanged microservice " + path + " at " + commitID);
+                return microservice;
+            }
+        }
+
+        Microservice microservice = scanFiles(path, files);
+
+        // A microservice with files that hit the parse time limit is left without a tree id, so it is never reused
+        if (files.stream().anyMatch(parseContext::isParseTimeLimited)) {
+            parseTimeLimited = true;
+            return microservice;
+        }
+
+        microservice.setTreeId(treeId);
+        microserviceCache.put(microservice);
+
+        return microservice;
+    }
+
+    /**
+     * Get the id of the git tree of a microservice folder, followed by a digest of the
+     * files outside of the folder that decide its extraction as well: the .gitignore
+     * files above the folder if they are respected, which decide the files extracted,
+     * and the Java files outside of every microservice, which the type solver rooted at
+     * the working tree may resolve types from. The type solver leaves the types of the
+     * other microservices unsolved, so their files are left out and a change to one
+     * microservice does not rescan the others.
+     *
+     * @param path the git path of the microservice root directory
+     * @return the tree id or null if the folder has no tree
+     */
+    private String getTreeId(String path) {
+        String treeId = gitService.getTreeId(commitID, path);
+        if (Objects.isNull(treeId)) {
+            return null;
+        }
+
+        List<String> outsideIds = new ArrayList<>(gitService.getParentIgnoreFileIds(commitID, path));
+        outsideIds.addAll(sharedSourceIds);
+        if (outsideIds.isEmpty()) {
+            return treeId;
+        }
+
+        return treeId + TREE_ID_SEPARATOR + UUID.nameUUIDFromBytes(String.join(",", outsideIds).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Find the microservices and the files belonging to each of them from the tree of
+     * the commit. A directory with a pom.xml without modules or a build.gradle file is
+     * a microservice, except that a Gradle build including projects in its
+     * settings.gradle makes the included projects the microservices instead. Where
+     * microservices are nested only the most specific one is kept, and files outside
+     * of every microservice are left out.
      *
-     * @param directory the directory to start the search from
-     * @return a list of directory paths containing pom.xml
-     */
-    private List<String> findRootDirectories(String directory) {
-        List<String> rootDirectories = new ArrayList<>();
-        File root = new File(directory);
-        if (root.exists() && root.isDirectory()) {
-            // Check if the current directory contains a Dockerfile
-            File[] files = root.listFiles();
-            boolean containsPom = false;
-            boolean containsGradle = false;
+     * @return the git paths of the files keyed by the git path of their microservice
+     */
+    private Map<String, List<String>> discoverFiles() {
+        blobIds = gitService.getValidFilePaths(commitID);
+        Set<String> paths = blobIds.keySet();
+        RootTrie rootTrie = new RootTrie();
+
+        for (String path : paths) {
+            if (path.endsWith(FileUtils.GIT_SEPARATOR + POM_FILE)) {
+                if (!isAggregatorPom(path)) {
+                    rootTrie.add(parentOf(path));
+                }
+            } else if (path.endsWith(FileUtils.GIT_SEPARATOR + GRADLE_FILE)) {
+                String directory = parentOf(path);
+                List<String> includes = getGradleIncludes(directory);
+
+                if (includes.isEmpty()) {
+                    rootTrie.add(directory);
+                } else {
+                    includes.forEach(include -> rootTrie.add(directory + FileUtils.GIT_SEPARATOR + include));
+                }
+            }
+        }
+
+        Map<String, List<String>> microserviceFiles = rootTrie.getRoots();
+        List<String> sharedSourceIds = new ArrayList<>();
+        for (String path : paths) {
+            List<String> files = rootTrie.find(path);
             if (files != null) {
-                for (File file : files) {
-                    if (file.isFile() && file.getName().equals("pom.xml")) {
-                        try {
-
-                            // Create a DocumentBuilder
-                            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-
-                            // Parse the XML file
-                            Document document = builder.parse(file);
-
-                            // Normalize the XML Structure
-                            document.getDocumentElement().normalize();
-
-                            // Get all elements with the specific tag name
-                            NodeList nodeList = document.getElementsByTagName("modules");
-                            // Check if the tag is present
-                            if (nodeList.getLength() == 0) {
-                                containsPom = true;
-                            }
-                        } catch (Exception e) {
-                            throw new RuntimeException("Error parsing pom.xml");
-                        }
-                    } else if(file.isFile() && file.getName().equals("build.gradle")) {
-                        containsGradle = true;
-                    } else if (file.isDirectory()) {
-                        rootDirectories.addAll(findRootDirectories(file.getPath()));
+                files.add(path);
+            } else if (path.endsWith(JAVA_EXTENSION)) {
+                sharedSourceIds.add(path + "=" + blobIds.get(path));
+            }
+        }
+        this.sharedSourceIds = sharedSourceIds;
+
+        // Included projects may not exist in the tree
+        microserviceFiles.values().removeIf(List::isEmpty);
+        parseContext.setMicroservicePaths(microserviceFiles.keySet());
+
+        return microserviceFiles;
+    }
+
+    /**
+     * Get the git path of the directory containing a file or directory,
+     * the repository root being the empty path
+     *
+     * @param path the git path
+     * @return the git path of the parent directory
+     */
+    private static String parentOf(String path) {
+        return path.substring(0, path.lastIndexOf(FileUtils.GIT_SEPARATOR));
+    }
+
+    /**
+     * Check whether a pom.xml file lists modules, in which case it only aggregates
+     * other microservices. The file is streamed only up to the first modules tag.
+     *
+     * @param path the git path of the pom.xml file
+     * @return true if the pom.xml file has a modules tag
+     */
+    private boolean isAggregatorPom(String path) {
+        XMLStreamReader reader = null;
+
+        try (InputStream inputStream = new FileInputStream(FileUtils.gitPathToLocalPath(path, config.getWorkTreeName()))) {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(MODULES_TAG)) {
+                    return true;
+                }
+            }
+
+            return false;
+        } catch (Exception e) {
+            throw new RuntimeException("Error parsing pom.xml");
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the directories of the projects included by the settings.gradle file
+     * next to a build.gradle file, relative to the directory of the build
+     *
+     * @param directory the git path of the directory of the build.gradle file
+     * @return the relative git paths of the included projects, empty if there are none
+     */
+    private List<String> getGradleIncludes(String directory) {
+        File settingsFile = new File(FileUtils.gitPathToLocalPath(directory + FileUtils.GIT_SEPARATOR + GRADLE_SETTINGS_FILE, config.getWorkTreeName()));
+        List<String> includes = new ArrayList<>();
+
+        if (!settingsFile.isFile()) {
+            return includes;
+        }
+
+        try {
+            Matcher includeMatcher = GRADLE_INCLUDE_PATTERN.matcher(Files.readString(settingsFile.toPath()));
+            while (includeMatcher.find()) {
+                Matcher projectMatcher = GRADLE_PROJECT_PATTERN.matcher(includeMatcher.group(1));
+                while (projectMatcher.find()) {
+                    String project = projectMatcher.group(1).replaceAll("^:+", "").replace(":", FileUtils.GIT_SEPARATOR);
+                    if (!project.isEmpty()) {
+                        includes.add(project);
                     }
                 }
             }
-            if (containsPom) {
-                rootDirectories.add(root.getPath());
-                return rootDirectories;
-            } else if (containsGradle){
-                rootDirectories.add(root.getPath());
-                return rootDirectories;
+        } catch (IOException e) {
+            LoggerManager.warn(() -> "Failed to read " + settingsFile.getPath());
+        }
+
+        return includes;
+    }
+
+    /**
+     * Parse the given files of a single microservice and extract the endpoints and dependencies.
+     *
+     * @param path the git path of the microservice root directory
+     * @param files the git paths of the files of the microservice
+     * @return model of a single service containing the extracted endpoints and dependencies
+     */
+    private Microservice scanFiles(String path, List<String> files) {
+        String rootMicroservicePath = FileUtils.gitPathToLocalPath(path, config.getWorkTreeName());
+        Microservice microservice = new Microservice(FileUtils.getMicroserviceNameFromPath(rootMicroservicePath), path);
+        scanFiles(microservice, files);
+
+        LoggerManager.info(() -> "Done scanning directory  " + rootMicroservicePath);
+        return microservice;
+    }
+
+    /**
+     * Parse the given files into a microservice.
+     *
+     * @param microservice the microservice to add the parsed files to
+     * @param files the git paths of the files of the microservice
+     */
+    private void scanFiles(Microservice microservice, List<String> files) {
+        // Inherited fields are looked up in the declarations of the whole microservice
+        parseContext.setTypeIndex(buildTypeIndex(files));
+        parseContext.setMicroservicePath(microservice.getPath());
+
+        for (String filePath : files) {
+            File file = new File(FileUtils.gitPathToLocalPath(filePath, config.getWorkTreeName()));
+
+            if (FileUtils.isConfigurationFile(filePath)) {
+                ConfigFile configFile = SourceToObjectUtils.parseConfigurationFile(file, config);
+                if (configFile != null) {
+                    microservice.getFiles().add(configFile);
+                }
+            } else {
+                JClass jClass = SourceToObjectUtils.parseClass(file, parseContext, microservice.getName());
+                if (jClass != null) {
+                    microservice.addJClass(jClass);
+                }
             }
         }
-        return rootDirectories;
+
+        parseContext.setTypeIndex(null);
+        parseContext.setMicroservicePath(null);
+    }
+
+    /**
+     * Build the type index of a microservice from the declarations of its Java files.
+     * Summaries are reused for every file whose blob was summarized before, so only
+     * files changed since an earlier commit are parsed again.
+     *
+     * @param files the git paths of the files of the microservice
+     * @return the type index
+     */
+    private TypeIndex buildTypeIndex(List<String> files) {
+        List<List<TypeIndex.TypeSummary>> summaries = new ArrayList<>();
+
+        for (String filePath : files) {
+            if (!filePath.endsWith(JAVA_EXTENSION)) {
+                continue;
+            }
+
+            String blobId = blobIds.get(filePath);
+            List<TypeIndex.TypeSummary> fileSummaries = Objects.isNull(blobId) ? null : typeSummaries.get(blobId);
+            if (Objects.isNull(fileSummaries)) {
+                fileSummaries = summarizeFile(new File(FileUtils.gitPathToLocalPath(filePath, config.getWorkTreeName())));
+                if (Objects.nonNull(blobId)) {
+                    typeSummaries.put(blobId, fileSummaries);
+                }
+            }
+
+            summaries.add(fileSummaries);
+        }
+
+        return new TypeIndex(summaries);
+    }
+
+    /**
+     * Build the type index of the microservice of each of the given files at a commit,
+     * the same way as when the IR at the commit is extracted. Files parsed on their own,
+     * as for a delta, are parsed with the index of their microservice so that they are
+     * extracted as they are in the IR. The microservices found are also recorded in
+     * the parse context, see {@link ParseContext#findMicroservicePath(String)}.
+     *
+     * @param session the session holding the repository and the type summaries
+     * @param parseContext the parser state of a working tree checked out at the commit
+     * @param commitID the commit
+     * @param paths the git paths of the files
+     * @return the type indexes of the files inside a microservice keyed by their git path
+     */
+    public static Map<String, TypeIndex> getTypeIndexes(ExtractionSession session, ParseContext parseContext, String commitID, Collection<String> paths) {
+        IRExtractionService extractionService = new IRExtractionService(session, parseContext, commitID);
+        Map<String, TypeIndex> typeIndexes = new HashMap<>();
+
+        for (List<String> files : extractionService.discoverFiles().values()) {
+            List<String> parsed = files.stream().filter(paths::contains).collect(Collectors.toList());
+            if (!parsed.isEmpty()) {
+                TypeIndex typeIndex = extractionService.buildTypeIndex(files);
+                parsed.forEach(path -> typeIndexes.put(path, typeIndex));
+            }
+        }
+
+        return typeIndexes;
+    }
+
+    /**
+     * Summarize the types declared in a Java file, files over the size limit
+     * or that can't be parsed declare nothing
+     *
+     * @param file the Java file
+     * @return the summaries of the declared types
+     */
+    private List<TypeIndex.TypeSummary> summarizeFile(File file) {
+        if (config.getMaxFileBytes() > 0 && file.length() > config.getMaxFileBytes()) {
+            return List.of();
+        }
+
+        try {
+            return parseContext.getJavaParser().parse(file).getResult().map(TypeIndex::summarize).orElse(List.of());
+        } catch (Exception e) {
+            LoggerManager.debug(() -> "Failed to summarize " + file.getPath() + ": " + e.getMessage());
+            return List.of();
+        }
     }
 
 
@@ -197,11 +548,15 @@ public class IRExtractionService {
     }
 
     /**
-     * Recursively scan the files in the given repository path and extract the endpoints and
-     * dependencies for a single microservice.
+     * Scan the files in the given repository path and extract the endpoints and
+     * dependencies for a single microservice. The files are found the same way as
+     * for a whole system, so files outside of every microservice are left out.
      *
+     * @param rootMicroservicePath the local path of the microservice root directory
      * @return model of a single service containing the extracted endpoints and dependencies
+     * @deprecated use {@link #create(ExtractionSession, Optional)}
      */
+    @Deprecated
     public Microservice recursivelyScanFiles(String rootMicroservicePath) {
         // Validate path exists and is a directory
         File localDir = new File(rootMicroservicePath);
@@ -209,66 +564,316 @@ public class IRExtractionService {
             Error.reportAndExit(Error.INVALID_REPO_PATHS, Optional.empty());
         }
 
-
-        Microservice model = new Microservice(FileUtils.getMicroserviceNameFromPath(rootMicroservicePath),
-                FileUtils.localPathToGitPath(rootMicroservicePath, config.getRepoName()));
-        scanDirectory(localDir, model);
-
-        LoggerManager.info(() -> "Done scanning directory  " + rootMicroservicePath);
-        return model;
+        String path = FileUtils.localPathToGitPath(rootMicroservicePath, config.getWorkTreeName());
+        return scanFiles(path, discoverFilesIn(path));
     }
 
     /**
-     * Recursively scan the given directory for files and extract the endpoints and dependencies.
+     * Scan the files in the given directory and extract the endpoints and dependencies
+     * into a microservice. The files are found the same way as for a whole system.
      *
      * @param directory the directory to scan
+     * @param microservice the microservice to add the parsed files to
+     * @deprecated use {@link #create(ExtractionSession, Optional)}
      */
+    @Deprecated
     public void scanDirectory(
             File directory,
             Microservice microservice) {
-        File[] files = directory.listFiles();
-
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    scanDirectory(file, microservice);
-                } else if (FileUtils.isValidFile(file.getPath())) {
-
-                    if(FileUtils.isConfigurationFile(file.getPath())) {
-                        ConfigFile configFile = SourceToObjectUtils.parseConfigurationFile(file, config);
-                        if(configFile != null) {
-                            microservice.getFiles().add(configFile);
-                        }
-
-                    } else {
-                        JClass jClass = SourceToObjectUtils.parseClass(file, config, microservice.getName());
-                        if (jClass != null) {
-                            microservice.addJClass(jClass);
-                        }
-                    }
+        scanFiles(microservice, discoverFilesIn(FileUtils.localPathToGitPath(directory.getPath(), config.getWorkTreeName())));
+    }
 
+    /**
+     * Find the files of the microservices of the commit in a directory
+     *
+     * @param directory the git path of the directory
+     * @return the git paths of the files
+     */
+    private List<String> discoverFilesIn(String directory) {
+        return discoverFiles().values().stream()
+                .flatMap(List::stream)
+                .filter(path -> path.startsWith(directory + FileUtils.GIT_SEPARATOR))
+                .collect(Collectors.toList());
+    }
 
-                }
-            }
+    public static MicroserviceSystem create(String configPath) {
+        try (ExtractionSession session = new ExtractionSession(configPath)) {
+            return create(session, Optional.empty());
         }
     }
 
-    public static MicroserviceSystem create(String configPath) {
-        IRExtractionService extractionService = new IRExtractionService(configPath, Optional.empty());
+    /**
+     * Extract the IR at a commit using an existing session. Systems already
+     * extracted at the same resolved commit, by this session or by another
+     * one sharing the on-disk cache, are returned without extracting again.
+     *
+     * @param session the extraction session to work in
+     * @param commitID optional commitID for extraction, if empty resolves to HEAD
+     * @return the extracted microservice system
+     */
+    public static MicroserviceSystem create(ExtractionSession session, Optional<String> commitID) {
+        GitService gitService = session.getGitService();
+        String resolvedCommitID = commitID.map(gitService::resolveCommit).orElseGet(gitService::getHeadCommit);
+
+        // Check the cache before touching the working tree
+        MicroserviceSystem microserviceSystem = session.getIrCache().get(resolvedCommitID);
+        if (microserviceSystem != null) {
+            microserviceSystem.setCommitID(commitID.orElse(resolvedCommitID));
+            LoggerManager.info(() -> "Reused cached IR at " + resolvedCommitID);
+            return microserviceSystem;
+        }
+
+        IRExtractionService extractionService = new IRExtractionService(session, commitID);
         Set<Microservice> microservices = extractionService.cloneAndScanServices();
-        MicroserviceSystem microserviceSystem = new MicroserviceSystem(extractionService.config.getSystemName(), extractionService.commitID, microservices, new HashSet<>());
+        microserviceSystem = new MicroserviceSystem(extractionService.config.getSystemName(), extractionService.commitID, microservices, new HashSet<>());
+        if (!extractionService.parseTimeLimited) {
+            session.getIrCache().put(resolvedCommitID, microserviceSystem);
+        }
         return microserviceSystem;
     }
 
+    /**
+     * Extract the IR at a commit using an existing session, reusing the microservices
+     * of a previously extracted system whose folders are unchanged, see
+     * {@link Microservice#getTreeId()}
+     *
+     * @param session the extraction session to work in
+     * @param commitID optional commitID for extraction, if empty resolves to HEAD
+     * @param previous a previously extracted system of the same repository
+     * @return the extracted microservice system
+     */
+    public static MicroserviceSystem create(ExtractionSession session, Optional<String> commitID, MicroserviceSystem previous) {
+        session.getMicroserviceCache().putAll(previous);
+        return create(session, commitID);
+    }
+
     public static void createAndWrite(String configPath, String outputPath) {
         MicroserviceSystem microserviceSystem = create(configPath);
         JsonReadWriteUtils.writeToJSON(outputPath, microserviceSystem.toJsonObject());
     }
 
+    /**
+     * Extract the IR at a commit using an existing session and write it to file
+     *
+     * @param session the extraction session to work in
+     * @param commitID optional commitID for extraction, if empty resolves to HEAD
+     * @param outputPath the path of the output file
+     */
+    public static void createAndWrite(ExtractionSession session, Optional<String> commitID, String outputPath) {
+        MicroserviceSystem microserviceSystem = create(session, commitID);
+        JsonReadWriteUtils.writeToJSON(outputPath, microserviceSystem.toJsonObject());
+    }
+
+    /**
+     * Extract the IRs at several commits concurrently and write each of them to
+     * outputDirectory/IR_&lt;commit&gt;.json as soon as it completes, the commit or ref being
+     * turned into a file name by {@link FileUtils#refToFileName(String)}. Every commit is checked
+     * out into its own working tree leased from the {@link RepositoryLeaseManager}, all of
+     * them backed by the object store of the clone, so no hard reset of the clone happens.
+     *
+     * @param configPath path to configuration file
+     * @param commitIDs the commits or refs to extract
+     * @param outputDirectory the directory to write the systems to
+     * @return the output path of each commit, in the order given
+     */
+    public static Map<String, String> createAndWriteAll(String configPath, List<String> commitIDs, String outputDirectory) {
+        try (ExtractionSession session = new ExtractionSession(configPath)) {
+            return createAndWriteAll(session, commitIDs, outputDirectory, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Extract the IRs at several commits concurrently using an existing session,
+     * see {@link #createAndWriteAll(String, List, String)}. Systems already present
+     * in the session's cache are written without extracting again. A commit whose
+     * working tree can't be leased is logged and left out, the others are still written.
+     *
+     * @param session the extraction session providing the repository and cache
+     * @param commitIDs the commits or refs to extract
+     * @param outputDirectory the directory to write the systems to
+     * @param parallelism the maximum number of commits extracted at once
+     * @return the output path of each commit written, in the order given
+     */
+    public static Map<String, String> createAndWriteAll(ExtractionSession session, List<String> commitIDs, String outputDirectory, int parallelism) {
+        Map<String, String> outputPaths = new LinkedHashMap<>();
+        Map<String, String> resolvedCommitIDs = new HashMap<>();
+
+        // Resolve up front so that a bad ref fails before any work is started
+        for (String commitID : commitIDs) {
+            if (!outputPaths.containsKey(commitID)) {
+                resolvedCommitIDs.put(commitID, session.getGitService().resolveCommit(commitID));
+                outputPaths.put(commitID, Paths.get(outputDirectory, "IR_" + FileUtils.refToFileName(commitID) + ".json").toString());
+            }
+        }
+
+        if (outputPaths.isEmpty()) {
+            return outputPaths;
+        }
+
+        Set<String> failedCommitIDs = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, outputPaths.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, String> entry : outputPaths.entrySet()) {
+                futures.add(executorService.submit(() -> {
+                    MicroserviceSystem microserviceSystem;
+                    try {
+                        microserviceSystem = createInWorkTree(session, entry.getKey(), resolvedCommitIDs.get(entry.getKey()));
+                    } catch (WorkTreeLeaseException e) {
+                        LoggerManager.error(() -> "Failed to extract IR at " + entry.getKey(), Optional.of(e));
+                        failedCommitIDs.add(entry.getKey());
+                        return;
+                    }
+                    JsonReadWriteUtils.writeToJSON(entry.getValue(), microserviceSystem.toJsonObject());
+                    LoggerManager.info(() -> "Wrote IR at " + entry.getKey() + " to " + entry.getValue());
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Error.reportAndExit(Error.UNKNOWN_ERROR, Optional.of(e));
+        } catch (ExecutionException e) {
+            Error.reportAndExit(Error.UNKNOWN_ERROR, Optional.of(e));
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        outputPaths.keySet().removeAll(failedCommitIDs);
+        return outputPaths;
+    }
+
+    /**
+     * Extract the IR at a commit in a leased working tree, checking the cache first
+     *
+     * @param session the extraction session providing the repository and cache
+     * @param commitID the commit or ref to record for the extraction
+     * @param resolvedCommitID the commit ID the ref resolves to
+     * @return the extracted microservice system
+     */
+    private static MicroserviceSystem createInWorkTree(ExtractionSession session, String commitID, String resolvedCommitID) {
+        MicroserviceSystem microserviceSystem = session.getIrCache().get(resolvedCommitID);
+        if (microserviceSystem != null) {
+            microserviceSystem.setCommitID(commitID);
+            LoggerManager.info(() -> "Reused cached IR at " + resolvedCommitID);
+            return microserviceSystem;
+        }
+
+        boolean parseTimeLimited;
+        try (WorkTreeLease lease = session.acquire(resolvedCommitID)) {
+            IRExtractionService extractionService = new IRExtractionService(session, lease, commitID);
+            Set<Microservice> microservices = extractionService.cloneAndScanServices();
+            microserviceSystem = new MicroserviceSystem(extractionService.config.getSystemName(), commitID, microservices, new HashSet<>());
+            parseTimeLimited = extractionService.parseTimeLimited;
+        }
+
+        if (!parseTimeLimited) {
+            session.getIrCache().put(resolvedCommitID, microserviceSystem);
+        }
+        return microserviceSystem;
+    }
+
     public static MicroserviceSystem read(String fPath) {
         MicroserviceSystem microserviceSystem = JsonReadWriteUtils.readFromJSON(fPath, MicroserviceSystem.class);
         return microserviceSystem;
     }
 
+    /**
+     * Trie of the git paths of the microservice root directories by path segment,
+     * so that nested roots are resolved and the root of a file is found by walking
+     * the segments of its path once
+     */
+    static class RootTrie {
+        private final Node root = new Node();
+        private int count;
+
+        /**
+         * Mark a directory as a microservice root
+         *
+         * @param path the git path of the directory
+         */
+        void add(String path) {
+            Node node = root;
+
+            for (String segment : segments(path)) {
+                node.nested = true;
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
 
+            if (node.files == null) {
+                node.files = new ArrayList<>();
+                node.path = path;
+                node.order = ++count;
+            }
+        }
+
+        /**
+         * Get the roots that don't contain another root, in the order they were added
+         *
+         * @return the file lists of the roots keyed by their git path
+         */
+        Map<String, List<String>> getRoots() {
+            List<Node> roots = new ArrayList<>();
+            collect(root, roots);
+            roots.sort(Comparator.comparingInt(node -> node.order));
+
+            Map<String, List<String>> rootFiles = new LinkedHashMap<>();
+            roots.forEach(node -> rootFiles.put(node.path, node.files));
+            return rootFiles;
+        }
+
+        /**
+         * Find the file list of the most specific root containing a file
+         *
+         * @param path the git path of the file
+         * @return the file list of the root or null if the file is outside of every root
+         */
+        List<String> find(String path) {
+            List<String> segments = segments(parentOf(path));
+            Node node = root;
+            List<String> files = isRoot(node) ? node.files : null;
+
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                } else if (isRoot(node)) {
+                    files = node.files;
+                }
+            }
+
+            return files;
+        }
+
+        private static void collect(Node node, List<Node> roots) {
+            if (isRoot(node)) {
+                roots.add(node);
+            }
+            node.children.values().forEach(child -> collect(child, roots));
+        }
+
+        private static boolean isRoot(Node node) {
+            return node.files != null && !node.nested;
+        }
+
+        private static List<String> segments(String path) {
+            List<String> segments = new ArrayList<>();
+            for (String segment : path.split(FileUtils.GIT_SEPARATOR)) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            return segments;
+        }
+
+        private static class Node {
+            private final Map<String, Node> children = new HashMap<>();
+            private String path;
+            private List<String> files;
+            private boolean nested;
+            private int order;
+        }
+    }
 }
@@ -3,15 +3,23 @@ package edu.university.ecs.lab.intermediate.merge.services;
 import edu.university.ecs.lab.common.config.Config;
 import edu.university.ecs.lab.common.config.ConfigUtil;
 import edu.university.ecs.lab.common.models.ir.*;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import edu.university.ecs.lab.common.services.ExtractionSession;
+import edu.university.ecs.lab.common.services.IRCache;
 import edu.university.ecs.lab.common.services.LoggerManager;
 import edu.university.ecs.lab.common.utils.FileUtils;
 import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.delta.models.ClassPatch;
 import edu.university.ecs.lab.delta.models.Delta;
 import edu.university.ecs.lab.delta.models.SystemChange;
 import edu.university.ecs.lab.delta.models.enums.ChangeType;
+import org.eclipse.jgit.lib.ObjectId;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -20,6 +28,9 @@ import java.util.stream.Collectors;
  * IR
  */
 public class MergeService {
+    /**
+     * Configuration object, null when merging in memory
+     */
     private final Config config;
     private final MicroserviceSystem microserviceSystem;
     private final SystemChange systemChange;
@@ -31,12 +42,49 @@ public class MergeService {
             String deltaPath,
             String configPath,
             String outputPath) {
-        this.config = ConfigUtil.readConfig(configPath);
+        this(ConfigUtil.readConfig(configPath), intermediatePath, deltaPath, outputPath);
+    }
+
+    /**
+     * Create a merge service that takes its configuration from an existing session
+     *
+     * @param session the extraction session to work in
+     * @param intermediatePath path to the IR file
+     * @param deltaPath path to the Delta file
+     * @param outputPath path of the output file
+     */
+    public MergeService(
+            ExtractionSession session,
+            String intermediatePath,
+            String deltaPath,
+            String outputPath) {
+        this(session.getConfig(), intermediatePath, deltaPath, outputPath);
+    }
+
+    private MergeService(
+            Config config,
+            String intermediatePath,
+            String deltaPath,
+            String outputPath) {
+        this.config = config;
         this.microserviceSystem = JsonReadWriteUtils.readFromJSON(Path.of(intermediatePath).toAbsolutePath().toString(), MicroserviceSystem.class);
         this.systemChange = JsonReadWriteUtils.readFromJSON(Path.of(deltaPath).toAbsolutePath().toString(), SystemChange.class);
         this.outputPath = outputPath.isEmpty() ? "./NewIR.json" : outputPath;
     }
 
+    /**
+     * Create a merge service that applies a system change to a system in memory
+     *
+     * @param microserviceSystem the system to update in place
+     * @param systemChange the change to apply
+     */
+    private MergeService(MicroserviceSystem microserviceSystem, SystemChange systemChange) {
+        this.config = null;
+        this.microserviceSystem = microserviceSystem;
+        this.systemChange = systemChange;
+        this.outputPath = "./NewIR.json";
+    }
+
     /**
      * This method generates the new IR from the old IR + Delta file
      */
@@ -53,22 +101,33 @@ public class MergeService {
         // First we make necessary changes to microservices
         updateMicroservices();
 
-        for (Delta d : systemChange.getChanges()) {
+        // The microservices are fixed from here on, so deltas owned by different
+        // microservices (or by the orphans) touch disjoint sets and can be applied in parallel.
+        // A delta moving a file between owners touches two of them, so it is applied on its own
+        // after the deltas before it, keeping the order of the system change.
+        Map<Microservice, List<Delta>> microserviceDeltas = new IdentityHashMap<>();
+        List<Delta> orphanDeltas = new ArrayList<>();
 
-            switch (d.getChangeType()) {
-                case ADD:
-                    addFile(d);
-                    break;
-                case MODIFY:
-                    removeFile(d);
-                    addFile(d);
-                    break;
-                case DELETE:
-                    removeFile(d);
-                    break;
+        for (Delta d : systemChange.getChanges()) {
+            Microservice oldOwner = d.getChangeType().equals(ChangeType.ADD) ? null : microserviceSystem.findMicroserviceByPath(d.getOldPath());
+            Microservice newOwner = d.getChangeType().equals(ChangeType.DELETE) ? null : microserviceSystem.findMicroserviceByPath(d.getNewPath());
+
+            // The folders of the owners change, so their extracted tree ids no longer apply
+            clearTreeId(oldOwner);
+            clearTreeId(newOwner);
+
+            if ((d.getChangeType().equals(ChangeType.MODIFY) || d.getChangeType().equals(ChangeType.RENAME)) && oldOwner != newOwner) {
+                applyInParallel(microserviceDeltas, orphanDeltas);
+                applyDelta(d);
+            } else if (Objects.nonNull(oldOwner) || Objects.nonNull(newOwner)) {
+                microserviceDeltas.computeIfAbsent(Objects.nonNull(oldOwner) ? oldOwner : newOwner, ms -> new ArrayList<>()).add(d);
+            } else {
+                orphanDeltas.add(d);
             }
         }
 
+        applyInParallel(microserviceDeltas, orphanDeltas);
+
         microserviceSystem.setCommitID(systemChange.getNewCommit());
 
         LoggerManager.info(() -> "Merged to new IR at " + systemChange.getNewCommit());
@@ -76,14 +135,194 @@ public class MergeService {
     }
 
 
+    private void clearTreeId(Microservice microservice) {
+        if (Objects.nonNull(microservice)) {
+            microservice.setTreeId(null);
+        }
+    }
+
+    /**
+     * This method applies groups of deltas owned by different microservices or by
+     * the orphans in parallel, keeping the order within each group, and clears them
+     *
+     * @param microserviceDeltas the deltas grouped by their microservice
+     * @param orphanDeltas the deltas of the orphans
+     */
+    private void applyInParallel(Map<Microservice, List<Delta>> microserviceDeltas, List<Delta> orphanDeltas) {
+        List<List<Delta>> groups = new ArrayList<>(microserviceDeltas.values());
+        groups.add(orphanDeltas);
+
+        groups.parallelStream().forEach(group -> group.forEach(this::applyDelta));
+
+        microserviceDeltas.clear();
+        orphanDeltas.clear();
+    }
+
+    /**
+     * This method applies a single Delta change
+     *
+     * @param delta the delta change to apply
+     */
+    private void applyDelta(Delta delta) {
+        // A new instance since the system keeps and mutates what is inserted
+        JsonSerializable change = delta.copyChange();
+
+        switch (delta.getChangeType()) {
+            case ADD:
+                addFile(delta, change);
+                break;
+            case MODIFY:
+                if (change instanceof ClassPatch) {
+                    patchFile(delta.getOldPath(), (ClassPatch) change);
+                } else {
+                    removeFile(delta);
+                    addFile(delta, change);
+                }
+                break;
+            case RENAME:
+                if (!(change instanceof ProjectFile)) {
+                    moveFile(delta);
+                    if (change instanceof ClassPatch) {
+                        patchFile(delta.getNewPath(), (ClassPatch) change);
+                    }
+                } else {
+                    removeFile(delta);
+                    addFile(delta, change);
+                }
+                break;
+            case DELETE:
+                removeFile(delta);
+                break;
+        }
+    }
+
+    /**
+     * This method moves an existing file to the new path of a Delta change
+     * renaming it without changes, so it is not parsed again. The file is
+     * taken out of its microservice or the orphans and added to the
+     * microservice or the orphans of its new path.
+     *
+     * @param delta the delta change for moving
+     */
+    public void moveFile(Delta delta) {
+        Microservice oldMs = microserviceSystem.findMicroserviceByPath(delta.getOldPath());
+        ProjectFile file = null;
+
+        if (Objects.nonNull(oldMs)) {
+            file = oldMs.getAllFiles().stream().filter(f -> f.getPath().equals(delta.getOldPath())).findFirst().orElse(null);
+            if (Objects.nonNull(file)) {
+                oldMs.removeProjectFile(delta.getOldPath());
+            }
+        } else {
+            for (ProjectFile orphan : microserviceSystem.getOrphans()) {
+                if (orphan.getPath().equals(delta.getOldPath())) {
+                    file = orphan;
+                    microserviceSystem.getOrphans().remove(orphan);
+                    break;
+                }
+            }
+        }
+
+        // A move needs the previous version of the file
+        if (Objects.isNull(file)) {
+            LoggerManager.warn(() -> "[Filtered] A moved file has no previous file " + delta.getOldPath());
+            return;
+        }
+
+        file.setPath(delta.getNewPath());
+        Microservice newMs = microserviceSystem.findMicroserviceByPath(delta.getNewPath());
+
+        if (Objects.isNull(newMs)) {
+            if (file instanceof JClass) {
+                ((JClass) file).updateMicroserviceName("");
+            }
+            microserviceSystem.getOrphans().add(file);
+        } else if (file instanceof JClass) {
+            // The microservice name is updated see addJClass()
+            newMs.addJClass((JClass) file);
+        } else {
+            newMs.getFiles().add((ConfigFile) file);
+        }
+
+        LoggerManager.debug(() -> "[File moved] " + delta.getOldPath() + " -> " + delta.getNewPath() + " at " + systemChange.getOldCommit() + " -> " + systemChange.getNewCommit());
+    }
+
+    /**
+     * This method patches a JClass in place based on a Delta change holding
+     * a class patch, see {@link ClassPatch}. The class is taken out of its
+     * microservice or the orphans while patching since its hash changes.
+     *
+     * @param delta the delta change for patching
+     */
+    public void patchFile(Delta delta) {
+        JsonSerializable change = delta.copyChange();
+        if (change instanceof ClassPatch) {
+            patchFile(delta.getOldPath(), (ClassPatch) change);
+        }
+    }
+
+    /**
+     * This method patches the JClass at a path in place
+     *
+     * @param path the path of the class
+     * @param classPatch the patch to apply
+     */
+    private void patchFile(String path, ClassPatch classPatch) {
+        Microservice ms = microserviceSystem.findMicroserviceByPath(path);
+        JClass jClass = null;
+
+        if (Objects.nonNull(ms)) {
+            jClass = ms.getClasses().stream().filter(c -> c.getPath().equals(path)).findFirst().orElse(null);
+            if (Objects.nonNull(jClass)) {
+                ms.removeProjectFile(path);
+            }
+        } else {
+            for (ProjectFile orphan : microserviceSystem.getOrphans()) {
+                if (orphan instanceof JClass && orphan.getPath().equals(path)) {
+                    jClass = (JClass) orphan;
+                    microserviceSystem.getOrphans().remove(orphan);
+                    break;
+                }
+            }
+        }
+
+        // A patch needs the previous version of the class
+        if (Objects.isNull(jClass)) {
+            LoggerManager.warn(() -> "[Filtered] A patched file has no previous class " + path);
+            return;
+        }
+
+        classPatch.apply(jClass);
+
+        if (Objects.nonNull(ms)) {
+            ms.addJClass(jClass);
+        } else {
+            jClass.updateMicroserviceName("");
+            microserviceSystem.getOrphans().add(jClass);
+        }
+
+        LoggerManager.debug(() -> "[File patched] " + path + " at " + systemChange.getOldCommit() + " -> " + systemChange.getNewCommit());
+    }
+
     /**
      * This method adds a JClass based on a Delta change
      *
      * @param delta the delta change for adding
      */
     public void addFile(Delta delta) {
+        addFile(delta, delta.copyChange());
+    }
+
+    /**
+     * This method adds the decoded change of a Delta change, the change
+     * must not be shared since the system keeps it
+     *
+     * @param delta the delta change for adding
+     * @param change the JClass or ConfigFile to add
+     */
+    private void addFile(Delta delta, JsonSerializable change) {
         // Check for unparsable files
-        if(delta.getClassChange() == null && delta.getConfigChange() == null) {
+        if(!(change instanceof ProjectFile)) {
             LoggerManager.warn(() -> "[Filtered] An added file has no change information " + delta.getNewPath());
             return;
         }
@@ -92,22 +331,18 @@ public class MergeService {
 
         // If no ms is found, it will be held in orphans
         if (Objects.isNull(ms)) {
-            if(delta.getClassChange() != null) {
-                microserviceSystem.getOrphans().add(delta.getClassChange());
-            } else if(delta.getConfigChange() != null) {
-                microserviceSystem.getOrphans().add(delta.getConfigChange());
-            }
+            microserviceSystem.getOrphans().add((ProjectFile) change);
 
             LoggerManager.debug(() -> "[File added] " + delta.getNewPath() + " to orphans at " + systemChange.getOldCommit() + " -> " + systemChange.getNewCommit());
             return;
         }
 
         // If we found it's ms
-        if(delta.getConfigChange() != null) {
-            ms.getFiles().add(delta.getConfigChange());
+        if(change instanceof ConfigFile) {
+            ms.getFiles().add((ConfigFile) change);
         } else {
             // Add the JClass, the microservice name is updated see addJClass()
-            ms.addJClass(delta.getClassChange());
+            ms.addJClass((JClass) change);
         }
 
         LoggerManager.debug(() -> "[File added] " + delta.getNewPath() + " to microservice " + ms.getPath() + " at " + systemChange.getOldCommit() + " -> " + systemChange.getNewCommit());
@@ -165,6 +400,9 @@ public class MergeService {
             return;
         }
 
+        // Build files may move files between microservices
+        microserviceSystem.getMicroservices().forEach(this::clearTreeId);
+
         // Loop through changes to pom.xml files
         for (Delta delta : buildDeltas) {
 
@@ -323,14 +561,181 @@ public class MergeService {
     }
 
     public static MicroserviceSystem create(String configPath, String intermediatePath, String deltaPath, String newCommitID) {
-        MergeService mergeService = new MergeService(intermediatePath, deltaPath, configPath, "");
+        return create(configPath, intermediatePath, deltaPath, newCommitID, false);
+    }
+
+    /**
+     * Merge an IR and Delta file, or return the system extracted at the new commit
+     * instead if it is cached and reuseCached is set. A cached system is an extraction
+     * of the repository, the given files are not read at all then, so it must only be
+     * reused when they are known to describe the repository as it is.
+     *
+     * @param configPath path to the configuration file
+     * @param intermediatePath path to the IR file
+     * @param deltaPath path to the Delta file
+     * @param newCommitID the commit ID of the merged system
+     * @param reuseCached whether the system cached at a full commit ID may be returned
+     * @return the merged or cached microservice system
+     */
+    public static MicroserviceSystem create(String configPath, String intermediatePath, String deltaPath, String newCommitID, boolean reuseCached) {
+        Config config = ConfigUtil.readConfig(configPath);
+
+        // Without a repository a ref can't be resolved, only a full commit ID can hit the cache
+        if (reuseCached && ObjectId.isId(newCommitID)) {
+            MicroserviceSystem microserviceSystem = new IRCache(config).get(newCommitID);
+            if (microserviceSystem != null) {
+                LoggerManager.info(() -> "Reused cached IR at " + newCommitID);
+                return microserviceSystem;
+            }
+        }
+
+        // Merged systems are not cached, the cache only holds extracted systems
+        MergeService mergeService = new MergeService(config, intermediatePath, deltaPath, "");
         mergeService.generateMergeIR(newCommitID);
         return mergeService.getMicroserviceSystem();
     }
 
     public static void createAndWrite(String configPath, String intermediatePath, String deltaPath, String newCommitID, String outputPath) {
         MicroserviceSystem microserviceSystem = create(configPath, intermediatePath, deltaPath, newCommitID);
-        JsonReadWriteUtils.writeToJSON(outputPath, microserviceSystem);
+        JsonReadWriteUtils.writeToJSON(outputPath, microserviceSystem.toJsonObject());
+    }
+
+    /**
+     * Merge an IR and Delta file using an existing session. The merged system is
+     * not cached, a merge of a hand edited or stale IR must not be returned in
+     * place of an extraction.
+     *
+     * @param session the extraction session to work in
+     * @param intermediatePath path to the IR file
+     * @param deltaPath path to the Delta file
+     * @param newCommitID the commit ID of the merged system
+     * @return the merged microservice system
+     */
+    public static MicroserviceSystem create(ExtractionSession session, String intermediatePath, String deltaPath, String newCommitID) {
+        return create(session, intermediatePath, deltaPath, newCommitID, false);
+    }
+
+    /**
+     * Merge an IR and Delta file using an existing session, or return the system
+     * extracted at the new commit instead if it is cached and reuseCached is set,
+     * in which case the files are not read at all
+     *
+     * @param session the extraction session to work in
+     * @param intermediatePath path to the IR file
+     * @param deltaPath path to the Delta file
+     * @param newCommitID the commit ID of the merged system
+     * @param reuseCached whether the system cached at the new commit may be returned
+     * @return the merged or cached microservice system
+     */
+    public static MicroserviceSystem create(ExtractionSession session, String intermediatePath, String deltaPath, String newCommitID, boolean reuseCached) {
+        if (reuseCached) {
+            String resolvedCommitID = session.getGitService().resolveCommit(newCommitID);
+            MicroserviceSystem microserviceSystem = session.getIrCache().get(resolvedCommitID);
+            if (microserviceSystem != null) {
+                LoggerManager.info(() -> "Reused cached IR at " + resolvedCommitID);
+                return microserviceSystem;
+            }
+        }
+
+        // Merged systems are not cached, the cache only holds extracted systems
+        MergeService mergeService = new MergeService(session, intermediatePath, deltaPath, "");
+        mergeService.generateMergeIR(newCommitID);
+        return mergeService.getMicroserviceSystem();
+    }
+
+    /**
+     * Merge an IR and Delta file using an existing session and write the result to file
+     *
+     * @param session the extraction session to work in
+     * @param intermediatePath path to the IR file
+     * @param deltaPath path to the Delta file
+     * @param newCommitID the commit ID of the merged system
+     * @param outputPath path of the output file
+     */
+    public static void createAndWrite(ExtractionSession session, String intermediatePath, String deltaPath, String newCommitID, String outputPath) {
+        MicroserviceSystem microserviceSystem = create(session, intermediatePath, deltaPath, newCommitID);
+        JsonReadWriteUtils.writeToJSON(outputPath, microserviceSystem.toJsonObject());
+    }
+
+    /**
+     * Apply a sequence of system changes to a system in memory, without any
+     * reading or writing of JSON. The system is updated in place.
+     *
+     * @param microserviceSystem the system at the old commit of the first change
+     * @param systemChanges the changes in commit order
+     * @return the updated system at the new commit of the last change
+     */
+    public static MicroserviceSystem apply(MicroserviceSystem microserviceSystem, Iterable<SystemChange> systemChanges) {
+        return apply(microserviceSystem, systemChanges, system -> {});
+    }
+
+    /**
+     * Apply a stream of system changes to a system in memory, see {@link #apply(MicroserviceSystem, Iterable)}
+     *
+     * @param microserviceSystem the system at the old commit of the first change
+     * @param systemChanges the changes in commit order
+     * @return the updated system at the new commit of the last change
+     */
+    public static MicroserviceSystem apply(MicroserviceSystem microserviceSystem, Stream<SystemChange> systemChanges) {
+        return apply(microserviceSystem, systemChanges::iterator);
+    }
+
+    /**
+     * Apply a sequence of system changes to a system in memory, handing the
+     * system to a consumer after each change. The consumer sees the live system
+     * and must copy it, see {@link MicroserviceSystem#copy()}, if it keeps it.
+     *
+     * @param microserviceSystem the system at the old commit of the first change
+     * @param systemChanges the changes in commit order
+     * @param afterChange receives the system after each applied change
+     * @return the updated system at the new commit of the last change
+     */
+    public static MicroserviceSystem apply(MicroserviceSystem microserviceSystem, Iterable<SystemChange> systemChanges, Consumer<MicroserviceSystem> afterChange) {
+        for (SystemChange systemChange : systemChanges) {
+            MergeService mergeService = new MergeService(microserviceSystem, systemChange);
+            mergeService.generateMergeIR(systemChange.getNewCommit());
+            afterChange.accept(microserviceSystem);
+        }
+
+        return microserviceSystem;
+    }
+
+    /**
+     * Apply a sequence of system changes to a system in memory and write a snapshot
+     * to outputDirectory/IR_&lt;commit&gt;.json, see {@link FileUtils#refToFileName(String)},
+     * every snapshotInterval changes and after the last change
+     *
+     * @param microserviceSystem the system at the old commit of the first change
+     * @param systemChanges the changes in commit order
+     * @param snapshotInterval the number of changes between snapshots, 0 to write only the last one
+     * @param outputDirectory the directory to write the snapshots to
+     * @return the updated system at the new commit of the last change
+     */
+    public static MicroserviceSystem applyAndWrite(MicroserviceSystem microserviceSystem, Iterable<SystemChange> systemChanges, int snapshotInterval, String outputDirectory) {
+        int applied = 0;
+        boolean written = true;
+
+        for (SystemChange systemChange : systemChanges) {
+            new MergeService(microserviceSystem, systemChange).generateMergeIR(systemChange.getNewCommit());
+            applied++;
+            written = false;
+
+            if (snapshotInterval > 0 && applied % snapshotInterval == 0) {
+                writeSnapshot(microserviceSystem, outputDirectory);
+                written = true;
+            }
+        }
+
+        if (!written) {
+            writeSnapshot(microserviceSystem, outputDirectory);
+        }
+
+        return microserviceSystem;
+    }
+
+    private static void writeSnapshot(MicroserviceSystem microserviceSystem, String outputDirectory) {
+        String commitID = microserviceSystem.getCommitID();
+        JsonReadWriteUtils.writeToJSON(Paths.get(outputDirectory, "IR_" + FileUtils.refToFileName(commitID) + ".json").toString(), microserviceSystem.toJsonObject());
     }
 
 }
@@ -2,6 +2,7 @@ package edu.university.ecs.lab.intermediate.utils;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.PackageDeclaration;
+import edu.university.ecs.lab.common.models.ir.UrlTemplate;
 import org.apache.commons.io.FilenameUtils;
 
 /**
@@ -35,6 +36,6 @@ public class StringParserUtils {
      * @return the simplified endpoint URL
      */
     public static String simplifyEndpointURL(String url) {
-        return url.replaceAll("\\{[^{}]*\\}", "{?}");
+        return UrlTemplate.simplify(url);
     }
 }
@@ -0,0 +1,117 @@
+package edu.university.ecs.lab;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.config.ConfigUtil;
+import edu.university.ecs.lab.common.services.ExtractionSession;
+import edu.university.ecs.lab.common.services.IRCache;
+import edu.university.ecs.lab.common.utils.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+/**
+ * A git repository built commit by commit in the clone directory, so that it is
+ * picked up as an already cloned repository by the services under test
+ */
+public class TestRepository implements AutoCloseable {
+    private static final String BRANCH = "main";
+
+    private final Path directory;
+    private final Path configPath;
+    private final Git git;
+    private int commitCount;
+
+    /**
+     * Create an empty repository, replacing any repository of the same name
+     *
+     * @param name the name of the repository
+     * @param configDirectory directory to write the configuration file to
+     * @param options additional configuration fields as JSON members, e.g. "respectGitignore": true
+     */
+    public TestRepository(String name, Path configDirectory, String options) throws Exception {
+        this.directory = Paths.get(FileUtils.getRepositoryPath(name));
+        deleteRecursively(directory);
+        Files.createDirectories(directory);
+        this.git = Git.init().setDirectory(directory.toFile()).setInitialBranch(BRANCH).call();
+
+        this.configPath = configDirectory.resolve(name + ".json");
+        Files.writeString(configPath, "{\"systemName\": \"" + name + "\", \"repositoryURL\": \"https://github.com/test/" + name
+                + ".git\", \"branch\": \"" + BRANCH + "\"" + (options.isEmpty() ? "" : ", " + options) + "}");
+    }
+
+    public TestRepository write(String path, String content) throws IOException {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return this;
+    }
+
+    public TestRepository delete(String path) throws IOException {
+        Files.delete(directory.resolve(path));
+        return this;
+    }
+
+    /**
+     * Commit every change of the working tree at a fixed time, so that the
+     * same history always has the same commit IDs
+     *
+     * @return the commit ID
+     */
+    public String commit() throws Exception {
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call();
+        PersonIdent author = new PersonIdent("Test", "test@example.com", new Date(1700000000000L + 1000L * commitCount), TimeZone.getTimeZone("UTC"));
+        return git.commit().setMessage("Commit " + ++commitCount).setAuthor(author).setCommitter(author).call().getName();
+    }
+
+    /**
+     * Create a branch at the last commit
+     *
+     * @param name the name of the branch
+     */
+    public TestRepository branch(String name) throws Exception {
+        git.branchCreate().setName(name).call();
+        return this;
+    }
+
+    public Config getConfig() {
+        return ConfigUtil.readConfig(configPath.toString());
+    }
+
+    /**
+     * Create a session whose IR cache is disabled, so every system is extracted
+     *
+     * @return the session
+     */
+    public ExtractionSession newSession() {
+        Config config = getConfig();
+        return new ExtractionSession(config, new IRCache(config, 0, 0, Duration.ZERO));
+    }
+
+    @Override
+    public void close() {
+        git.close();
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
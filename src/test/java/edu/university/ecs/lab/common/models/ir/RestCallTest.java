@@ -0,0 +1,57 @@
+package edu.university.ecs.lab.common.models.ir;
+
+import edu.university.ecs.lab.common.models.enums.HttpMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RestCallTest {
+
+    @Test
+    void matchesPathWithVariablesBeforeTheQuery() {
+        Endpoint endpoint = endpoint("user-service", "/api/v1/users/{id}/orders", HttpMethod.GET, requestParam("status"));
+
+        assertTrue(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users/{?}/orders?status={?}", HttpMethod.GET), endpoint));
+        assertFalse(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users/{?}/orders", HttpMethod.GET), endpoint));
+    }
+
+    @Test
+    void matchesQueryParametersByExactName() {
+        Endpoint endpoint = endpoint("user-service", "/api/v1/users", HttpMethod.GET, requestParam("name"));
+
+        assertTrue(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users?name={?}", HttpMethod.GET), endpoint));
+        assertFalse(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users?username={?}", HttpMethod.GET), endpoint));
+    }
+
+    @Test
+    void matchesHttpMethodAndService() {
+        Endpoint endpoint = endpoint("user-service", "/api/v1/users/{id}", HttpMethod.GET);
+        Endpoint any = endpoint("user-service", "/api/v1/users/{id}", HttpMethod.ALL);
+
+        assertFalse(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users/{?}", HttpMethod.POST), endpoint));
+        assertTrue(RestCall.matchEndpoint(restCall("order-service", "/api/v1/users/{?}", HttpMethod.POST), any));
+        assertFalse(RestCall.matchEndpoint(restCall("user-service", "/api/v1/users/{?}", HttpMethod.GET), endpoint));
+    }
+
+    private static RestCall restCall(String microserviceName, String url, HttpMethod httpMethod) {
+        MethodCall methodCall = new MethodCall("getForObject", "com.demo.Client", "RestTemplate", "restTemplate", "call",
+                "", microserviceName, "Client");
+        return new RestCall(methodCall, url, httpMethod);
+    }
+
+    private static Endpoint endpoint(String microserviceName, String url, HttpMethod httpMethod, Parameter... parameters) {
+        Method method = new Method("handle", "com.demo.Controller", new HashSet<>(Set.of(parameters)), "String", new HashSet<>(),
+                microserviceName, "Controller");
+        return new Endpoint(method, url, httpMethod);
+    }
+
+    private static Parameter requestParam(String name) {
+        Annotation annotation = new Annotation("RequestParam", "com.demo.Controller", new HashMap<>());
+        return new Parameter(name, "com.demo.Controller", "String", Set.of(annotation));
+    }
+}
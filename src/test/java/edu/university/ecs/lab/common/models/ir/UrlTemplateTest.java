@@ -0,0 +1,68 @@
+package edu.university.ecs.lab.common.models.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlTemplateTest {
+
+    @Test
+    void pathVariablesAreSimplified() {
+        assertEquals("/users/{?}/orders/{?}", UrlTemplate.simplify("/users/{id}/orders/{orderId}"));
+        assertEquals("/users/v{?}", UrlTemplate.simplify("/users/v{version}"));
+        assertEquals("/users/{id", UrlTemplate.simplify("/users/{id"));
+        assertEquals("/users/{{?}", UrlTemplate.simplify("/users/{{id}"));
+        assertEquals("/users", UrlTemplate.simplify("/users"));
+    }
+
+    @Test
+    void equalUrlsShareATemplate() {
+        UrlTemplate template = UrlTemplate.of("/users/{id}");
+
+        assertSame(template, UrlTemplate.of("/users/{userId}"));
+        assertEquals("/users/{?}", template.getUrl());
+        assertNull(UrlTemplate.of(null));
+    }
+
+    @Test
+    void queryIsSplitFromThePath() {
+        UrlTemplate template = UrlTemplate.of("/users/{id}?name={name}&age=1&flag");
+
+        assertEquals("/users/{?}", template.getPath());
+        assertEquals(List.of("name", "age"), template.getQueryParameters());
+        assertTrue(template.hasQueryParameter("name"));
+        assertFalse(template.hasQueryParameter("flag"));
+        assertSame(UrlTemplate.of("/users/{?}"), template.getPathTemplate());
+    }
+
+    @Test
+    void pathVariablesAreNotQueries() {
+        UrlTemplate template = UrlTemplate.of("/users/{id}");
+
+        assertEquals(template.getUrl(), template.getPath());
+        assertTrue(template.getQueryParameters().isEmpty());
+        assertSame(template, template.getPathTemplate());
+    }
+
+    @Test
+    void pathsMatchIgnoringTheirQueries() {
+        assertTrue(UrlTemplate.of("/users/{id}?name={?}").matchesPath(UrlTemplate.of("/users/{userId}")));
+        assertTrue(UrlTemplate.of("/users").matchesPath(UrlTemplate.of("/users?page=1")));
+        assertFalse(UrlTemplate.of("/users").matchesPath(UrlTemplate.of("/orders")));
+        assertFalse(UrlTemplate.of("/users").matchesPath(null));
+    }
+
+    @Test
+    void emptySegmentsAreDropped() {
+        List<UrlTemplate.Segment> segments = UrlTemplate.of("//users//{id}/v{version}/").getSegments();
+
+        assertEquals(List.of("users", "{?}", "v{?}"), segments.stream().map(UrlTemplate.Segment::getValue).collect(Collectors.toList()));
+        assertTrue(segments.get(0).isLiteral());
+        assertTrue(segments.get(1).isWildcard());
+        assertFalse(segments.get(2).isWildcard());
+        assertFalse(segments.get(2).isLiteral());
+    }
+}
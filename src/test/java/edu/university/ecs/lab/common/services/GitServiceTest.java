@@ -0,0 +1,96 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.TestRepository;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.delta.models.SystemChange;
+import edu.university.ecs.lab.delta.services.DeltaExtractionService;
+import edu.university.ecs.lab.intermediate.create.services.IRExtractionService;
+import edu.university.ecs.lab.intermediate.merge.services.MergeService;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitServiceTest {
+    private static final String LEGACY_PATH = "svc/src/main/java/com/demo/LegacyService.java";
+
+    @TempDir
+    Path configDirectory;
+
+    private TestRepository repository;
+    private String unignored;
+    private String ignored;
+    private String unignoredAgain;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = new TestRepository("gitignore-test", configDirectory, "\"respectGitignore\": true");
+        repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                .write("svc/src/main/java/com/demo/UserService.java", service("UserService"))
+                .write(LEGACY_PATH, service("LegacyService"));
+        unignored = repository.commit();
+        ignored = repository.write(".gitignore", "LegacyService.java\n").commit();
+        unignoredAgain = repository.delete(".gitignore").commit();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void filesWhoseIgnoreStatusChangedAreDeletedAndAdded() {
+        try (ExtractionSession session = repository.newSession()) {
+            List<DiffEntry> ignoring = session.getGitService().getDifferences(unignored, ignored);
+            List<DiffEntry> unignoring = session.getGitService().getDifferences(ignored, unignoredAgain);
+
+            assertEquals(1, ignoring.size());
+            assertEquals(DiffEntry.ChangeType.DELETE, ignoring.get(0).getChangeType());
+            assertEquals(LEGACY_PATH, ignoring.get(0).getOldPath());
+            assertEquals(1, unignoring.size());
+            assertEquals(DiffEntry.ChangeType.ADD, unignoring.get(0).getChangeType());
+            assertEquals(LEGACY_PATH, unignoring.get(0).getNewPath());
+        }
+    }
+
+    @Test
+    void mergingAcrossIgnoreChangesMatchesExtraction() {
+        try (ExtractionSession session = repository.newSession()) {
+            MicroserviceSystem merged = IRExtractionService.create(session, Optional.of(unignored));
+            for (String[] commits : new String[][]{{unignored, ignored}, {ignored, unignoredAgain}}) {
+                SystemChange systemChange = DeltaExtractionService.create(session, commits[0], commits[1]);
+                MergeService.apply(merged, List.of(systemChange));
+
+                try (ExtractionSession fresh = repository.newSession()) {
+                    assertEquals(IRExtractionService.create(fresh, Optional.of(commits[1])).copy(), merged.copy());
+                }
+            }
+        }
+    }
+
+    @Test
+    void microservicesAreNotReusedAcrossIgnoreChanges() {
+        try (ExtractionSession session = repository.newSession()) {
+            IRExtractionService.create(session, Optional.of(unignored));
+            MicroserviceSystem reused = IRExtractionService.create(session, Optional.of(ignored));
+
+            try (ExtractionSession fresh = repository.newSession()) {
+                MicroserviceSystem extracted = IRExtractionService.create(fresh, Optional.of(ignored));
+                assertEquals(extracted.copy(), reused.copy());
+                assertNull(extracted.findClass("/" + LEGACY_PATH));
+            }
+        }
+    }
+
+    private static String service(String name) {
+        return "package com.demo;\n\nimport org.springframework.stereotype.Service;\n\n@Service\npublic class " + name
+                + " {\n    public String find() {\n        return \"\";\n    }\n}\n";
+    }
+}
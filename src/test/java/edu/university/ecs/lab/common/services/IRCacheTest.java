@@ -0,0 +1,79 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.config.ConfigUtil;
+import edu.university.ecs.lab.common.models.enums.ClassRole;
+import edu.university.ecs.lab.common.models.ir.JClass;
+import edu.university.ecs.lab.common.models.ir.Microservice;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IRCacheTest {
+    private static final String COMMIT_ID = "0123456789abcdef0123456789abcdef01234567";
+
+    @TempDir
+    Path configDirectory;
+
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path configPath = configDirectory.resolve("config.json");
+        Files.writeString(configPath, "{\"systemName\": \"cache\", \"repositoryURL\": \"https://github.com/x/ir-cache-test.git\", \"branch\": \"main\"}");
+        config = ConfigUtil.readConfig(configPath.toString());
+        new IRCache(config).clear();
+    }
+
+    @Test
+    void readsEntriesWrittenByAnotherCache() {
+        MicroserviceSystem microserviceSystem = system("\u00DCbersicht");
+        new IRCache(config).put(COMMIT_ID, microserviceSystem);
+
+        // Memory level disabled so the entry is read back from disk
+        MicroserviceSystem cached = new IRCache(config, 0, IRCache.DEFAULT_MAX_DISK_BYTES, IRCache.DEFAULT_MAX_AGE).get(COMMIT_ID);
+
+        assertEquals(microserviceSystem, cached);
+    }
+
+    @Test
+    void replacesEntriesWithoutLeavingTemporaryFiles() {
+        IRCache irCache = new IRCache(config, 0, IRCache.DEFAULT_MAX_DISK_BYTES, Duration.ofDays(1));
+        irCache.put(COMMIT_ID, system("First"));
+        irCache.put(COMMIT_ID, system("Second"));
+
+        assertEquals(system("Second"), irCache.get(COMMIT_ID));
+        String[] files = irCache.getDirectory().toFile().list();
+        assertNotNull(files);
+        assertEquals(Set.of(COMMIT_ID + ".json"), Set.of(files));
+    }
+
+    @Test
+    void keepsEntriesOfOtherSystemsApart() throws Exception {
+        new IRCache(config).put(COMMIT_ID, system("UserService"));
+
+        Path configPath = configDirectory.resolve("other.json");
+        Files.writeString(configPath, "{\"systemName\": \"other\", \"repositoryURL\": \"https://github.com/x/ir-cache-test.git\", \"branch\": \"main\"}");
+        IRCache otherCache = new IRCache(ConfigUtil.readConfig(configPath.toString()));
+
+        assertNull(otherCache.get(COMMIT_ID));
+        assertNotEquals(new IRCache(config).getDirectory(), otherCache.getDirectory());
+    }
+
+    private static MicroserviceSystem system(String className) {
+        Microservice microservice = new Microservice("svc", "/svc");
+        microservice.addJClass(new JClass(className, "/svc/src/main/java/com/demo/" + className + ".java", "com.demo", ClassRole.SERVICE));
+        Set<Microservice> microservices = new HashSet<>();
+        microservices.add(microservice);
+        return new MicroserviceSystem("cache", COMMIT_ID, microservices, new HashSet<>());
+    }
+}
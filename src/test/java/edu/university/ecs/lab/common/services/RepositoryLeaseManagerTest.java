@@ -0,0 +1,98 @@
+package edu.university.ecs.lab.common.services;
+
+import edu.university.ecs.lab.TestRepository;
+import edu.university.ecs.lab.common.config.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepositoryLeaseManagerTest {
+    private static final String SOURCE_PATH = "svc/src/main/java/com/demo/UserService.java";
+
+    @TempDir
+    Path configDirectory;
+
+    @Test
+    void releasedWorkTreesAreReusedAtTheNextCommit() throws Exception {
+        try (TestRepository repository = new TestRepository("lease-pool-test", configDirectory, "")) {
+            String first = repository.write(SOURCE_PATH, "class UserService {}\n").commit();
+            String second = repository.write(SOURCE_PATH, "class UserService { void find() {} }\n").commit();
+            RepositoryLeaseManager leaseManager = new RepositoryLeaseManager(2);
+            Config config = repository.getConfig();
+
+            String workTreeName;
+            try (WorkTreeLease lease = leaseManager.acquire(config, first)) {
+                workTreeName = lease.getConfig().getWorkTreeName();
+            }
+
+            try (WorkTreeLease lease = leaseManager.acquire(config, second)) {
+                assertEquals(workTreeName, lease.getConfig().getWorkTreeName());
+                assertEquals("class UserService { void find() {} }\n", Files.readString(Paths.get(lease.getPath(), SOURCE_PATH)));
+            }
+        }
+    }
+
+    @Test
+    void acquireBlocksWhileEveryWorkTreeIsLeased() throws Exception {
+        try (TestRepository repository = new TestRepository("lease-block-test", configDirectory, "")) {
+            String commitID = repository.write(SOURCE_PATH, "class UserService {}\n").commit();
+            RepositoryLeaseManager leaseManager = new RepositoryLeaseManager(1);
+            Config config = repository.getConfig();
+
+            WorkTreeLease lease = leaseManager.acquire(config, commitID);
+            CompletableFuture<WorkTreeLease> waiting = CompletableFuture.supplyAsync(() -> leaseManager.acquire(config, commitID));
+
+            assertThrows(TimeoutException.class, () -> waiting.get(500, TimeUnit.MILLISECONDS));
+            lease.close();
+
+            try (WorkTreeLease next = waiting.get(30, TimeUnit.SECONDS)) {
+                assertEquals(lease.getConfig().getWorkTreeName(), next.getConfig().getWorkTreeName());
+            }
+        }
+    }
+
+    @Test
+    void workTreesLeftByAnEarlierRunAreReused() throws Exception {
+        try (TestRepository repository = new TestRepository("lease-leftover-test", configDirectory, "")) {
+            String commitID = repository.write(SOURCE_PATH, "class UserService {}\n").commit();
+            Config config = repository.getConfig();
+
+            Path marker;
+            try (WorkTreeLease lease = new RepositoryLeaseManager(2).acquire(config, commitID)) {
+                // Untracked files survive a checkout but not a recreation of the working tree
+                marker = Files.writeString(Paths.get(lease.getPath(), "marker"), "");
+            }
+
+            // A new manager starts from an empty pool, as a new process would
+            try (WorkTreeLease lease = new RepositoryLeaseManager(2).acquire(config, commitID)) {
+                assertEquals(marker.getParent(), Paths.get(lease.getPath()));
+                assertTrue(Files.exists(marker));
+            }
+        }
+    }
+
+    @Test
+    void failedCheckoutsThrowAndReturnTheWorkTree() throws Exception {
+        try (TestRepository repository = new TestRepository("lease-failure-test", configDirectory, "")) {
+            String commitID = repository.write(SOURCE_PATH, "class UserService {}\n").commit();
+            RepositoryLeaseManager leaseManager = new RepositoryLeaseManager(1);
+            Config config = repository.getConfig();
+
+            leaseManager.acquire(config, commitID).close();
+            assertThrows(WorkTreeLeaseException.class, () -> leaseManager.acquire(config, "0000000000000000000000000000000000000000"));
+
+            // With a single working tree a lease that wasn't returned would block here
+            try (WorkTreeLease lease = CompletableFuture.supplyAsync(() -> leaseManager.acquire(config, commitID)).get(30, TimeUnit.SECONDS)) {
+                assertEquals(commitID, lease.getCommitID());
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.university.ecs.lab.common.utils;
+
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.config.ConfigUtil;
+import edu.university.ecs.lab.common.models.ir.ConfigFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NonJsonReadWriteUtilsTest {
+    private static final String NAME = "\u00DCbersicht-\u670D\u52A1";
+
+    @TempDir
+    Path directory;
+
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path configPath = directory.resolve("config.json");
+        Files.writeString(configPath, "{\"systemName\": \"utf8\", \"repositoryURL\": \"https://github.com/x/utf8-test.git\", \"branch\": \"main\"}");
+        config = ConfigUtil.readConfig(configPath.toString());
+    }
+
+    @Test
+    void readsYamlAsUtf8() throws Exception {
+        Path path = directory.resolve("application.yml");
+        Files.writeString(path, "spring:\n  application:\n    name: " + NAME + "\n", StandardCharsets.UTF_8);
+
+        ConfigFile configFile = NonJsonReadWriteUtils.readFromYaml(path.toString(), config);
+
+        assertNotNull(configFile);
+        assertTrue(configFile.getData().toString().contains(NAME));
+    }
+
+    @Test
+    void readsPomAsUtf8() throws Exception {
+        Path path = directory.resolve("pom.xml");
+        Files.writeString(path, "<project><name>" + NAME + "</name></project>", StandardCharsets.UTF_8);
+
+        ConfigFile configFile = NonJsonReadWriteUtils.readFromPom(path.toString(), config);
+
+        assertNotNull(configFile);
+        assertTrue(configFile.getData().toString().contains(NAME));
+    }
+}
@@ -0,0 +1,144 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Parse only benchmark of {@link ParseContext#newExtractionConfiguration()} against the
+ * default parser configuration with a symbol resolver set globally, which is how files
+ * were parsed before. It is not a test and is run by hand from the test classpath:
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/classes:target/test-classes:$(cat target/classpath.txt) \
+ *     edu.university.ecs.lab.common.utils.ParserConfigurationBenchmark [source...]
+ * </pre>
+ *
+ * Each source is a directory or a zip of Java files, a zip optionally followed by
+ * :prefix to only read the entries under that prefix. Without sources the corpus is
+ * src/main/java of this repository, the java.util and java.net packages of java.base
+ * and the java.net.http module of the JDK sources at $JAVA_HOME/lib/src.zip. The
+ * number of timed rounds is set with -Drounds, after one untimed pass over every
+ * configuration. Best times are more stable than means on a busy machine.
+ */
+public class ParserConfigurationBenchmark {
+    private static final String JAVA_EXTENSION = ".java";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String PREFIX_SEPARATOR = ":";
+
+    public static void main(String[] args) throws IOException {
+        List<String> sources = readCorpus(args.length > 0 ? List.of(args) : defaultCorpus());
+        long bytes = sources.stream().mapToLong(String::length).sum();
+        System.out.println("Corpus: " + sources.size() + " files, " + bytes / 1024 + " KiB");
+
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver(new ReflectionTypeSolver());
+        Map<String, Supplier<JavaParser>> configurations = new LinkedHashMap<>();
+        configurations.put("extraction", () -> new JavaParser(ParseContext.newExtractionConfiguration()));
+        configurations.put("default + resolver", () -> new JavaParser(new ParserConfiguration()
+                .setSymbolResolver(new JavaSymbolSolver(typeSolver))));
+
+        int rounds = Integer.getInteger("rounds", 10);
+        for (boolean timed : new boolean[]{false, true}) {
+            for (Map.Entry<String, Supplier<JavaParser>> configuration : configurations.entrySet()) {
+                JavaParser javaParser = configuration.getValue().get();
+                long best = Long.MAX_VALUE;
+                long total = 0;
+                int failures = 0;
+
+                for (int round = 0; round < (timed ? rounds : 1); round++) {
+                    failures = 0;
+                    long started = System.nanoTime();
+                    for (String source : sources) {
+                        if (!javaParser.parse(source).isSuccessful()) {
+                            failures++;
+                        }
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    best = Math.min(best, elapsed);
+                    total += elapsed;
+                }
+
+                if (timed) {
+                    System.out.printf("%-20s best %8.1f ms  mean %8.1f ms  failures %d%n",
+                            configuration.getKey(), best / 1e6, total / 1e6 / rounds, failures);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the sources of this repository and, if the JDK ships them, part of the JDK
+     */
+    private static List<String> defaultCorpus() {
+        List<String> corpus = new ArrayList<>();
+        corpus.add(Paths.get("src", "main", "java").toString());
+
+        Path jdkSources = Paths.get(System.getProperty("java.home"), "lib", "src" + ZIP_EXTENSION);
+        if (Files.isRegularFile(jdkSources)) {
+            corpus.add(jdkSources + PREFIX_SEPARATOR + "java.base/java/util/");
+            corpus.add(jdkSources + PREFIX_SEPARATOR + "java.base/java/net/");
+            corpus.add(jdkSources + PREFIX_SEPARATOR + "java.net.http/");
+        } else {
+            System.out.println("No JDK sources at " + jdkSources + ", using this repository only");
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Read the Java files of every source, see {@link ParserConfigurationBenchmark}
+     */
+    private static List<String> readCorpus(List<String> corpus) throws IOException {
+        List<String> sources = new ArrayList<>();
+
+        for (String source : corpus) {
+            int zipEnd = source.indexOf(ZIP_EXTENSION + PREFIX_SEPARATOR);
+            if (zipEnd >= 0 || source.endsWith(ZIP_EXTENSION)) {
+                String zip = zipEnd >= 0 ? source.substring(0, zipEnd + ZIP_EXTENSION.length()) : source;
+                String prefix = zipEnd >= 0 ? source.substring(zip.length() + PREFIX_SEPARATOR.length()) : "";
+                readZip(zip, prefix, sources);
+            } else {
+                try (Stream<Path> paths = Files.walk(Paths.get(source))) {
+                    for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(JAVA_EXTENSION)).sorted()::iterator) {
+                        sources.add(Files.readString(path));
+                    }
+                }
+            }
+        }
+
+        return sources;
+    }
+
+    private static void readZip(String zip, String prefix, List<String> sources) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix) && entry.getName().endsWith(JAVA_EXTENSION)) {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        sources.add(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+    }
+}
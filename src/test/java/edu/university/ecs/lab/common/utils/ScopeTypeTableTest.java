@@ -0,0 +1,82 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScopeTypeTableTest {
+    private static final String SOLVER = "solver";
+
+    private static final String ORDER_SERVICE = "package com.demo;\n"
+            + "import java.util.List;\n"
+            + "import com.demo.util.*;\n"
+            + "public class OrderService {\n"
+            + "    private com.demo.UserClient qualified;\n"
+            + "    private Holder<UserClient> holder;\n"
+            + "    private List<UserClient> clients;\n"
+            + "    public void run() {\n"
+            + "        UserUtils.format(\"a\");\n"
+            + "        WildUtils.format(\"b\");\n"
+            + "        Math.max(1, 2);\n"
+            + "        qualified.get(\"c\");\n"
+            + "        holder.get();\n"
+            + "        clients.get(0);\n"
+            + "    }\n"
+            + "    class Inner {\n"
+            + "        void run() { UserUtils.format(\"d\"); }\n"
+            + "    }\n"
+            + "    private Object UserUtils;\n"
+            + "}\n";
+
+    @Test
+    void namesTypesOfTheMicroserviceWithoutTheSolver() {
+        CompilationUnit orderService = StaticJavaParser.parse(ORDER_SERVICE);
+        ScopeTypeTable table = new ScopeTypeTable(orderService, index(orderService,
+                "package com.demo;\npublic class UserClient {}\n",
+                "package com.demo;\npublic class Holder<T> {}\n",
+                "package com.demo;\npublic class UserUtils {}\n",
+                "package com.demo.util;\npublic class WildUtils {}\n"));
+
+        assertEquals("WildUtils", table.getType(scopeOf(orderService, "WildUtils.format(\"b\")"), () -> SOLVER));
+        assertEquals("UserClient", table.getType(scopeOf(orderService, "qualified.get(\"c\")"), () -> SOLVER));
+        assertEquals("Holder", table.getType(scopeOf(orderService, "holder.get()"), () -> SOLVER));
+
+        // Types outside the microservice are left to the solver
+        assertEquals(SOLVER, table.getType(scopeOf(orderService, "Math.max(1, 2)"), () -> SOLVER));
+        assertEquals(SOLVER, table.getType(scopeOf(orderService, "clients.get(0)"), () -> SOLVER));
+    }
+
+    @Test
+    void leavesNamesThatMayBeFieldsToTheSolver() {
+        CompilationUnit orderService = StaticJavaParser.parse(ORDER_SERVICE);
+        ScopeTypeTable table = new ScopeTypeTable(orderService, index(orderService,
+                "package com.demo;\npublic class UserUtils {}\n"));
+
+        // A field of the class hides the type, in nested classes as well
+        assertEquals("Object", table.getType(scopeOf(orderService, "UserUtils.format(\"a\")"), () -> SOLVER));
+        assertEquals(SOLVER, table.getType(scopeOf(orderService, "UserUtils.format(\"d\")"), () -> SOLVER));
+    }
+
+    private static TypeIndex index(CompilationUnit compilationUnit, String... sources) {
+        List<List<TypeIndex.TypeSummary>> summaries = new ArrayList<>();
+        summaries.add(TypeIndex.summarize(compilationUnit));
+        for (String source : sources) {
+            summaries.add(TypeIndex.summarize(StaticJavaParser.parse(source)));
+        }
+
+        return new TypeIndex(summaries);
+    }
+
+    private static Expression scopeOf(CompilationUnit compilationUnit, String methodCall) {
+        return compilationUnit.findAll(MethodCallExpr.class).stream()
+                .filter(call -> call.toString().equals(methodCall))
+                .findFirst().orElseThrow().getScope().orElseThrow();
+    }
+}
@@ -0,0 +1,81 @@
+package edu.university.ecs.lab.common.utils;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeIndexTest {
+    private static final String USER_CONTROLLER = "package com.demo;\n"
+            + "import static com.demo.Paths.API;\n"
+            + "import com.demo.shared.Versions;\n"
+            + "public class UserController extends BaseController {\n"
+            + "    private static final String USERS = API + \"/users\";\n"
+            + "    private static final String LOOP = LOOP + \"/loop\";\n"
+            + "    void urls(String id) {\n"
+            + "        String versioned = USERS + \"/\" + Versions.V1;\n"
+            + "        String formatted = String.format(\"%s/%d/%%\", BASE, id);\n"
+            + "        String local = USERS + id;\n"
+            + "        String loop = LOOP;\n"
+            + "        String qualified = this.USERS + 1;\n"
+            + "        String character = (USERS) + 'c';\n"
+            + "        String sum = 1 + 2;\n"
+            + "    }\n"
+            + "    static class Inner {\n"
+            + "        String nested = USERS + \"/inner\";\n"
+            + "    }\n"
+            + "}\n";
+
+    private CompilationUnit userController;
+    private TypeIndex typeIndex;
+
+    @BeforeEach
+    void setUp() {
+        userController = StaticJavaParser.parse(USER_CONTROLLER);
+        typeIndex = new TypeIndex(List.of(
+                TypeIndex.summarize(userController),
+                summarize("package com.demo;\npublic class BaseController {\n    protected static final String BASE = \"/base\";\n}\n"),
+                summarize("package com.demo;\npublic class Paths {\n    public static final String API = \"/api\";\n}\n"),
+                summarize("package com.demo.shared;\npublic interface Versions {\n    String V1 = \"v1\";\n}\n")));
+    }
+
+    @Test
+    void constantsAreFollowedAcrossTypes() {
+        assertEquals("/api/users/v1", typeIndex.getConstantValue(initializerOf("versioned")));
+        assertEquals("/api/users/inner", typeIndex.getConstantValue(initializerOf("nested")));
+    }
+
+    @Test
+    void formatArgumentsThatAreNotConstantsAreUnknown() {
+        assertEquals("/base/" + TypeIndex.UNKNOWN_VALUE + "/%", typeIndex.getConstantValue(initializerOf("formatted")));
+    }
+
+    @Test
+    void literalsAreConcatenated() {
+        assertEquals("/api/users1", typeIndex.getConstantValue(initializerOf("qualified")));
+        assertEquals("/api/usersc", typeIndex.getConstantValue(initializerOf("character")));
+        assertNull(typeIndex.getConstantValue(initializerOf("sum")));
+    }
+
+    @Test
+    void localsAndSelfReferencesAreNotConstants() {
+        assertNull(typeIndex.getConstantValue(initializerOf("local")));
+        assertNull(typeIndex.getConstantValue(initializerOf("loop")));
+    }
+
+    private static List<TypeIndex.TypeSummary> summarize(String source) {
+        return TypeIndex.summarize(StaticJavaParser.parse(source));
+    }
+
+    private Expression initializerOf(String name) {
+        return userController.findAll(VariableDeclarator.class).stream()
+                .filter(variable -> variable.getNameAsString().equals(name))
+                .findFirst().orElseThrow().getInitializer().orElseThrow();
+    }
+}
@@ -0,0 +1,96 @@
+package edu.university.ecs.lab.delta.models;
+
+import edu.university.ecs.lab.common.models.enums.ClassRole;
+import edu.university.ecs.lab.common.models.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassPatchTest {
+    private static final String PATH = "/svc/src/main/java/com/demo/UserService.java";
+
+    @Test
+    void applyingTheDiffGivesTheNewClass() {
+        JClass oldClass = jClass(Set.of("find", "save"), Set.of("repository"), Set.of("Auditable"), "findById", "save");
+        JClass newClass = jClass(Set.of("find", "delete"), Set.of("repository", "cache"), Set.of("Cacheable"), "findById", "deleteById");
+
+        ClassPatch classPatch = ClassPatch.diff(oldClass, newClass);
+        classPatch.apply(oldClass);
+
+        assertFalse(classPatch.isEmpty());
+        assertEquals(ClassPatch.fingerprint(newClass), ClassPatch.fingerprint(oldClass));
+    }
+
+    @Test
+    void unchangedClassesHaveAnEmptyDiffAndTheSameFingerprint() {
+        JClass oldClass = jClass(Set.of("find"), Set.of("repository"), Set.of("Auditable"), "findById");
+        JClass newClass = jClass(Set.of("find"), Set.of("repository"), Set.of("Auditable"), "findById");
+
+        assertTrue(ClassPatch.diff(oldClass, newClass).isEmpty());
+        assertEquals(ClassPatch.fingerprint(oldClass), ClassPatch.fingerprint(newClass));
+    }
+
+    @Test
+    void microserviceNamesAreIgnored() {
+        JClass oldClass = jClass(Set.of("find"), Set.of(), Set.of(), "findById");
+        JClass newClass = jClass(Set.of("find"), Set.of(), Set.of(), "findById");
+        newClass.updateMicroserviceName("svc");
+
+        assertTrue(ClassPatch.diff(oldClass, newClass).isEmpty());
+    }
+
+    @Test
+    void changesOfTheClassItselfCannotBePatched() {
+        JClass oldClass = jClass(Set.of("find"), Set.of(), Set.of());
+        JClass renamed = new JClass("AccountService", PATH, "com.demo", ClassRole.SERVICE);
+        JClass moved = new JClass("UserService", "/svc/src/main/java/com/demo/users/UserService.java", "com.demo", ClassRole.SERVICE);
+        JClass controller = new JClass("UserService", PATH, "com.demo", ClassRole.CONTROLLER);
+
+        assertNull(ClassPatch.diff(oldClass, renamed));
+        assertNull(ClassPatch.diff(oldClass, moved));
+        assertNull(ClassPatch.diff(oldClass, controller));
+    }
+
+    @Test
+    void composedPatchesEqualApplyingBothInOrder() {
+        JClass first = jClass(Set.of("find", "save"), Set.of("repository"), Set.of("Auditable"), "findById", "save");
+        JClass second = jClass(Set.of("find", "delete"), Set.of(), Set.of(), "findById", "deleteById");
+        // Brings back what the first patch removed and removes what it added
+        JClass third = jClass(Set.of("find", "save"), Set.of("repository"), Set.of("Auditable"), "save");
+
+        ClassPatch composed = ClassPatch.diff(first, second).then(ClassPatch.diff(second, third));
+        composed.apply(first);
+
+        assertEquals(ClassPatch.fingerprint(third), ClassPatch.fingerprint(first));
+    }
+
+    @Test
+    void composingWithAnEmptyPatchChangesNothing() {
+        JClass oldClass = jClass(Set.of("find"), Set.of(), Set.of("Auditable"));
+        JClass newClass = jClass(Set.of("find", "save"), Set.of("repository"), Set.of());
+
+        ClassPatch classPatch = ClassPatch.diff(oldClass, newClass);
+        ClassPatch empty = ClassPatch.diff(newClass, newClass);
+
+        assertEquals(classPatch.toJsonObject(), classPatch.then(empty).toJsonObject());
+        assertEquals(classPatch.toJsonObject(), empty.then(classPatch).toJsonObject());
+    }
+
+    private static JClass jClass(Set<String> methodNames, Set<String> fieldNames, Set<String> implementedTypes, String... calledMethods) {
+        JClass jClass = new JClass("UserService", PATH, "com.demo", ClassRole.SERVICE);
+        for (String methodName : methodNames) {
+            jClass.getMethods().add(new Method(methodName, "com.demo.UserService", new HashSet<>(), "void", new HashSet<>(), "", "UserService"));
+        }
+        for (String fieldName : fieldNames) {
+            jClass.getFields().add(new Field(fieldName, "com.demo.UserService", "Object"));
+        }
+        for (String calledMethod : calledMethods) {
+            jClass.getMethodCalls().add(new MethodCall(calledMethod, "com.demo.UserService", "UserRepository", "repository", "find", "", "", "UserService"));
+        }
+        jClass.getImplementedTypes().addAll(implementedTypes);
+        return jClass;
+    }
+}
@@ -0,0 +1,144 @@
+package edu.university.ecs.lab.delta.services;
+
+import edu.university.ecs.lab.common.models.enums.ClassRole;
+import edu.university.ecs.lab.common.models.ir.*;
+import edu.university.ecs.lab.common.models.serialization.JsonSerializable;
+import edu.university.ecs.lab.delta.models.ClassPatch;
+import edu.university.ecs.lab.delta.models.Delta;
+import edu.university.ecs.lab.delta.models.SystemChange;
+import edu.university.ecs.lab.delta.models.enums.ChangeType;
+import edu.university.ecs.lab.intermediate.merge.services.MergeService;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaCompactionServiceTest {
+    private static final String DEV_NULL = "/dev/null";
+    private static final String ROOT = "/svc/src/main/java/com/demo/";
+
+    @Test
+    void modifyWithoutContentsDropsTheFile() {
+        List<SystemChange> systemChanges = List.of(
+                change("a", "b", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, (JsonSerializable) null)));
+
+        SystemChange compacted = assertCompactedMergeEqualsSerialMerge(systemChanges);
+
+        assertEquals(1, compacted.getChanges().size());
+        assertNull(MergeService.apply(system(), List.of(compacted)).findClass(path("UserService")));
+    }
+
+    @Test
+    void dropThenPatchThenMoveKeepsTheFileDropped() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, (JsonSerializable) null)),
+                change("b", "c", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, patch("UserService", "find"))),
+                change("c", "d", new Delta(path("UserService"), path("AccountService"), ChangeType.RENAME, (JsonSerializable) null))));
+    }
+
+    @Test
+    void moveThenDropRemovesTheFile() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), path("AccountService"), ChangeType.RENAME, (JsonSerializable) null)),
+                change("b", "c", new Delta(path("AccountService"), path("AccountService"), ChangeType.MODIFY, (JsonSerializable) null))));
+    }
+
+    @Test
+    void dropThenContentsRestoresTheFile() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, (JsonSerializable) null)),
+                change("b", "c", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, jClass("UserService", "find", "save")))));
+    }
+
+    @Test
+    void patchesComposeAcrossMovesAndAdds() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), path("UserService"), ChangeType.MODIFY, patch("UserService", "find"))),
+                change("b", "c", new Delta(path("UserService"), path("AccountService"), ChangeType.RENAME, patch("UserService", "save")),
+                        new Delta(DEV_NULL, path("OrderService"), ChangeType.ADD, jClass("OrderService", "list"))),
+                change("c", "d", new Delta(path("OrderService"), path("OrderService"), ChangeType.MODIFY, patch("OrderService", "count")),
+                        new Delta(path("AccountService"), path("AccountService"), ChangeType.MODIFY, patch("UserService", "delete")))));
+    }
+
+    @Test
+    void addedThenMovedWithAPatchTakesTheNewPath() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(DEV_NULL, path("PaymentService"), ChangeType.ADD, jClass("PaymentService", "pay"))),
+                change("b", "c", new Delta(path("PaymentService"), path("BillingService"), ChangeType.RENAME, patch("PaymentService", "refund")))));
+    }
+
+    @Test
+    void deletedAndAddedBackIsAModify() {
+        SystemChange compacted = assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), DEV_NULL, ChangeType.DELETE, (JsonSerializable) null)),
+                change("b", "c", new Delta(DEV_NULL, path("UserService"), ChangeType.ADD, jClass("UserService", "find")))));
+
+        assertEquals(ChangeType.MODIFY, compacted.getChanges().get(0).getChangeType());
+    }
+
+    @Test
+    void movesInACycleUseATemporaryPath() {
+        assertCompactedMergeEqualsSerialMerge(List.of(
+                change("a", "b", new Delta(path("UserService"), path("Temporary"), ChangeType.RENAME, (JsonSerializable) null)),
+                change("b", "c", new Delta(path("OrderService"), path("UserService"), ChangeType.RENAME, (JsonSerializable) null)),
+                change("c", "d", new Delta(path("Temporary"), path("OrderService"), ChangeType.RENAME, (JsonSerializable) null))));
+    }
+
+    @Test
+    void compactingLeavesTheChangesUnmodified() {
+        List<SystemChange> systemChanges = List.of(
+                change("a", "b", new Delta(DEV_NULL, path("OrderService"), ChangeType.ADD, jClass("OrderService", "list"))),
+                change("b", "c", new Delta(path("OrderService"), path("OrderService"), ChangeType.MODIFY, patch("OrderService", "count"))));
+        String before = systemChanges.stream().map(c -> c.toJsonObject().toString()).reduce("", String::concat);
+
+        DeltaCompactionService.compact(systemChanges);
+
+        assertEquals(before, systemChanges.stream().map(c -> c.toJsonObject().toString()).reduce("", String::concat));
+    }
+
+    /**
+     * Assert that merging the compacted changes gives the same system as merging them one by one
+     */
+    private static SystemChange assertCompactedMergeEqualsSerialMerge(List<SystemChange> systemChanges) {
+        MicroserviceSystem serial = MergeService.apply(system(), systemChanges);
+        SystemChange compacted = DeltaCompactionService.compact(systemChanges);
+        MicroserviceSystem merged = MergeService.apply(system(), List.of(compacted));
+
+        // Copied so that the sets are hashed again after merging changed their elements
+        assertEquals(serial.copy(), merged.copy());
+        return compacted;
+    }
+
+    private static SystemChange change(String oldCommit, String newCommit, Delta... deltas) {
+        return new SystemChange(oldCommit, newCommit, new ArrayList<>(List.of(deltas)));
+    }
+
+    private static MicroserviceSystem system() {
+        Microservice microservice = new Microservice("svc", "/svc");
+        microservice.addJClass(jClass("UserService", "find"));
+        microservice.addJClass(jClass("OrderService", "list"));
+        Set<Microservice> microservices = new HashSet<>();
+        microservices.add(microservice);
+        return new MicroserviceSystem("demo", "a", microservices, new HashSet<>());
+    }
+
+    private static String path(String className) {
+        return ROOT + className + ".java";
+    }
+
+    private static JClass jClass(String className, String... methodNames) {
+        JClass jClass = new JClass(className, path(className), "com.demo", ClassRole.SERVICE);
+        for (String methodName : methodNames) {
+            jClass.getMethods().add(new Method(methodName, "com.demo." + className, new HashSet<>(), "void", new HashSet<>(), "", className));
+        }
+        return jClass;
+    }
+
+    /**
+     * A patch adding a method to a class with no other changes
+     */
+    private static ClassPatch patch(String className, String methodName) {
+        return ClassPatch.diff(jClass(className), jClass(className, methodName));
+    }
+}
@@ -0,0 +1,123 @@
+package edu.university.ecs.lab.delta.services;
+
+import edu.university.ecs.lab.TestRepository;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.common.services.ExtractionSession;
+import edu.university.ecs.lab.delta.models.DeltaOptions;
+import edu.university.ecs.lab.delta.models.SystemChange;
+import edu.university.ecs.lab.intermediate.create.services.IRExtractionService;
+import edu.university.ecs.lab.intermediate.merge.services.MergeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaExtractionServiceTest {
+    private static final String SOURCE_ROOT = "svc/src/main/java/com/demo/";
+
+    @TempDir
+    Path configDirectory;
+
+    @Test
+    void rangeGivesTheChangesOfSequentialExtractions() throws Exception {
+        for (DeltaOptions options : List.of(new DeltaOptions(false, false), new DeltaOptions(true, false), new DeltaOptions(true, true))) {
+            // Named apart since the process wide lease manager keeps the working trees of a repository
+            String name = "delta-range-test-" + options.isClassPatches() + "-" + options.isOmitUnchanged();
+            try (TestRepository repository = new TestRepository(name, configDirectory, "")) {
+                List<String> commits = history(repository);
+
+                List<SystemChange> range = new ArrayList<>();
+                try (ExtractionSession session = repository.newSession()) {
+                    DeltaExtractionService.createRange(session, commits, 2, options, range::add);
+                }
+
+                try (ExtractionSession session = repository.newSession()) {
+                    assertEquals(commits.size() - 1, range.size());
+                    for (int i = 1; i < commits.size(); i++) {
+                        SystemChange sequential = DeltaExtractionService.create(session, commits.get(i - 1), commits.get(i), options);
+                        assertFalse(sequential.getChanges().isEmpty());
+                        assertEquals(sequential.toJsonObject(), range.get(i - 1).toJsonObject(), options + " commit " + i);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void unchangedClassesAreOmittedWhenAsked() throws Exception {
+        try (TestRepository repository = new TestRepository("delta-unchanged-test", configDirectory, "")) {
+            List<String> commits = history(repository);
+
+            try (ExtractionSession session = repository.newSession()) {
+                SystemChange whole = DeltaExtractionService.create(session, commits.get(0), commits.get(1), new DeltaOptions(false, false));
+                SystemChange omitted = DeltaExtractionService.create(session, commits.get(0), commits.get(1), new DeltaOptions(false, true));
+
+                assertEquals(Set.of(SOURCE_ROOT + "UserController.java", SOURCE_ROOT + "UserService.java", "svc/src/main/resources/application.yml"), newPaths(whole));
+                // Only the body of the controller method changed, so it is extracted the same
+                assertEquals(Set.of(SOURCE_ROOT + "UserService.java", "svc/src/main/resources/application.yml"), newPaths(omitted));
+
+                MicroserviceSystem merged = MergeService.apply(IRExtractionService.create(session, Optional.of(commits.get(0))), List.of(omitted));
+                assertEquals(IRExtractionService.create(session, Optional.of(commits.get(1))).copy(), merged.copy());
+            }
+        }
+    }
+
+    private static Set<String> newPaths(SystemChange systemChange) {
+        return systemChange.getChanges().stream().map(delta -> delta.getNewPath().substring(1)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Commit a service and then, one commit each, a class, method body and configuration
+     * change, a rename and an added and a deleted class
+     *
+     * @return the commit IDs in order
+     */
+    private static List<String> history(TestRepository repository) throws Exception {
+        List<String> commits = new ArrayList<>();
+
+        repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                .write("svc/src/main/resources/application.yml", "server:\n  port: 8080\n")
+                .write(SOURCE_ROOT + "UserController.java", controller())
+                .write(SOURCE_ROOT + "UserService.java", service("UserService", "find"))
+                .write(SOURCE_ROOT + "OrderService.java", service("OrderService", "list"));
+        commits.add(repository.commit());
+
+        repository.write(SOURCE_ROOT + "UserService.java", service("UserService", "find", "save"))
+                .write(SOURCE_ROOT + "UserController.java", controller().replace("return userService.find(id);", "String user = userService.find(id); return user;"))
+                .write("svc/src/main/resources/application.yml", "server:\n  port: 8081\n");
+        commits.add(repository.commit());
+
+        repository.delete(SOURCE_ROOT + "UserService.java")
+                .write(SOURCE_ROOT + "users/UserService.java", service("UserService", "find", "save").replace("package com.demo;", "package com.demo.users;"));
+        commits.add(repository.commit());
+
+        repository.delete(SOURCE_ROOT + "OrderService.java")
+                .write(SOURCE_ROOT + "PaymentService.java", service("PaymentService", "pay"));
+        commits.add(repository.commit());
+
+        return commits;
+    }
+
+    private static String controller() {
+        return "package com.demo;\n\n"
+                + "@RestController\n@RequestMapping(\"/users\")\npublic class UserController {\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/{id}\")\n    public String find(@PathVariable String id) { return userService.find(id); }\n}\n";
+    }
+
+    private static String service(String className, String... methodNames) {
+        StringBuilder source = new StringBuilder("package com.demo;\n\n@Service\npublic class " + className + " {\n    private RestTemplate restTemplate;\n");
+        for (String methodName : methodNames) {
+            source.append("\n    public String ").append(methodName).append("(String id) {\n")
+                    .append("        return restTemplate.getForObject(\"http://orders/").append(methodName).append("/\" + id, String.class);\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+}
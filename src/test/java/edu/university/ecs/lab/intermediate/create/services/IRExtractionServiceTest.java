@@ -0,0 +1,209 @@
+package edu.university.ecs.lab.intermediate.create.services;
+
+import edu.university.ecs.lab.TestRepository;
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.models.ir.JClass;
+import edu.university.ecs.lab.common.models.ir.Microservice;
+import edu.university.ecs.lab.common.models.ir.MicroserviceSystem;
+import edu.university.ecs.lab.common.services.ExtractionSession;
+import edu.university.ecs.lab.common.services.IRCache;
+import edu.university.ecs.lab.common.services.ParseLimitReport;
+import edu.university.ecs.lab.common.utils.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IRExtractionServiceTest {
+    private static final String SERVICE_PATH = "/svc";
+    private static final String LARGE_SERVICE_PATH = "/svc/src/main/java/com/demo/LargeService.java";
+
+    @TempDir
+    Path configDirectory;
+
+    @Test
+    void systemsWithinTheParseTimeLimitAreCached() throws Exception {
+        try (TestRepository repository = largeServiceRepository("")) {
+            String commitID = repository.commit();
+
+            try (ExtractionSession session = newCachingSession(repository)) {
+                IRExtractionService.create(session, Optional.of(commitID));
+
+                assertNotNull(session.getIrCache().get(commitID));
+                assertNotNull(session.getMicroserviceCache().get(SERVICE_PATH, session.getGitService().getTreeId(commitID, SERVICE_PATH)));
+                assertTrue(session.getParseLimitReport().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void systemsPastTheParseTimeLimitAreNotCached() throws Exception {
+        try (TestRepository repository = largeServiceRepository("\"maxParseMillis\": 1")) {
+            String commitID = repository.commit();
+
+            try (ExtractionSession session = newCachingSession(repository)) {
+                MicroserviceSystem microserviceSystem = IRExtractionService.create(session, Optional.of(commitID));
+
+                assertNull(session.getIrCache().get(commitID));
+                assertNull(session.getMicroserviceCache().get(SERVICE_PATH, session.getGitService().getTreeId(commitID, SERVICE_PATH)));
+
+                List<ParseLimitReport.Entry> entries = session.getParseLimitReport().getEntries();
+                assertEquals(1, entries.size());
+                assertEquals(commitID, entries.get(0).getCommitID());
+                assertEquals(LARGE_SERVICE_PATH, entries.get(0).getPath());
+                assertEquals(ParseLimitReport.Limit.PARSE_TIME, entries.get(0).getLimit());
+
+                // Only the declarations of the class are kept
+                Microservice microservice = microserviceSystem.findMicroserviceByPath(SERVICE_PATH);
+                JClass jClass = microservice.getServices().iterator().next();
+                assertFalse(jClass.getMethods().isEmpty());
+                assertTrue(jClass.getMethodCalls().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void microservicesAreNotReusedAcrossSharedSourceChanges() throws Exception {
+        try (TestRepository repository = new TestRepository("shared-source-test", configDirectory, "")) {
+            repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                    .write("svc/src/main/java/com/demo/UserService.java", "package com.demo;\n\nimport com.shared.Clients;\n\n"
+                            + "@Service\npublic class UserService {\n    public String find() { return Clients.CLIENT.get(\"/users\"); }\n}\n")
+                    .write("com/shared/UserClient.java", "package com.shared;\n\npublic class UserClient {\n    public String get(String url) { return url; }\n}\n")
+                    .write("com/shared/OrderClient.java", "package com.shared;\n\npublic class OrderClient {\n    public String get(String url) { return url; }\n}\n")
+                    .write("com/shared/Clients.java", clients("UserClient"));
+            String before = repository.commit();
+            String after = repository.write("com/shared/Clients.java", clients("OrderClient")).commit();
+
+            try (ExtractionSession session = repository.newSession()) {
+                MicroserviceSystem first = IRExtractionService.create(session, Optional.of(before));
+                MicroserviceSystem reused = IRExtractionService.create(session, Optional.of(after));
+
+                try (ExtractionSession fresh = repository.newSession()) {
+                    MicroserviceSystem extracted = IRExtractionService.create(fresh, Optional.of(after));
+
+                    // The shared class decides the type of the call's scope
+                    assertNotEquals(first.copy(), extracted.copy());
+                    assertEquals(extracted.copy(), reused.copy());
+                }
+            }
+        }
+    }
+
+    @Test
+    void microservicesAreNotResolvedAgainstOtherMicroservices() throws Exception {
+        try (TestRepository repository = new TestRepository("other-service-test", configDirectory, "")) {
+            // The users sources sit where the type solver rooted at the working tree finds them
+            repository.write("users/pom.xml", "<project><artifactId>users</artifactId></project>")
+                    .write("users/UserClient.java", "package users;\n\npublic class UserClient {\n    public String get(String url) { return url; }\n}\n")
+                    .write("users/OrderClient.java", "package users;\n\npublic class OrderClient {\n    public String get(String url) { return url; }\n}\n")
+                    .write("users/Clients.java", clients("users", "UserClient"))
+                    .write("orders/pom.xml", "<project><artifactId>orders</artifactId></project>")
+                    .write("orders/src/main/java/com/demo/OrderService.java", "package com.demo;\n\n"
+                            + "@Service\npublic class OrderService {\n    public String find() { return users.Clients.CLIENT.get(\"/orders\"); }\n}\n");
+            String before = repository.commit();
+            String after = repository.write("users/Clients.java", clients("users", "OrderClient")).commit();
+
+            try (ExtractionSession session = repository.newSession()) {
+                IRExtractionService.create(session, Optional.of(before));
+                MicroserviceSystem reused = IRExtractionService.create(session, Optional.of(after));
+
+                try (ExtractionSession fresh = repository.newSession()) {
+                    MicroserviceSystem extracted = IRExtractionService.create(fresh, Optional.of(after));
+
+                    // The orders microservice is reused, so it must not depend on the users sources
+                    assertEquals(extracted.copy(), reused.copy());
+                }
+            }
+        }
+    }
+
+    @Test
+    void createAndWriteAllWritesOneSystemPerCommit() throws Exception {
+        try (TestRepository repository = new TestRepository("write-all-test", configDirectory, "")) {
+            repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                    .write("svc/src/main/java/com/demo/UserService.java", "package com.demo;\n\n@Service\npublic class UserService {\n}\n");
+            String first = repository.commit();
+            repository.branch("feature/x");
+            repository.write("svc/src/main/java/com/demo/OrderService.java", "package com.demo;\n\n@Service\npublic class OrderService {\n}\n");
+            String second = repository.commit();
+            repository.branch("feature_x").branch("Feature_x");
+            List<String> commitIDs = List.of(first, second, "feature/x", "feature_x", "Feature_x");
+            Map<String, String> resolvedCommitIDs = Map.of(first, first, second, second, "feature/x", first, "feature_x", second, "Feature_x", second);
+
+            try (ExtractionSession session = repository.newSession()) {
+                Map<String, String> outputPaths = IRExtractionService.createAndWriteAll(session, commitIDs, configDirectory.toString(), 2);
+
+                assertEquals(commitIDs, List.copyOf(outputPaths.keySet()));
+                // Refs differing in characters replaced in file names or in case don't share a file
+                assertEquals(commitIDs.size(), outputPaths.values().stream().map(path -> path.toLowerCase(Locale.ROOT)).distinct().count());
+
+                for (String commitID : commitIDs) {
+                    MicroserviceSystem expected = IRExtractionService.create(session, Optional.of(resolvedCommitIDs.get(commitID)));
+                    expected.setCommitID(commitID);
+                    assertEquals(expected.copy(), IRExtractionService.read(outputPaths.get(commitID)).copy(), commitID);
+                }
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void directoryScansUseTheDiscoveredFiles() throws Exception {
+        try (TestRepository repository = new TestRepository("directory-scan-test", configDirectory, "")) {
+            repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                    .write("svc/src/main/resources/application.yml", "server:\n  port: 8080\n")
+                    .write("svc/src/main/java/com/demo/UserService.java", "package com.demo;\n\n@Service\npublic class UserService {\n}\n")
+                    .write("scripts/Seed.java", "package scripts;\n\n@Service\npublic class Seed {\n}\n");
+            String commitID = repository.commit();
+
+            try (ExtractionSession session = repository.newSession()) {
+                Microservice expected = IRExtractionService.create(session, Optional.of(commitID)).findMicroserviceByPath(SERVICE_PATH).copy();
+                expected.setTreeId(null);
+
+                IRExtractionService extractionService = new IRExtractionService(session, Optional.of(commitID));
+                String repositoryPath = FileUtils.getRepositoryPath(session.getConfig().getWorkTreeName());
+                assertEquals(expected, extractionService.recursivelyScanFiles(repositoryPath + SERVICE_PATH));
+
+                // Files outside of every microservice are left out
+                Microservice scanned = new Microservice(expected.getName(), SERVICE_PATH);
+                extractionService.scanDirectory(new File(repositoryPath), scanned);
+                assertEquals(expected, scanned);
+            }
+        }
+    }
+
+    private static String clients(String type) {
+        return clients("com.shared", type);
+    }
+
+    private static String clients(String packageName, String type) {
+        return "package " + packageName + ";\n\npublic class Clients {\n    public static " + type + " CLIENT = new " + type + "();\n}\n";
+    }
+
+    private TestRepository largeServiceRepository(String options) throws Exception {
+        StringBuilder source = new StringBuilder("package com.demo;\n\n@Service\npublic class LargeService {\n    private UserRepository userRepository;\n");
+        // Large enough that parsing alone takes longer than a millisecond
+        for (int i = 0; i < 2000; i++) {
+            source.append("    public void save").append(i).append("(String name) { userRepository.save(name + ").append(i).append("); }\n");
+        }
+        source.append("}\n");
+
+        TestRepository repository = new TestRepository("parse-limit-test", configDirectory, options);
+        repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                .write("svc/src/main/java/com/demo/LargeService.java", source.toString());
+        return repository;
+    }
+
+    private static ExtractionSession newCachingSession(TestRepository repository) {
+        Config config = repository.getConfig();
+        return new ExtractionSession(config, new IRCache(config, 4, 0, Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,59 @@
+package edu.university.ecs.lab.intermediate.create.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RootTrieTest {
+
+    @Test
+    void onlyTheMostSpecificRootsAreKept() {
+        IRExtractionService.RootTrie rootTrie = new IRExtractionService.RootTrie();
+        rootTrie.add("/services");
+        rootTrie.add("/services/users");
+        rootTrie.add("/orders");
+
+        assertEquals(List.of("/services/users", "/orders"), new ArrayList<>(rootTrie.getRoots().keySet()));
+    }
+
+    @Test
+    void rootsAreKeptInTheOrderTheyWereAdded() {
+        IRExtractionService.RootTrie rootTrie = new IRExtractionService.RootTrie();
+        rootTrie.add("/z");
+        rootTrie.add("/a");
+        rootTrie.add("/z");
+
+        assertEquals(List.of("/z", "/a"), new ArrayList<>(rootTrie.getRoots().keySet()));
+    }
+
+    @Test
+    void filesBelongToTheirMostSpecificRoot() {
+        IRExtractionService.RootTrie rootTrie = new IRExtractionService.RootTrie();
+        rootTrie.add("/services");
+        rootTrie.add("/services/users");
+        rootTrie.add("/orders");
+
+        assertSame(rootTrie.getRoots().get("/services/users"), rootTrie.find("/services/users/src/User.java"));
+        assertSame(rootTrie.getRoots().get("/orders"), rootTrie.find("/orders/pom.xml"));
+        assertNull(rootTrie.find("/services/Shared.java"));
+        assertNull(rootTrie.find("/ordersold/Order.java"));
+        assertNull(rootTrie.find("/Root.java"));
+    }
+
+    @Test
+    void theRepositoryRootIsARootUntilAnotherIsAdded() {
+        IRExtractionService.RootTrie rootTrie = new IRExtractionService.RootTrie();
+        rootTrie.add("");
+
+        assertEquals(List.of(""), new ArrayList<>(rootTrie.getRoots().keySet()));
+        assertSame(rootTrie.getRoots().get(""), rootTrie.find("/src/User.java"));
+
+        rootTrie.add("/users");
+
+        assertEquals(List.of("/users"), new ArrayList<>(rootTrie.getRoots().keySet()));
+        assertNull(rootTrie.find("/src/User.java"));
+    }
+}
@@ -0,0 +1,242 @@
+package edu.university.ecs.lab.intermediate.merge.services;
+
+import com.google.gson.JsonObject;
+import edu.university.ecs.lab.TestRepository;
+import edu.university.ecs.lab.common.config.Config;
+import edu.university.ecs.lab.common.models.enums.ClassRole;
+import edu.university.ecs.lab.common.models.ir.*;
+import edu.university.ecs.lab.common.services.ExtractionSession;
+import edu.university.ecs.lab.common.services.IRCache;
+import edu.university.ecs.lab.common.utils.JsonReadWriteUtils;
+import edu.university.ecs.lab.delta.models.ClassPatch;
+import edu.university.ecs.lab.delta.models.Delta;
+import edu.university.ecs.lab.delta.models.SystemChange;
+import edu.university.ecs.lab.delta.models.enums.ChangeType;
+import edu.university.ecs.lab.delta.services.DeltaCompactionService;
+import edu.university.ecs.lab.delta.services.DeltaExtractionService;
+import edu.university.ecs.lab.intermediate.create.services.IRExtractionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MergeServiceTest {
+    private static final String PATH = "/svc/src/main/java/com/demo/UserService.java";
+    private static final String SOURCE_ROOT = "svc/src/main/java/com/demo/";
+
+    @TempDir
+    Path configDirectory;
+
+    @Test
+    void addedClassIsNotSharedWithTheDelta() {
+        JClass added = new JClass("UserService", PATH, "com.demo", ClassRole.SERVICE);
+        added.getMethods().add(method());
+        Delta delta = new Delta("/dev/null", PATH, ChangeType.ADD, added.toJsonObject());
+        JsonObject before = delta.toJsonObject();
+        SystemChange systemChange = new SystemChange("a", "b", List.of(delta));
+
+        MicroserviceSystem first = MergeService.apply(system(), List.of(systemChange));
+        MicroserviceSystem second = MergeService.apply(system(), List.of(systemChange));
+
+        JClass firstClass = first.getMicroservices().iterator().next().getServices().iterator().next();
+        JClass secondClass = second.getMicroservices().iterator().next().getServices().iterator().next();
+        assertEquals("svc", firstClass.getMethods().iterator().next().getMicroserviceName());
+        assertNotSame(firstClass, secondClass);
+        assertNotSame(delta.getClassChange(), firstClass);
+        assertEquals(before, delta.toJsonObject());
+    }
+
+    @Test
+    void patchedMethodsAreNotSharedWithTheDelta() {
+        JClass oldClass = new JClass("UserService", PATH, "com.demo", ClassRole.SERVICE);
+        JClass newClass = new JClass("UserService", PATH, "com.demo", ClassRole.SERVICE);
+        newClass.getMethods().add(method());
+        Delta delta = new Delta(PATH, PATH, ChangeType.MODIFY, ClassPatch.diff(oldClass, newClass));
+        JsonObject before = delta.toJsonObject();
+
+        MicroserviceSystem system = system();
+        system.getMicroservices().iterator().next().addJClass(oldClass);
+        MergeService.apply(system, List.of(new SystemChange("a", "b", List.of(delta))));
+
+        Method method = system.getMicroservices().iterator().next().getServices().iterator().next().getMethods().iterator().next();
+        assertEquals("svc", method.getMicroserviceName());
+        assertEquals(before, delta.toJsonObject());
+    }
+
+    @Test
+    void deltasMovingFilesBetweenOwnersKeepTheirOrder() {
+        String ordersPath = "/orders/src/main/java/com/demo/UserService.java";
+        String orphanPath = "/shared/UserService.java";
+        List<Delta> deltas = List.of(
+                new Delta(PATH, PATH, ChangeType.MODIFY, patch(PATH, List.of("find"), List.of("find", "save"))),
+                new Delta(PATH, ordersPath, ChangeType.RENAME, patch(ordersPath, List.of("find", "save"), List.of("find", "save", "delete"))),
+                new Delta(ordersPath, ordersPath, ChangeType.MODIFY, patch(ordersPath, List.of("find", "save", "delete"), List.of("save", "delete"))),
+                new Delta(ordersPath, orphanPath, ChangeType.RENAME, patch(orphanPath, List.of("save", "delete"), List.of("save", "delete", "list"))),
+                new Delta(orphanPath, orphanPath, ChangeType.MODIFY, patch(orphanPath, List.of("save", "delete", "list"), List.of("list"))));
+
+        MicroserviceSystem merged = MergeService.apply(ownersSystem(), List.of(new SystemChange("a", "b", deltas)));
+
+        // One delta per change, so each one is applied after the one before it
+        List<SystemChange> oneByOne = new ArrayList<>();
+        deltas.forEach(delta -> oneByOne.add(new SystemChange("a", "b", List.of(delta))));
+        MicroserviceSystem sequential = MergeService.apply(ownersSystem(), oneByOne);
+
+        assertEquals(sequential.copy(), merged.copy());
+        JClass moved = (JClass) merged.getOrphans().iterator().next();
+        assertEquals(Set.of("list"), moved.getMethods().stream().map(Method::getName).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void mergingEachDeltaGivesTheExtractedSystem() throws Exception {
+        try (TestRepository repository = roundTripRepository()) {
+            List<String> commits = roundTripCommits(repository);
+
+            try (ExtractionSession session = repository.newSession()) {
+                for (int i = 1; i < commits.size(); i++) {
+                    MicroserviceSystem previous = IRExtractionService.create(session, Optional.of(commits.get(i - 1)));
+                    SystemChange systemChange = DeltaExtractionService.create(session, commits.get(i - 1), commits.get(i), true);
+
+                    MicroserviceSystem merged = MergeService.apply(previous, List.of(systemChange));
+
+                    // Copied so that the sets are hashed again after merging changed their elements
+                    assertEquals(IRExtractionService.create(session, Optional.of(commits.get(i))).copy(), merged.copy(), "Commit " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void mergingCompactedDeltasGivesTheExtractedSystem() throws Exception {
+        try (TestRepository repository = roundTripRepository()) {
+            List<String> commits = roundTripCommits(repository);
+
+            try (ExtractionSession session = repository.newSession()) {
+                List<SystemChange> systemChanges = new ArrayList<>();
+                for (int i = 1; i < commits.size(); i++) {
+                    systemChanges.add(DeltaExtractionService.create(session, commits.get(i - 1), commits.get(i), true));
+                }
+
+                MicroserviceSystem first = IRExtractionService.create(session, Optional.of(commits.get(0)));
+                MicroserviceSystem merged = MergeService.apply(first, List.of(DeltaCompactionService.compact(systemChanges)));
+
+                MicroserviceSystem last = IRExtractionService.create(session, Optional.of(commits.get(commits.size() - 1)));
+                assertEquals(last.copy(), merged.copy());
+            }
+        }
+    }
+
+    @Test
+    void cachedSystemsAreOnlyReusedWhenAsked() throws Exception {
+        try (TestRepository repository = roundTripRepository()) {
+            List<String> commits = roundTripCommits(repository);
+            Config config = repository.getConfig();
+
+            try (ExtractionSession session = new ExtractionSession(config, new IRCache(config, 4, 0, Duration.ofHours(1)))) {
+                String intermediatePath = configDirectory.resolve("IR.json").toString();
+                String deltaPath = configDirectory.resolve("Delta.json").toString();
+                JsonReadWriteUtils.writeToJSON(intermediatePath, IRExtractionService.create(session, Optional.of(commits.get(0))).toJsonObject());
+                JsonReadWriteUtils.writeToJSON(deltaPath, DeltaExtractionService.create(session, commits.get(0), commits.get(1), true).toJsonObject());
+                MicroserviceSystem extracted = IRExtractionService.create(session, Optional.of(commits.get(1)));
+
+                // A system cached at the new commit that the files don't merge into
+                session.getIrCache().put(commits.get(1), system());
+
+                assertEquals(extracted.copy(), MergeService.create(session, intermediatePath, deltaPath, commits.get(1)).copy());
+                assertEquals(system(), MergeService.create(session, intermediatePath, deltaPath, commits.get(1), true));
+            }
+        }
+    }
+
+    private TestRepository roundTripRepository() throws Exception {
+        return new TestRepository("round-trip-test", configDirectory, "");
+    }
+
+    /**
+     * Commit a service and then, one commit each, a class change, a rename of a
+     * changed class and an added and a deleted class
+     *
+     * @return the commit IDs in order
+     */
+    private static List<String> roundTripCommits(TestRepository repository) throws Exception {
+        List<String> commits = new ArrayList<>();
+
+        repository.write("svc/pom.xml", "<project><artifactId>svc</artifactId></project>")
+                .write(SOURCE_ROOT + "UserController.java", "package com.demo;\n\n"
+                        + "@RestController\n@RequestMapping(\"/users\")\npublic class UserController {\n"
+                        + "    private UserService userService;\n\n"
+                        + "    @GetMapping(\"/{id}\")\n    public String find(@PathVariable String id) { return userService.find(id); }\n}\n")
+                .write(SOURCE_ROOT + "BaseService.java", "package com.demo;\n\n"
+                        + "public abstract class BaseService {\n    protected RestTemplate restTemplate;\n}\n")
+                .write(SOURCE_ROOT + "ApiPaths.java", "package com.demo;\n\n"
+                        + "public final class ApiPaths {\n    public static final String ORDERS = \"http://orders/api/v1\";\n}\n")
+                .write(SOURCE_ROOT + "UserService.java", service("UserService", "find"))
+                .write(SOURCE_ROOT + "OrderService.java", service("OrderService", "list"));
+        commits.add(repository.commit());
+
+        repository.write(SOURCE_ROOT + "UserService.java", service("UserService", "find", "save"));
+        commits.add(repository.commit());
+
+        repository.delete(SOURCE_ROOT + "UserService.java")
+                .write(SOURCE_ROOT + "users/UserService.java", service("UserService", "find", "save", "delete").replace("package com.demo;", "package com.demo.users;\n\nimport com.demo.ApiPaths;\nimport com.demo.BaseService;"));
+        commits.add(repository.commit());
+
+        repository.delete(SOURCE_ROOT + "OrderService.java")
+                .write(SOURCE_ROOT + "PaymentService.java", service("PaymentService", "pay"));
+        commits.add(repository.commit());
+
+        return commits;
+    }
+
+    /**
+     * A service calling another through the rest template it inherits, with
+     * URLs built from the constant of another class
+     */
+    private static String service(String className, String... methodNames) {
+        StringBuilder source = new StringBuilder("package com.demo;\n\n@Service\npublic class " + className + " extends BaseService {\n");
+        for (String methodName : methodNames) {
+            source.append("\n    public String ").append(methodName).append("(String id) {\n")
+                    .append("        return restTemplate.getForObject(ApiPaths.ORDERS + \"/").append(methodName).append("/\" + id, String.class);\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * A patch between two versions of a service at a path with the given methods
+     */
+    private static ClassPatch patch(String path, List<String> oldMethods, List<String> newMethods) {
+        return ClassPatch.diff(service(path, oldMethods), service(path, newMethods));
+    }
+
+    private static JClass service(String path, List<String> methodNames) {
+        JClass jClass = new JClass("UserService", path, "com.demo", ClassRole.SERVICE);
+        methodNames.forEach(name -> jClass.getMethods().add(new Method(name, "com.demo.UserService", new HashSet<>(), "String", new HashSet<>(), "", "UserService")));
+        return jClass;
+    }
+
+    /**
+     * A system of two microservices with the service in the first one and a class in each
+     */
+    private static MicroserviceSystem ownersSystem() {
+        Microservice svc = new Microservice("svc", "/svc");
+        svc.addJClass(service(PATH, List.of("find")));
+        Microservice orders = new Microservice("orders", "/orders");
+        orders.addJClass(new JClass("OrderService", "/orders/src/main/java/com/demo/OrderService.java", "com.demo", ClassRole.SERVICE));
+
+        return new MicroserviceSystem("demo", "a", new HashSet<>(List.of(svc, orders)), new HashSet<>());
+    }
+
+    private static Method method() {
+        return new Method("find", "com.demo.UserService", new HashSet<>(), "String", new HashSet<>(), "", "UserService");
+    }
+
+    private static MicroserviceSystem system() {
+        Set<Microservice> microservices = new HashSet<>();
+        microservices.add(new Microservice("svc", "/svc"));
+        return new MicroserviceSystem("demo", "a", microservices, new HashSet<>());
+    }
+}